@@ -0,0 +1,710 @@
+// Go Fish card texture atlas.
+// Packs card images into one or two power-of-two texture pages in
+// shelves, each image addressed by its page and texture rectangle.
+// Images keep their own size instead of each being stretched to a
+// padded texture, and cards on a page draw without rebinding.
+// A null image file adds a small white image for untextured shapes.
+// Images are decoded in parallel and composed into pages on worker
+// threads; only the page uploads run on the GL thread, one per frame.
+// Where ETC1 is supported, the page compressed at build time by
+// CardAtlasCompiler is uploaded as is, without decoding any image.
+// Otherwise composed page texels are cached in a file keyed by the
+// images, page size limit, texel format and package, and later loads
+// map the file and upload it without decoding.
+
+package com.dialectek.gofish;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.microedition.khronos.opengles.GL10;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.opengl.ETC1Util;
+import android.util.Log;
+
+public class CardAtlas
+{
+   // Largest page dimension.
+   public static final int MAX_PAGE_SIZE = 1024;
+
+   // Transparent gutter between images.
+   public static final int GUTTER = 1;
+
+   // White image size.
+   public static final int WHITE_SIZE = 4;
+
+   // Page textures and sizes.
+   public int[] textureIDs;
+   int[]        pageWidths;
+   int[]        pageHeights;
+
+   // Image pages and texture rectangles as left, top, right, bottom.
+   int[]   pages;
+   float[] rects;
+
+   // Image files.
+   String[] imageFiles;
+
+   // Load states.
+   public static final int DECODING  = 0;
+   public static final int UPLOADING = 1;
+   public static final int LOADED    = 2;
+   public static final int FAILED    = 3;
+   volatile int state;
+
+   // Load progress: decoded images and uploaded pages.
+   final AtomicInteger decoded;
+   int                 uploaded;
+
+   // Compressed page assets.
+   public static final String COMPRESSED_PAGE   = "textures/cards.pkm";
+   public static final String COMPRESSED_LAYOUT = "textures/cards.atlas";
+   public static final String WHITE_NAME        = "white";
+
+   // Texel cache files: RGBA 8888 premultiplied, as Bitmap stores it.
+   public static final String CACHE_PREFIX  = "cardatlas-";
+   public static final String CACHE_FORMAT  = "RGBA8888";
+   public static final int    CACHE_MAGIC   = 0x47464341;
+   public static final int    CACHE_VERSION = 1;
+
+   // Page texels or compressed page waiting for upload.
+   ByteBuffer[]         pageTexels;
+   ETC1Util.ETC1Texture compressedPage;
+
+   // Loading abandoned with a lost context.
+   boolean cancelled;
+
+   public CardAtlas(String[] imageFiles)
+   {
+      this.imageFiles = imageFiles;
+      pages           = new int[imageFiles.length];
+      rects           = new float[imageFiles.length * 4];
+      textureIDs      = new int[0];
+      state           = DECODING;
+      decoded         = new AtomicInteger();
+   }
+
+
+   // Decode images on the decoder threads, pack them and compose the
+   // pages. Runs off the GL thread; pages are then ready for upload.
+   public void prepare(final Context context, int maxSize, ExecutorService decoder, boolean etc1)
+   {
+      int i, n = imageFiles.length;
+
+      if (etc1 && prepareCompressed(context, maxSize))
+      {
+         ready();
+         return;
+      }
+
+      // Texels cached by an earlier load.
+      File cacheFile = cacheFile(context, maxSize);
+      if (readCache(cacheFile))
+      {
+         ready();
+         return;
+      }
+
+      // Decode images.
+      Bitmap[] bitmaps = new Bitmap[n];
+      int[]    widths  = new int[n];
+      int[]    heights = new int[n];
+      List<Future<Bitmap>> decodes = new ArrayList<Future<Bitmap>>(n);
+      for (i = 0; i < n; i++)
+      {
+         final String imageFile = imageFiles[i];
+         decodes.add(decoder.submit(new Callable<Bitmap>()
+                                    {
+                                       public Bitmap call()
+                                       {
+                                          Bitmap b = decode(imageFile, context);
+
+                                          decoded.incrementAndGet();
+                                          return(b);
+                                       }
+                                    }
+                                    ));
+      }
+
+      // An image that cannot be decoded is skipped: it is drawn white
+      // and the pages are not cached, so the next load tries it again.
+      boolean complete = true;
+      for (i = 0; i < n; i++)
+      {
+         try
+         {
+            bitmaps[i] = decodes.get(i).get();
+         }
+         catch (Exception e) {
+            Log.d("GoFish", "Cannot decode card texture file " + imageFiles[i] + ": " + e);
+         }
+         if (bitmaps[i] == null)
+         {
+            complete   = false;
+            bitmaps[i] = decode(null, context);
+         }
+         widths[i]  = bitmaps[i].getWidth() + GUTTER;
+         heights[i] = bitmaps[i].getHeight() + GUTTER;
+      }
+
+      // Size pages.
+      if (!layout(widths, heights, maxSize))
+      {
+         Log.d("GoFish", "Cannot pack card textures into atlas");
+         recycle(bitmaps);
+         state = FAILED;
+         return;
+      }
+
+      // Draw images into pages and copy out their texels.
+      ByteBuffer[] texels = new ByteBuffer[pageWidths.length];
+      for (int page = 0; page < texels.length; page++)
+      {
+         int    w        = pageWidths[page];
+         int    h        = pageHeights[page];
+         Bitmap composed = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+         Canvas canvas   = new Canvas(composed);
+         for (i = 0; i < n; i++)
+         {
+            if (pages[i] == page)
+            {
+               canvas.drawBitmap(bitmaps[i], (int)(rects[i * 4] * w), (int)(rects[i * 4 + 1] * h), null);
+            }
+         }
+         texels[page] = ByteBuffer.allocateDirect(w * h * 4).order(ByteOrder.nativeOrder());
+         composed.copyPixelsToBuffer(texels[page]);
+         texels[page].position(0);
+         composed.recycle();
+      }
+      recycle(bitmaps);
+
+      // Inset rectangles by half a texel so filtering stays inside images.
+      for (i = 0; i < n; i++)
+      {
+         float w = pageWidths[pages[i]];
+         float h = pageHeights[pages[i]];
+         float x = rects[i * 4] * w;
+         float y = rects[i * 4 + 1] * h;
+         rects[i * 4]     = (x + 0.5f) / w;
+         rects[i * 4 + 1] = (y + 0.5f) / h;
+         rects[i * 4 + 2] = (x + widths[i] - GUTTER - 0.5f) / w;
+         rects[i * 4 + 3] = (y + heights[i] - GUTTER - 0.5f) / h;
+      }
+      if (complete)
+      {
+         writeCache(cacheFile, texels);
+      }
+      pageTexels = texels;
+      ready();
+   }
+
+
+   // Hand prepared pages to the GL thread unless loading was cancelled.
+   private synchronized void ready()
+   {
+      if (cancelled)
+      {
+         pageTexels     = null;
+         compressedPage = null;
+         state          = FAILED;
+      }
+      else
+      {
+         state = UPLOADING;
+      }
+   }
+
+
+   // Texel cache file for this atlas.
+   File cacheFile(Context context, int maxSize)
+   {
+      long key = new File(context.getPackageCodePath()).lastModified();
+
+      key = (31 * key) + maxSize;
+      key = (31 * key) + CACHE_FORMAT.hashCode();
+      for (String imageFile : imageFiles)
+      {
+         key = (31 * key) + (imageFile != null ? imageFile.hashCode() : 0);
+      }
+      return(new File(context.getCacheDir(), CACHE_PREFIX + Long.toHexString(key)));
+   }
+
+
+   // Map a cache file: header, page sizes, image pages and rectangles,
+   // then the texels of each page.
+   boolean readCache(File file)
+   {
+      int n = imageFiles.length;
+
+      if (!file.isFile())
+      {
+         return(false);
+      }
+      try
+      {
+         RandomAccessFile input = new RandomAccessFile(file, "r");
+         ByteBuffer       map;
+         try
+         {
+            map = input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, input.length());
+         }
+         finally
+         {
+            input.close();
+         }
+         if ((map.getInt() != CACHE_MAGIC) || (map.getInt() != CACHE_VERSION) || (map.getInt() != n))
+         {
+            throw new IOException("stale header");
+         }
+         int pageCount = map.getInt();
+         pageWidths  = new int[pageCount];
+         pageHeights = new int[pageCount];
+         for (int page = 0; page < pageCount; page++)
+         {
+            pageWidths[page]  = map.getInt();
+            pageHeights[page] = map.getInt();
+         }
+         for (int i = 0; i < n; i++)
+         {
+            pages[i] = map.getInt();
+         }
+         for (int i = 0; i < n * 4; i++)
+         {
+            rects[i] = map.getFloat();
+         }
+         ByteBuffer[] texels = new ByteBuffer[pageCount];
+         for (int page = 0; page < pageCount; page++)
+         {
+            int size = pageWidths[page] * pageHeights[page] * 4;
+            map.limit(map.position() + size);
+            texels[page] = map.slice();
+            map.position(map.limit());
+            map.limit(map.capacity());
+         }
+         pageTexels = texels;
+      }
+      catch (Exception e)
+      {
+         Log.d("GoFish", "Cannot read card texture cache " + file + ": " + e);
+         file.delete();
+         return(false);
+      }
+      decoded.set(n);
+      return(true);
+   }
+
+
+   // Write a cache file through a temporary file, dropping stale ones.
+   void writeCache(File file, ByteBuffer[] texels)
+   {
+      int        n      = imageFiles.length;
+      ByteBuffer header = ByteBuffer.allocate((4 * 4) + (texels.length * 8) + (n * 4) + (n * 16));
+
+      header.putInt(CACHE_MAGIC).putInt(CACHE_VERSION).putInt(n).putInt(texels.length);
+      for (int page = 0; page < texels.length; page++)
+      {
+         header.putInt(pageWidths[page]).putInt(pageHeights[page]);
+      }
+      for (int i = 0; i < n; i++)
+      {
+         header.putInt(pages[i]);
+      }
+      for (int i = 0; i < n * 4; i++)
+      {
+         header.putFloat(rects[i]);
+      }
+      header.flip();
+      File temp = new File(file.getPath() + ".tmp");
+      try
+      {
+         FileOutputStream output = new FileOutputStream(temp);
+         try
+         {
+            FileChannel channel = output.getChannel();
+            channel.write(header);
+            for (ByteBuffer page : texels)
+            {
+               channel.write(page.duplicate());
+            }
+         }
+         finally
+         {
+            output.close();
+         }
+         if (!temp.renameTo(file))
+         {
+            throw new IOException("cannot rename " + temp);
+         }
+      }
+      catch (IOException e)
+      {
+         Log.d("GoFish", "Cannot write card texture cache " + file + ": " + e);
+         temp.delete();
+         return;
+      }
+      File[] files = file.getParentFile().listFiles();
+      for (int i = 0; (files != null) && (i < files.length); i++)
+      {
+         if (files[i].getName().startsWith(CACHE_PREFIX) && !files[i].equals(file))
+         {
+            files[i].delete();
+         }
+      }
+   }
+
+
+   // Read the compressed page and its placements, if they cover
+   // every image and the page fits the largest texture.
+   boolean prepareCompressed(Context context, int maxSize)
+   {
+      int                    n          = imageFiles.length;
+      HashMap<String, int[]> placements = new HashMap<String, int[]>();
+      int                    w, h;
+
+      try
+      {
+         BufferedReader reader =
+            new BufferedReader(new InputStreamReader(context.getAssets().open(COMPRESSED_LAYOUT)));
+         try
+         {
+            String[] size = reader.readLine().split(" ");
+            w = Integer.parseInt(size[0]);
+            h = Integer.parseInt(size[1]);
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+               String[] fields = line.split(" ");
+               int[]    rect   = new int[4];
+               for (int i = 0; i < 4; i++)
+               {
+                  rect[i] = Integer.parseInt(fields[i + 1]);
+               }
+               placements.put(fields[0], rect);
+            }
+         }
+         finally
+         {
+            reader.close();
+         }
+      }
+      catch (Exception e)
+      {
+         return(false);
+      }
+      if ((w > maxSize) || (h > maxSize))
+      {
+         return(false);
+      }
+      for (int i = 0; i < n; i++)
+      {
+         int[] rect = placements.get(imageFiles[i] != null ? imageFiles[i] : WHITE_NAME);
+         if (rect == null)
+         {
+            Log.d("GoFish", "Compressed card atlas has no image " + imageFiles[i]);
+            return(false);
+         }
+         pages[i]         = 0;
+         rects[i * 4]     = (rect[0] + 0.5f) / w;
+         rects[i * 4 + 1] = (rect[1] + 0.5f) / h;
+         rects[i * 4 + 2] = (rect[0] + rect[2] - 0.5f) / w;
+         rects[i * 4 + 3] = (rect[1] + rect[3] - 0.5f) / h;
+      }
+      try
+      {
+         InputStream is = context.getAssets().open(COMPRESSED_PAGE);
+         try
+         {
+            compressedPage = ETC1Util.createTexture(is);
+         }
+         finally
+         {
+            is.close();
+         }
+      }
+      catch (IOException e)
+      {
+         Log.d("GoFish", "Cannot read compressed card atlas " + COMPRESSED_PAGE);
+         return(false);
+      }
+      pageWidths  = new int[] { w };
+      pageHeights = new int[] { h };
+      decoded.set(n);
+      return(true);
+   }
+
+
+   // Upload the next page on the GL thread.
+   public void uploadPage(GL10 gl)
+   {
+      if (state != UPLOADING)
+      {
+         return;
+      }
+      if (compressedPage != null)
+      {
+         textureIDs = new int[1];
+         gl.glGenTextures(1, textureIDs, 0);
+         gl.glBindTexture(GL10.GL_TEXTURE_2D, textureIDs[0]);
+         gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_MIN_FILTER, GL10.GL_NEAREST);
+         gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_MAG_FILTER, GL10.GL_LINEAR);
+         gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_WRAP_S, GL10.GL_CLAMP_TO_EDGE);
+         gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_WRAP_T, GL10.GL_CLAMP_TO_EDGE);
+         ETC1Util.loadTexture(GL10.GL_TEXTURE_2D, 0, 0, GL10.GL_RGB, GL10.GL_UNSIGNED_SHORT_5_6_5,
+                              compressedPage);
+         compressedPage = null;
+         uploaded       = 1;
+         state          = LOADED;
+         return;
+      }
+      if (textureIDs.length == 0)
+      {
+         textureIDs = new int[pageTexels.length];
+         gl.glGenTextures(textureIDs.length, textureIDs, 0);
+      }
+      gl.glBindTexture(GL10.GL_TEXTURE_2D, textureIDs[uploaded]);
+      gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_MIN_FILTER, GL10.GL_NEAREST);
+      gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_MAG_FILTER, GL10.GL_LINEAR);
+      gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_WRAP_S, GL10.GL_CLAMP_TO_EDGE);
+      gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_WRAP_T, GL10.GL_CLAMP_TO_EDGE);
+      gl.glTexImage2D(GL10.GL_TEXTURE_2D, 0, GL10.GL_RGBA, pageWidths[uploaded], pageHeights[uploaded], 0,
+                      GL10.GL_RGBA, GL10.GL_UNSIGNED_BYTE, pageTexels[uploaded]);
+      pageTexels[uploaded] = null;
+      uploaded++;
+      if (uploaded == pageTexels.length)
+      {
+         pageTexels = null;
+         state       = LOADED;
+      }
+   }
+
+
+   public int getState()
+   {
+      return(state);
+   }
+
+
+   // Load progress percentage, decoding taking most of the time.
+   public int getProgress()
+   {
+      int percent = decoded.get() * 90 / imageFiles.length;
+
+      if ((state == UPLOADING) || (state == LOADED))
+      {
+         percent = 90 + (uploaded * 10 / Math.max(1, pageWidths.length));
+      }
+      return(Math.min(percent, 100));
+   }
+
+
+   // Abandon loading when the context is lost.
+   public synchronized void cancel()
+   {
+      cancelled = true;
+      if (state == UPLOADING)
+      {
+         pageTexels     = null;
+         compressedPage = null;
+         state          = FAILED;
+      }
+   }
+
+
+   // Choose page sizes and image positions, leaving image positions
+   // as page fractions in the rectangles. Uses the smallest single
+   // page the images fit, so a batch draws them all with one texture,
+   // and only spills onto a second page past the largest page size.
+   boolean layout(int[] widths, int[] heights, int maxSize)
+   {
+      int n = widths.length;
+
+      // Smallest single page.
+      for (int area = 1; area <= maxSize * maxSize; area *= 2)
+      {
+         int w = pageWidth(area);
+         int h = area / w;
+         if ((w <= maxSize) && (h <= maxSize) && (pack(widths, heights, 0, w, h, -1) == n))
+         {
+            pageWidths  = new int[] { w };
+            pageHeights = new int[] { h };
+            pack(widths, heights, 0, w, h, 0);
+            return(true);
+         }
+      }
+
+      // Largest page with the rest on the smallest second page.
+      int first = pack(widths, heights, 0, maxSize, maxSize, -1);
+      for (int area = 1; area <= maxSize * maxSize && first > 0; area *= 2)
+      {
+         int w = pageWidth(area);
+         int h = area / w;
+         if ((w <= maxSize) && (h <= maxSize) && (pack(widths, heights, first, w, h, -1) == n))
+         {
+            pageWidths  = new int[] { maxSize, w };
+            pageHeights = new int[] { maxSize, h };
+            pack(widths, heights, 0, maxSize, maxSize, 0);
+            pack(widths, heights, first, w, h, 1);
+            return(true);
+         }
+      }
+      return(false);
+   }
+
+
+   // Page width for a power-of-two area: square or twice as wide.
+   private static int pageWidth(int area)
+   {
+      int w = 1;
+
+      while (w * w < area)
+      {
+         w *= 2;
+      }
+      return(w);
+   }
+
+
+   // Pack images from start onto a page in shelves, returning the
+   // index of the first image that does not fit. Positions are
+   // stored when a page number is given.
+   int pack(int[] widths, int[] heights, int start, int pageWidth, int pageHeight, int page)
+   {
+      int x = 0, y = 0, shelf = 0;
+      int i;
+
+      for (i = start; i < widths.length; i++)
+      {
+         if (x + widths[i] > pageWidth)
+         {
+            x      = 0;
+            y     += shelf;
+            shelf  = 0;
+         }
+         if ((widths[i] > pageWidth) || (y + heights[i] > pageHeight))
+         {
+            break;
+         }
+         if (page >= 0)
+         {
+            pages[i]         = page;
+            rects[i * 4]     = (float)x / pageWidth;
+            rects[i * 4 + 1] = (float)y / pageHeight;
+         }
+         x    += widths[i];
+         shelf = Math.max(shelf, heights[i]);
+      }
+      return(i);
+   }
+
+
+   // Decode image asset, or make the white image.
+   private static Bitmap decode(String imageFile, Context context)
+   {
+      if (imageFile == null)
+      {
+         Bitmap white = Bitmap.createBitmap(WHITE_SIZE, WHITE_SIZE, Bitmap.Config.ARGB_8888);
+         white.eraseColor(0xffffffff);
+         return(white);
+      }
+      InputStream is = null;
+
+      try
+      {
+         is = context.getAssets().open(imageFile);
+      }
+      catch (IOException e) {}
+      if (is == null)
+      {
+         Log.d("GoFish", "Cannot open card texture file " + imageFile);
+         return(null);
+      }
+      Bitmap b = null;
+      try {
+         b = BitmapFactory.decodeStream(is);
+      }
+      finally {
+         try {
+            is.close();
+         }
+         catch (IOException e) {}
+      }
+      if (b == null)
+      {
+         Log.d("GoFish", "Cannot create card texture bitmap from image file " + imageFile);
+      }
+      return(b);
+   }
+
+
+   private static void recycle(Bitmap[] bitmaps)
+   {
+      for (Bitmap b : bitmaps)
+      {
+         if (b != null)
+         {
+            b.recycle();
+         }
+      }
+   }
+
+
+   // Texture of image page.
+   public int getTextureID(int image)
+   {
+      return(textureIDs[pages[image]]);
+   }
+
+
+   // Texture rectangle of image: left, top, right, bottom.
+   public float getLeft(int image)
+   {
+      return(rects[image * 4]);
+   }
+
+
+   public float getTop(int image)
+   {
+      return(rects[image * 4 + 1]);
+   }
+
+
+   public float getRight(int image)
+   {
+      return(rects[image * 4 + 2]);
+   }
+
+
+   public float getBottom(int image)
+   {
+      return(rects[image * 4 + 3]);
+   }
+
+
+   // Delete page textures.
+   public void shutdown(GL10 gl)
+   {
+      if (textureIDs.length > 0)
+      {
+         gl.glDeleteTextures(textureIDs.length, textureIDs, 0);
+         textureIDs = new int[0];
+      }
+   }
+}
@@ -0,0 +1,272 @@
+// Go Fish document cache.
+// Keeps text assets decoded, so later opens neither read nor decode
+// them again. Decoded text is held in memory for the process and in a
+// file of UTF-16 characters keyed by the asset and package, which an
+// app update replaces. From API 28 the text is also kept measured as
+// PrecomputedText for the views showing it, so reopening a document
+// does not measure it again.
+
+package com.dialectek.gofish;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.content.Context;
+import android.os.Build;
+import android.text.PrecomputedText;
+import android.util.Log;
+import android.widget.TextView;
+
+public class DocumentCache
+{
+   // Documents kept in memory.
+   public static final int MAX_DOCUMENTS = 4;
+
+   // Text cache files.
+   public static final String CACHE_PREFIX  = "document-";
+   public static final int    CACHE_MAGIC   = 0x47464454;
+   public static final int    CACHE_VERSION = 1;
+
+   // Decoded and measured text of recent documents, by asset.
+   static final LinkedHashMap<String, CharSequence> texts   = new Documents();
+   static final LinkedHashMap<String, CharSequence> layouts = new Documents();
+
+   static class Documents extends LinkedHashMap<String, CharSequence>
+   {
+      private static final long serialVersionUID = 1L;
+
+      Documents()
+      {
+         super(MAX_DOCUMENTS, 0.75f, true);
+      }
+
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, CharSequence> eldest)
+      {
+         return(size() > MAX_DOCUMENTS);
+      }
+   }
+
+   // Decoded text of an asset, read and cached if not yet cached.
+   public static synchronized CharSequence getText(Context context, String assetPath) throws IOException
+   {
+      CharSequence text = getCachedText(context, assetPath);
+
+      if (text == null)
+      {
+         Reader in = new InputStreamReader(context.getAssets().open(assetPath), "UTF-8");
+         try
+         {
+            StringBuilder builder = new StringBuilder();
+            char[]        buffer  = new char[8192];
+            int           n;
+            while ((n = in.read(buffer)) >= 0)
+            {
+               builder.append(buffer, 0, n);
+            }
+            text = builder.toString();
+         }
+         finally
+         {
+            in.close();
+         }
+         putText(context, assetPath, text.toString());
+      }
+      return(text);
+   }
+
+
+   // Decoded text of an asset from memory or its cache file, or null.
+   public static synchronized CharSequence getCachedText(Context context, String assetPath)
+   {
+      CharSequence text = texts.get(assetPath);
+
+      if (text == null)
+      {
+         text = readCache(cacheFile(context, assetPath));
+         if (text != null)
+         {
+            texts.put(assetPath, text);
+         }
+      }
+      return(text);
+   }
+
+
+   // Cache the decoded text of an asset.
+   public static synchronized void putText(Context context, String assetPath, String text)
+   {
+      texts.put(assetPath, text);
+      layouts.remove(assetPath);
+      writeCache(cacheFile(context, assetPath), text);
+   }
+
+
+   // Cached text of an asset measured for views with the given text
+   // metrics parameters, or null if the text is not cached. Without
+   // parameters, before API 28, the decoded text is returned.
+   public static synchronized CharSequence getLayout(Context context, String assetPath, Object params)
+   {
+      if (params == null)
+      {
+         return(getCachedText(context, assetPath));
+      }
+      CharSequence layout = layouts.get(assetPath);
+      if ((layout != null) && Precomputed.matches(layout, params))
+      {
+         return(layout);
+      }
+      CharSequence text = getCachedText(context, assetPath);
+      if (text == null)
+      {
+         return(null);
+      }
+      layout = Precomputed.create(text, params);
+      layouts.put(assetPath, layout);
+      return(layout);
+   }
+
+
+   // Text metrics parameters of a view, null before API 28. Call on
+   // the UI thread.
+   public static Object getTextMetricsParams(TextView view)
+   {
+      if (Build.VERSION.SDK_INT >= 28)
+      {
+         return(Precomputed.getParams(view));
+      }
+      return(null);
+   }
+
+
+   // PrecomputedText, only loaded from API 28.
+   static class Precomputed
+   {
+      static CharSequence create(CharSequence text, Object params)
+      {
+         return(PrecomputedText.create(text, (PrecomputedText.Params)params));
+      }
+
+
+      static boolean matches(CharSequence layout, Object params)
+      {
+         return((layout instanceof PrecomputedText) &&
+                ((PrecomputedText)layout).getParams().equals(params));
+      }
+
+
+      static Object getParams(TextView view)
+      {
+         return(view.getTextMetricsParams());
+      }
+   }
+
+
+   // Text cache file of an asset for this package.
+   static File cacheFile(Context context, String assetPath)
+   {
+      long key = new File(context.getPackageCodePath()).lastModified();
+
+      key = (31 * key) + CACHE_VERSION;
+      key = (31 * key) + assetPath.hashCode();
+      return(new File(context.getCacheDir(), cachePrefix(assetPath) + Long.toHexString(key)));
+   }
+
+
+   // Cache file prefix of an asset, shared by its stale files.
+   private static String cachePrefix(String assetPath)
+   {
+      return(CACHE_PREFIX + Integer.toHexString(assetPath.hashCode()) + "-");
+   }
+
+
+   // Map a cache file: header and length, then the characters.
+   static CharSequence readCache(File file)
+   {
+      if (!file.isFile())
+      {
+         return(null);
+      }
+      try
+      {
+         RandomAccessFile input = new RandomAccessFile(file, "r");
+         ByteBuffer       map;
+         try
+         {
+            map = input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, input.length());
+         }
+         finally
+         {
+            input.close();
+         }
+         if ((map.getInt() != CACHE_MAGIC) || (map.getInt() != CACHE_VERSION))
+         {
+            throw new IOException("stale header");
+         }
+         int length = map.getInt();
+         if (map.remaining() != length * 2)
+         {
+            throw new IOException("truncated");
+         }
+         return(map.slice().asCharBuffer().toString());
+      }
+      catch (Exception e)
+      {
+         Log.d("GoFish", "Cannot read document cache " + file + ": " + e);
+         file.delete();
+         return(null);
+      }
+   }
+
+
+   // Write a cache file through a temporary file, dropping stale ones.
+   static void writeCache(File file, String text)
+   {
+      ByteBuffer data = ByteBuffer.allocate((3 * 4) + (text.length() * 2));
+
+      data.putInt(CACHE_MAGIC).putInt(CACHE_VERSION).putInt(text.length());
+      data.asCharBuffer().put(text);
+      data.position(0);
+      File temp = new File(file.getPath() + ".tmp");
+      try
+      {
+         FileOutputStream output = new FileOutputStream(temp);
+         try
+         {
+            output.getChannel().write(data);
+         }
+         finally
+         {
+            output.close();
+         }
+         if (!temp.renameTo(file))
+         {
+            throw new IOException("cannot rename " + temp);
+         }
+      }
+      catch (IOException e)
+      {
+         Log.d("GoFish", "Cannot write document cache " + file + ": " + e);
+         temp.delete();
+         return;
+      }
+      String prefix = file.getName().substring(0, file.getName().lastIndexOf('-') + 1);
+      File[] files  = file.getParentFile().listFiles();
+      for (int i = 0; (files != null) && (i < files.length); i++)
+      {
+         if (files[i].getName().startsWith(prefix) && !files[i].equals(file))
+         {
+            files[i].delete();
+         }
+      }
+   }
+}
@@ -22,9 +22,6 @@ import android.content.DialogInterface;
 import android.content.SharedPreferences;
 
 import java.io.IOException;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.Closeable;
 
 /**
  * Displays an EULA ("End User License Agreement") that the user has to accept before
@@ -113,41 +110,20 @@ class Eula {
    }
 
 
+   /**
+    * Reads the EULA text through the document cache, so it is decoded only
+    * once per installed version.
+    *
+    * @param activity The Activity whose assets hold the EULA.
+    * @return The EULA text, empty if it cannot be read.
+    */
    private static CharSequence readEula(Activity activity)
    {
-      BufferedReader in = null;
-
       try {
-         in = new BufferedReader(new InputStreamReader(activity.getAssets().open(ASSET_EULA)));
-         String        line;
-         StringBuilder buffer = new StringBuilder();
-         while ((line = in.readLine()) != null) { buffer.append(line).append('\n'); }
-         return(buffer);
+         return(DocumentCache.getText(activity, ASSET_EULA));
       }
       catch (IOException e) {
          return("");
       }
-      finally {
-         closeStream(in);
-      }
-   }
-
-
-   /**
-    * Closes the specified stream.
-    *
-    * @param stream The stream to close.
-    */
-   private static void closeStream(Closeable stream)
-   {
-      if (stream != null)
-      {
-         try {
-            stream.close();
-         }
-         catch (IOException e) {
-            // Ignore
-         }
-      }
    }
 }
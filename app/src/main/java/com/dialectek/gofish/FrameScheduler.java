@@ -0,0 +1,94 @@
+// Go Fish frame scheduler.
+// Renders only on change: frame requests made before the next frame
+// starts coalesce into it, timers request a frame when they expire,
+// and the view renders continuously only while animations hold it.
+// With nothing pending the view draws no frames at all.
+
+package com.dialectek.gofish;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import android.opengl.GLSurfaceView;
+import android.os.SystemClock;
+
+public class FrameScheduler
+{
+   // View.
+   GLSurfaceView view;
+
+   // Frame requested and not yet started.
+   final AtomicBoolean pending;
+
+   // Active animations and the earliest timer, zero if none.
+   int  animations;
+   long timerAt;
+
+   // Timer expiry.
+   final Runnable timerRequest = new Runnable()
+   {
+      public void run()
+      {
+         synchronized (FrameScheduler.this)
+         {
+            timerAt = 0;
+         }
+         requestFrame();
+      }
+   };
+
+   public FrameScheduler(GLSurfaceView view)
+   {
+      this.view = view;
+      pending   = new AtomicBoolean();
+   }
+
+
+   // Request a frame, from any thread.
+   public void requestFrame()
+   {
+      if (pending.compareAndSet(false, true))
+      {
+         view.requestRender();
+      }
+   }
+
+
+   // Note a frame starting, on the GL thread.
+   public void frameStarted()
+   {
+      pending.set(false);
+   }
+
+
+   // Request a frame at an uptime. Only the earliest timer is kept;
+   // frames woken by a timer re-arm any later ones.
+   public synchronized void requestFrameAt(long uptimeMillis)
+   {
+      if ((timerAt != 0) && (timerAt <= uptimeMillis))
+      {
+         return;
+      }
+      timerAt = uptimeMillis;
+      view.removeCallbacks(timerRequest);
+      view.postDelayed(timerRequest, Math.max(0L, uptimeMillis - SystemClock.uptimeMillis()));
+   }
+
+
+   // Render continuously until each begun animation ends.
+   public synchronized void beginAnimation()
+   {
+      if (animations++ == 0)
+      {
+         view.setRenderMode(GLSurfaceView.RENDERMODE_CONTINUOUSLY);
+      }
+   }
+
+
+   public synchronized void endAnimation()
+   {
+      if (--animations == 0)
+      {
+         view.setRenderMode(GLSurfaceView.RENDERMODE_WHEN_DIRTY);
+      }
+   }
+}
@@ -0,0 +1,112 @@
+// Go Fish frame statistics.
+// Records the render time, draw calls, texture binds and vertices of
+// recent frames, summarizes them with time percentiles for the
+// on-screen display, and exports them as CSV.
+
+package com.dialectek.gofish;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Locale;
+
+public class FrameStats
+{
+   // Frames kept.
+   public static final int FRAMES = 600;
+
+   // Frames between summary updates.
+   public static final int SUMMARY_FRAMES = 30;
+
+   // Recent frames, as a ring.
+   final long[] times        = new long[FRAMES];
+   final int[]  drawCalls    = new int[FRAMES];
+   final int[]  textureBinds = new int[FRAMES];
+   final int[]  vertices     = new int[FRAMES];
+   long         frames;
+
+   // Current frame start.
+   long frameStart;
+
+   // Summary and sort space.
+   String       summary = "";
+   final long[] sorted  = new long[FRAMES];
+
+   // Begin a frame, clearing the sprite batch counts.
+   public void beginFrame(SpriteBatch batch)
+   {
+      batch.drawCalls    = 0;
+      batch.textureBinds = 0;
+      batch.vertexCount  = 0;
+      frameStart         = System.nanoTime();
+   }
+
+
+   // End the frame, taking the sprite batch counts. All drawing goes
+   // through the batch, so its counts are the frame's.
+   public void endFrame(SpriteBatch batch)
+   {
+      int i = (int)(frames % FRAMES);
+
+      times[i]        = System.nanoTime() - frameStart;
+      drawCalls[i]    = batch.drawCalls;
+      textureBinds[i] = batch.textureBinds;
+      vertices[i]     = batch.vertexCount;
+      frames++;
+      if ((frames % SUMMARY_FRAMES) == 1)
+      {
+         summarize();
+      }
+   }
+
+
+   // Summary of recent frames: time percentiles in milliseconds and
+   // the last frame's counts.
+   public String getSummary()
+   {
+      return(summary);
+   }
+
+
+   void summarize()
+   {
+      int n    = (int)Math.min(frames, FRAMES);
+      int last = (int)((frames - 1) % FRAMES);
+
+      System.arraycopy(times, 0, sorted, 0, n);
+      Arrays.sort(sorted, 0, n);
+      summary = String.format(Locale.US, "ms %.1f/%.1f/%.1f dc %d tb %d v %d",
+                              percentile(n, 50), percentile(n, 90), percentile(n, 99),
+                              drawCalls[last], textureBinds[last], vertices[last]);
+   }
+
+
+   private float percentile(int n, int p)
+   {
+      return(sorted[Math.min(n - 1, (n * p) / 100)] / 1.0e6f);
+   }
+
+
+   // Export recent frames, oldest first.
+   public void export(File file) throws IOException
+   {
+      int         n   = (int)Math.min(frames, FRAMES);
+      PrintWriter out = new PrintWriter(new FileWriter(file));
+
+      try
+      {
+         out.println("frame,nanos,draw_calls,texture_binds,vertices");
+         for (long f = frames - n; f < frames; f++)
+         {
+            int i = (int)(f % FRAMES);
+            out.println(f + "," + times[i] + "," + drawCalls[i] + "," + textureBinds[i] + "," + vertices[i]);
+         }
+      }
+      finally
+      {
+         out.close();
+      }
+   }
+}
@@ -0,0 +1,224 @@
+// Go Fish GLES 2.0 sprite batch.
+// Draws the batch with one textured quad shader: each vertex carries
+// its pixel position, texture coordinate and tint, the vertex shader
+// maps pixels to clip space and the fragment shader multiplies the
+// texel by the tint, so dimmed frames need no color state changes.
+// Distance field glyphs draw with a second fragment shader that
+// smooths the glyph edge over about a pixel at any scale.
+
+package com.dialectek.gofish;
+
+import javax.microedition.khronos.opengles.GL10;
+
+import android.opengl.GLES20;
+import android.util.Log;
+
+public class Gles2SpriteBatch extends SpriteBatch
+{
+   static final String VERTEX_SHADER =
+      "uniform vec4 u_transform;\n" +
+      "attribute vec2 a_position;\n" +
+      "attribute vec2 a_texCoord;\n" +
+      "attribute vec4 a_tint;\n" +
+      "varying vec2 v_texCoord;\n" +
+      "varying vec4 v_tint;\n" +
+      "void main()\n" +
+      "{\n" +
+      "   v_texCoord  = a_texCoord;\n" +
+      "   v_tint      = a_tint;\n" +
+      "   gl_Position = vec4(a_position * u_transform.xy + u_transform.zw, 0.0, 1.0);\n" +
+      "}\n";
+
+   static final String FRAGMENT_SHADER =
+      "precision mediump float;\n" +
+      "uniform sampler2D u_texture;\n" +
+      "varying vec2 v_texCoord;\n" +
+      "varying vec4 v_tint;\n" +
+      "void main()\n" +
+      "{\n" +
+      "   gl_FragColor = texture2D(u_texture, v_texCoord) * v_tint;\n" +
+      "}\n";
+
+   static final String DISTANCE_FIELD_SHADER =
+      "precision mediump float;\n" +
+      "uniform sampler2D u_texture;\n" +
+      "uniform float u_smoothing;\n" +
+      "varying vec2 v_texCoord;\n" +
+      "varying vec4 v_tint;\n" +
+      "void main()\n" +
+      "{\n" +
+      "   float distance = texture2D(u_texture, v_texCoord).a;\n" +
+      "   float coverage = smoothstep(0.5 - u_smoothing, 0.5 + u_smoothing, distance);\n" +
+      "   gl_FragColor   = vec4(v_tint.rgb, v_tint.a * coverage);\n" +
+      "}\n";
+
+   // Vertex attribute locations, bound alike in both programs.
+   static final int POSITION_LOCATION  = 0;
+   static final int TEX_COORD_LOCATION = 1;
+   static final int TINT_LOCATION      = 2;
+
+   // Programs and locations.
+   int program, distanceFieldProgram;
+   int transformLocation, textureLocation;
+   int distanceTransformLocation, distanceTextureLocation, smoothingLocation;
+   int positionLocation, texCoordLocation, tintLocation;
+
+   // Compile the shaders and create buffers for a new context.
+   @Override
+   public void createBuffers(GL10 gl)
+   {
+      program              = createProgram(FRAGMENT_SHADER);
+      distanceFieldProgram = createProgram(DISTANCE_FIELD_SHADER);
+      if (distanceFieldProgram == 0)
+      {
+         distanceFieldProgram = program;
+      }
+      transformLocation         = GLES20.glGetUniformLocation(program, "u_transform");
+      textureLocation           = GLES20.glGetUniformLocation(program, "u_texture");
+      distanceTransformLocation = GLES20.glGetUniformLocation(distanceFieldProgram, "u_transform");
+      distanceTextureLocation   = GLES20.glGetUniformLocation(distanceFieldProgram, "u_texture");
+      smoothingLocation         = GLES20.glGetUniformLocation(distanceFieldProgram, "u_smoothing");
+      positionLocation = POSITION_LOCATION;
+      texCoordLocation = TEX_COORD_LOCATION;
+      tintLocation     = TINT_LOCATION;
+      int[] ids = new int[2];
+      GLES20.glGenBuffers(2, ids, 0);
+      vertexBufferID = ids[0];
+      indexBufferID  = ids[1];
+      GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, indexBufferID);
+      GLES20.glBufferData(GLES20.GL_ELEMENT_ARRAY_BUFFER, indices.capacity() * 2, indices, GLES20.GL_STATIC_DRAW);
+      GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+      useBufferObjects = true;
+   }
+
+
+   private static int createProgram(String fragmentSource)
+   {
+      int vertexShader   = compile(GLES20.GL_VERTEX_SHADER, VERTEX_SHADER);
+      int fragmentShader = compile(GLES20.GL_FRAGMENT_SHADER, fragmentSource);
+
+      if ((vertexShader == 0) || (fragmentShader == 0))
+      {
+         return(0);
+      }
+      int program = GLES20.glCreateProgram();
+      GLES20.glAttachShader(program, vertexShader);
+      GLES20.glAttachShader(program, fragmentShader);
+      GLES20.glBindAttribLocation(program, POSITION_LOCATION, "a_position");
+      GLES20.glBindAttribLocation(program, TEX_COORD_LOCATION, "a_texCoord");
+      GLES20.glBindAttribLocation(program, TINT_LOCATION, "a_tint");
+      GLES20.glLinkProgram(program);
+      GLES20.glDeleteShader(vertexShader);
+      GLES20.glDeleteShader(fragmentShader);
+      int[] status = new int[1];
+      GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, status, 0);
+      if (status[0] == 0)
+      {
+         Log.d("GoFish", "Cannot link sprite program: " + GLES20.glGetProgramInfoLog(program));
+         GLES20.glDeleteProgram(program);
+         return(0);
+      }
+      return(program);
+   }
+
+
+   private static int compile(int type, String source)
+   {
+      int shader = GLES20.glCreateShader(type);
+
+      GLES20.glShaderSource(shader, source);
+      GLES20.glCompileShader(shader);
+      int[] status = new int[1];
+      GLES20.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, status, 0);
+      if (status[0] == 0)
+      {
+         Log.d("GoFish", "Cannot compile sprite shader: " + GLES20.glGetShaderInfoLog(shader));
+         GLES20.glDeleteShader(shader);
+         return(0);
+      }
+      return(shader);
+   }
+
+
+   @Override
+   public void begin(GL10 gl)
+   {
+      GLES20.glDisable(GLES20.GL_CULL_FACE);
+      useProgram(program, transformLocation, textureLocation);
+      GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+      GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vertexBufferID);
+      GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, indexBufferID);
+      GLES20.glEnableVertexAttribArray(positionLocation);
+      GLES20.glEnableVertexAttribArray(texCoordLocation);
+      GLES20.glEnableVertexAttribArray(tintLocation);
+      GLES20.glVertexAttribPointer(positionLocation, 2, GLES20.GL_FLOAT, false, VERTEX_BYTES, 0);
+      GLES20.glVertexAttribPointer(texCoordLocation, 2, GLES20.GL_FLOAT, false, VERTEX_BYTES, 2 * 4);
+      GLES20.glVertexAttribPointer(tintLocation, 4, GLES20.GL_FLOAT, false, VERTEX_BYTES, 4 * 4);
+      textureID      = 0;
+      boundTextureID = -1;
+      quadCount      = 0;
+      vertices.clear();
+      setColor(1.0f, 1.0f, 1.0f, 1.0f);
+   }
+
+
+   // Use a program, setting its pixel transform and texture unit.
+   private void useProgram(int program, int transformLocation, int textureLocation)
+   {
+      GLES20.glUseProgram(program);
+      GLES20.glUniform4f(transformLocation, 2.0f / viewWidth, 2.0f / viewHeight, -1.0f, -1.0f);
+      GLES20.glUniform1i(textureLocation, 0);
+   }
+
+
+   @Override
+   public void setDistanceField(GL10 gl, boolean distanceField, float smoothing)
+   {
+      flush(gl);
+      if (distanceField)
+      {
+         useProgram(distanceFieldProgram, distanceTransformLocation, distanceTextureLocation);
+         GLES20.glUniform1f(smoothingLocation, smoothing);
+      }
+      else
+      {
+         useProgram(program, transformLocation, textureLocation);
+      }
+   }
+
+
+   @Override
+   public void end(GL10 gl)
+   {
+      flush(gl);
+      GLES20.glDisableVertexAttribArray(positionLocation);
+      GLES20.glDisableVertexAttribArray(texCoordLocation);
+      GLES20.glDisableVertexAttribArray(tintLocation);
+      GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+      GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+      GLES20.glUseProgram(0);
+   }
+
+
+   @Override
+   public void flush(GL10 gl)
+   {
+      if (quadCount == 0)
+      {
+         return;
+      }
+      if (textureID != boundTextureID)
+      {
+         GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureID);
+         boundTextureID = textureID;
+         textureBinds++;
+      }
+      vertices.position(0);
+      GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, quadCount * QUAD_FLOATS * 4, vertices, GLES20.GL_DYNAMIC_DRAW);
+      GLES20.glDrawElements(GLES20.GL_TRIANGLES, quadCount * 6, GLES20.GL_UNSIGNED_SHORT, 0);
+      vertices.clear();
+      vertexCount += quadCount * 4;
+      quadCount    = 0;
+      drawCalls++;
+   }
+}
@@ -0,0 +1,654 @@
+// Go Fish glyph atlas.
+// Holds characters as signed distance fields in alpha texture pages,
+// so text of any size draws crisply from the same texels: each texel
+// stores the distance to the glyph edge, one half on the edge, and the
+// sprite batch cuts or smooths the glyph there. Glyphs are rasterized
+// at twice the atlas size, transformed and averaged down, and packed
+// onto shelves of fixed size pages. The printable ASCII characters are
+// made up front and cached in a file keyed by the font rendering, so
+// later launches map the file instead of rasterizing. Other characters
+// are added when text first uses them, a new page opening when the
+// last one is full. A lost context re-uploads the kept texels.
+
+package com.dialectek.gofish;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import javax.microedition.khronos.opengles.GL10;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.util.Log;
+
+public class GlyphAtlas
+{
+   // Characters made up front.
+   public static final int FIRST_CHAR = 32;
+   public static final int NUM_CHARS  = 95;
+
+   // Font size of the fields, the distance in pixels they span on each
+   // side of the edge, and the rasterizing scale.
+   public static final int BASE_SIZE  = 32;
+   public static final int SPREAD     = 4;
+   public static final int OVERSAMPLE = 2;
+
+   // Page width and height.
+   public static final int PAGE_SIZE = 512;
+
+   // Field cache files.
+   public static final String CACHE_PREFIX  = "glyphatlas-";
+   public static final int    CACHE_MAGIC   = 0x47464741;
+   public static final int    CACHE_VERSION = 2;
+
+   // Glyph: page and cell in page pixels, cell offset from the pen and
+   // advance. Blank glyphs, such as space, have no page.
+   static class Glyph
+   {
+      int   page;
+      int   x, y, width, height;
+      int   left;
+      float advance;
+   }
+
+   // Page: texture, zero until uploaded, and texels, kept to upload
+   // again on a new context. Cells fill the open shelf left to right.
+   // Rows changed since the last upload are sent again.
+   static class Page
+   {
+      int        textureID;
+      ByteBuffer texels;
+      int        shelfX, shelfY, shelfHeight;
+      int        usedArea;
+      int        dirtyTop, dirtyBottom;
+   }
+
+   // Glyphs by code point, and pages.
+   HashMap<Integer, Glyph> glyphs;
+   ArrayList<Page>         pages;
+
+   // Font metrics in atlas pixels.
+   int ascent, descent;
+
+   // Rasterizing state, made when first needed.
+   Paint     paint;
+   Rect      bounds;
+   Bitmap    bitmap;
+   Canvas    canvas;
+   int[]     pixels;
+   boolean[] inside;
+   float[]   toEdge, toInner;
+   int[]     dx, dy;
+   byte[]    row;
+
+   public GlyphAtlas()
+   {
+      glyphs = new HashMap<Integer, Glyph>();
+      pages  = new ArrayList<Page>();
+   }
+
+
+   // Map the cached fields, or make and cache them.
+   public void prepare(Context context)
+   {
+      File cacheFile = cacheFile(context);
+
+      if (!readCache(cacheFile))
+      {
+         glyphs.clear();
+         pages.clear();
+         for (int c = FIRST_CHAR; c < FIRST_CHAR + NUM_CHARS; c++)
+         {
+            addGlyph(c);
+         }
+         writeCache(cacheFile);
+      }
+      Log.d("GoFish", "Glyph atlas: " + getStats());
+   }
+
+
+   // Set up rasterizing with the font at the atlas size.
+   void makePaint()
+   {
+      paint = new Paint();
+      paint.setTypeface(Typeface.MONOSPACE);
+      paint.setTextSize(BASE_SIZE);
+      paint.setAntiAlias(true);
+      ascent  = (int)Math.ceil(-paint.ascent());
+      descent = (int)Math.ceil(paint.descent());
+      paint.setTextSize(BASE_SIZE * OVERSAMPLE);
+      paint.setARGB(255, 255, 255, 255);
+      bounds = new Rect();
+   }
+
+
+   // Rasterize a character large, transform it and pack its averaged
+   // field into a page.
+   Glyph addGlyph(int codePoint)
+   {
+      if (paint == null)
+      {
+         makePaint();
+      }
+      String text  = new String(Character.toChars(codePoint));
+      Glyph  glyph = new Glyph();
+      glyph.page    = -1;
+      glyph.advance = paint.measureText(text) / OVERSAMPLE;
+      glyphs.put(codePoint, glyph);
+      paint.getTextBounds(text, 0, text.length(), bounds);
+      if (bounds.isEmpty())
+      {
+         return(glyph);
+      }
+      int left  = Math.min(0, (int)Math.floor((float)bounds.left / OVERSAMPLE));
+      int right = Math.max((int)Math.ceil(glyph.advance), (int)Math.ceil((float)bounds.right / OVERSAMPLE));
+      glyph.left   = left - SPREAD;
+      glyph.width  = right - left + (SPREAD * 2);
+      glyph.height = ascent + descent + (SPREAD * 2);
+      if (glyph.width > PAGE_SIZE)
+      {
+         Log.d("GoFish", "Glyph too wide for atlas: " + text);
+         return(glyph);
+      }
+
+      // Rasterize into the scratch bitmap, grown to the widest glyph.
+      int w = glyph.width * OVERSAMPLE;
+      int h = glyph.height * OVERSAMPLE;
+      if ((bitmap == null) || (bitmap.getWidth() < w))
+      {
+         if (bitmap != null)
+         {
+            bitmap.recycle();
+         }
+         bitmap  = Bitmap.createBitmap(w, h, Bitmap.Config.ALPHA_8);
+         canvas  = new Canvas(bitmap);
+         pixels  = new int[w * h];
+         inside  = new boolean[w * h];
+         toEdge  = new float[w * h];
+         toInner = new float[w * h];
+         dx      = new int[w * h];
+         dy      = new int[w * h];
+         row     = new byte[w];
+      }
+      bitmap.eraseColor(0);
+      canvas.drawText(text, (SPREAD - left) * OVERSAMPLE, (SPREAD + ascent) * OVERSAMPLE, paint);
+      bitmap.getPixels(pixels, 0, w, 0, 0, w, h);
+      for (int i = 0; i < w * h; i++)
+      {
+         inside[i] = (pixels[i] >>> 24) >= 128;
+      }
+      distances(inside, false, w, h, dx, dy, toEdge);
+      distances(inside, true, w, h, dx, dy, toInner);
+
+      // Average the field down into the glyph's cell.
+      Page       page = pack(glyph);
+      ByteBuffer dst  = page.texels.duplicate();
+      for (int y = 0; y < glyph.height; y++)
+      {
+         for (int x = 0; x < glyph.width; x++)
+         {
+            float d = 0.0f;
+            for (int sy = 0; sy < OVERSAMPLE; sy++)
+            {
+               for (int sx = 0; sx < OVERSAMPLE; sx++)
+               {
+                  int i = (((y * OVERSAMPLE) + sy) * w) + (x * OVERSAMPLE) + sx;
+                  d += inside[i] ? (toEdge[i] - 0.5f) : (0.5f - toInner[i]);
+               }
+            }
+            d /= OVERSAMPLE * OVERSAMPLE * OVERSAMPLE;
+            int value = Math.round(127.5f + (d * 127.5f / SPREAD));
+            row[x] = (byte)Math.max(0, Math.min(255, value));
+         }
+         dst.position(((glyph.y + y) * PAGE_SIZE) + glyph.x);
+         dst.put(row, 0, glyph.width);
+      }
+      return(glyph);
+   }
+
+
+   // Place a glyph's cell on the open shelf of the last page, on a new
+   // shelf below it, or on a new page, and return the page with its
+   // texels writable.
+   Page pack(Glyph glyph)
+   {
+      Page page = pages.isEmpty() ? null : pages.get(pages.size() - 1);
+
+      if ((page != null) && (page.shelfX + glyph.width > PAGE_SIZE))
+      {
+         page.shelfY     += page.shelfHeight;
+         page.shelfX      = 0;
+         page.shelfHeight = 0;
+      }
+      if ((page == null) || (page.shelfY + glyph.height > PAGE_SIZE))
+      {
+         page          = new Page();
+         page.texels   = ByteBuffer.allocateDirect(PAGE_SIZE * PAGE_SIZE);
+         page.dirtyTop = PAGE_SIZE;
+         pages.add(page);
+         if (pages.size() > 1)
+         {
+            Log.d("GoFish", "Glyph atlas grown: " + getStats());
+         }
+      }
+      else if (page.texels.isReadOnly())
+      {
+         // Copy texels mapped from the cache before changing them.
+         ByteBuffer texels = ByteBuffer.allocateDirect(PAGE_SIZE * PAGE_SIZE);
+         texels.put(page.texels.duplicate());
+         texels.position(0);
+         page.texels = texels;
+      }
+      glyph.page        = pages.size() - 1;
+      glyph.x           = page.shelfX;
+      glyph.y           = page.shelfY;
+      page.shelfX      += glyph.width;
+      page.shelfHeight  = Math.max(page.shelfHeight, glyph.height);
+      page.usedArea    += glyph.width * glyph.height;
+      page.dirtyTop     = Math.min(page.dirtyTop, glyph.y);
+      page.dirtyBottom  = Math.max(page.dirtyBottom, glyph.y + glyph.height);
+      return(page);
+   }
+
+
+   // Distance from each pixel to the nearest pixel whose inside flag
+   // is the target, propagating offsets to the nearest such pixel in
+   // a forward and a backward pass over the 8 neighbors.
+   static void distances(boolean[] inside, boolean target, int w, int h,
+                         int[] dx, int[] dy, float[] out)
+   {
+      int far = w + h;
+
+      for (int i = 0; i < w * h; i++)
+      {
+         dx[i] = dy[i] = (inside[i] == target) ? 0 : far;
+      }
+      for (int y = 0; y < h; y++)
+      {
+         for (int x = 0; x < w; x++)
+         {
+            nearer(dx, dy, w, h, x, y, -1, 0);
+            nearer(dx, dy, w, h, x, y, 0, -1);
+            nearer(dx, dy, w, h, x, y, -1, -1);
+            nearer(dx, dy, w, h, x, y, 1, -1);
+         }
+         for (int x = w - 1; x >= 0; x--)
+         {
+            nearer(dx, dy, w, h, x, y, 1, 0);
+         }
+      }
+      for (int y = h - 1; y >= 0; y--)
+      {
+         for (int x = w - 1; x >= 0; x--)
+         {
+            nearer(dx, dy, w, h, x, y, 1, 0);
+            nearer(dx, dy, w, h, x, y, 0, 1);
+            nearer(dx, dy, w, h, x, y, -1, 1);
+            nearer(dx, dy, w, h, x, y, 1, 1);
+         }
+         for (int x = 0; x < w; x++)
+         {
+            nearer(dx, dy, w, h, x, y, -1, 0);
+         }
+      }
+      for (int i = 0; i < w * h; i++)
+      {
+         out[i] = (float)Math.sqrt((dx[i] * dx[i]) + (dy[i] * dy[i]));
+      }
+   }
+
+
+   // Take the offset to a neighbor's nearest pixel when it is nearer.
+   private static void nearer(int[] dx, int[] dy, int w, int h, int x, int y, int ox, int oy)
+   {
+      int nx = x + ox;
+      int ny = y + oy;
+
+      if ((nx < 0) || (nx >= w) || (ny < 0) || (ny >= h))
+      {
+         return;
+      }
+      int i  = (y * w) + x;
+      int n  = (ny * w) + nx;
+      int ax = dx[n] + ox;
+      int ay = dy[n] + oy;
+      if ((ax * ax) + (ay * ay) < (dx[i] * dx[i]) + (dy[i] * dy[i]))
+      {
+         dx[i] = ax;
+         dy[i] = ay;
+      }
+   }
+
+
+   // Field cache file for the system font rendering.
+   File cacheFile(Context context)
+   {
+      long key = CACHE_VERSION;
+
+      key = (31 * key) + BASE_SIZE;
+      key = (31 * key) + SPREAD;
+      key = (31 * key) + OVERSAMPLE;
+      key = (31 * key) + PAGE_SIZE;
+      key = (31 * key) + String.valueOf(Build.FINGERPRINT).hashCode();
+      return(new File(context.getCacheDir(), CACHE_PREFIX + Long.toHexString(key)));
+   }
+
+
+   // Map a cache file: header and metrics, glyphs, page shelves, then
+   // page texels.
+   boolean readCache(File file)
+   {
+      if (!file.isFile())
+      {
+         return(false);
+      }
+      try
+      {
+         RandomAccessFile input = new RandomAccessFile(file, "r");
+         ByteBuffer       map;
+         try
+         {
+            map = input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, input.length());
+         }
+         finally
+         {
+            input.close();
+         }
+         if ((map.getInt() != CACHE_MAGIC) || (map.getInt() != CACHE_VERSION) || (map.getInt() != PAGE_SIZE))
+         {
+            throw new IOException("stale header");
+         }
+         ascent  = map.getInt();
+         descent = map.getInt();
+         int glyphCount = map.getInt();
+         int pageCount  = map.getInt();
+         for (int i = 0; i < glyphCount; i++)
+         {
+            Glyph glyph = new Glyph();
+            int   c     = map.getInt();
+            glyph.page    = map.getInt();
+            glyph.x       = map.getInt();
+            glyph.y       = map.getInt();
+            glyph.width   = map.getInt();
+            glyph.height  = map.getInt();
+            glyph.left    = map.getInt();
+            glyph.advance = map.getFloat();
+            glyphs.put(c, glyph);
+         }
+         for (int i = 0; i < pageCount; i++)
+         {
+            Page page = new Page();
+            page.shelfX      = map.getInt();
+            page.shelfY      = map.getInt();
+            page.shelfHeight = map.getInt();
+            page.usedArea    = map.getInt();
+            page.dirtyTop    = PAGE_SIZE;
+            pages.add(page);
+         }
+         for (Page page : pages)
+         {
+            map.limit(map.position() + (PAGE_SIZE * PAGE_SIZE));
+            page.texels = map.slice();
+            map.position(map.limit());
+            map.limit(map.capacity());
+         }
+      }
+      catch (Exception e)
+      {
+         Log.d("GoFish", "Cannot read glyph cache " + file + ": " + e);
+         glyphs.clear();
+         pages.clear();
+         file.delete();
+         return(false);
+      }
+      return(true);
+   }
+
+
+   // Write a cache file through a temporary file, dropping stale ones.
+   void writeCache(File file)
+   {
+      ByteBuffer header = ByteBuffer.allocate((7 * 4) + (glyphs.size() * 8 * 4) + (pages.size() * 4 * 4));
+
+      header.putInt(CACHE_MAGIC).putInt(CACHE_VERSION).putInt(PAGE_SIZE);
+      header.putInt(ascent).putInt(descent).putInt(glyphs.size()).putInt(pages.size());
+      for (Map.Entry<Integer, Glyph> entry : glyphs.entrySet())
+      {
+         Glyph glyph = entry.getValue();
+         header.putInt(entry.getKey()).putInt(glyph.page);
+         header.putInt(glyph.x).putInt(glyph.y).putInt(glyph.width).putInt(glyph.height);
+         header.putInt(glyph.left).putFloat(glyph.advance);
+      }
+      for (Page page : pages)
+      {
+         header.putInt(page.shelfX).putInt(page.shelfY).putInt(page.shelfHeight).putInt(page.usedArea);
+      }
+      header.flip();
+      File temp = new File(file.getPath() + ".tmp");
+      try
+      {
+         FileOutputStream output = new FileOutputStream(temp);
+         try
+         {
+            FileChannel channel = output.getChannel();
+            channel.write(header);
+            for (Page page : pages)
+            {
+               ByteBuffer texels = page.texels.duplicate();
+               texels.position(0);
+               channel.write(texels);
+            }
+         }
+         finally
+         {
+            output.close();
+         }
+         if (!temp.renameTo(file))
+         {
+            throw new IOException("cannot rename " + temp);
+         }
+      }
+      catch (IOException e)
+      {
+         Log.d("GoFish", "Cannot write glyph cache " + file + ": " + e);
+         temp.delete();
+         return;
+      }
+      File[] files = file.getParentFile().listFiles();
+      for (int i = 0; (files != null) && (i < files.length); i++)
+      {
+         if (files[i].getName().startsWith(CACHE_PREFIX) && !files[i].equals(file))
+         {
+            files[i].delete();
+         }
+      }
+   }
+
+
+   // Upload new pages and the changed rows of others on the GL thread.
+   // Filtering is linear so the distance is interpolated between texels.
+   public void upload(GL10 gl)
+   {
+      gl.glPixelStorei(GL10.GL_UNPACK_ALIGNMENT, 1);
+      for (Page page : pages)
+      {
+         if (page.textureID == 0)
+         {
+            int[] ids = new int[1];
+            gl.glGenTextures(1, ids, 0);
+            page.textureID = ids[0];
+            gl.glBindTexture(GL10.GL_TEXTURE_2D, page.textureID);
+            gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_MIN_FILTER, GL10.GL_LINEAR);
+            gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_MAG_FILTER, GL10.GL_LINEAR);
+            gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_WRAP_S, GL10.GL_CLAMP_TO_EDGE);
+            gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_WRAP_T, GL10.GL_CLAMP_TO_EDGE);
+            ByteBuffer texels = page.texels.duplicate();
+            texels.position(0);
+            gl.glTexImage2D(GL10.GL_TEXTURE_2D, 0, GL10.GL_ALPHA, PAGE_SIZE, PAGE_SIZE, 0,
+                            GL10.GL_ALPHA, GL10.GL_UNSIGNED_BYTE, texels);
+         }
+         else if (page.dirtyTop < page.dirtyBottom)
+         {
+            ByteBuffer rows = page.texels.duplicate();
+            rows.position(page.dirtyTop * PAGE_SIZE);
+            gl.glBindTexture(GL10.GL_TEXTURE_2D, page.textureID);
+            gl.glTexSubImage2D(GL10.GL_TEXTURE_2D, 0, 0, page.dirtyTop, PAGE_SIZE,
+                               page.dirtyBottom - page.dirtyTop,
+                               GL10.GL_ALPHA, GL10.GL_UNSIGNED_BYTE, rows);
+         }
+         page.dirtyTop    = PAGE_SIZE;
+         page.dirtyBottom = 0;
+      }
+      gl.glPixelStorei(GL10.GL_UNPACK_ALIGNMENT, 4);
+   }
+
+
+   // Whether every page has a texture on the current context.
+   public boolean isUploaded()
+   {
+      for (Page page : pages)
+      {
+         if (page.textureID == 0)
+         {
+            return(false);
+         }
+      }
+      return(!pages.isEmpty());
+   }
+
+
+   // Forget textures gone with a lost context.
+   public void loseTextures()
+   {
+      for (Page page : pages)
+      {
+         page.textureID = 0;
+      }
+   }
+
+
+   // Lay out text as glyph quads at the atlas size, with the bottom of
+   // its line at zero. Characters not yet held are added and uploaded,
+   // which binds their page textures. Control characters are skipped.
+   public TextRun makeRun(GL10 gl, String text)
+   {
+      boolean added = false;
+      int     c;
+
+      for (int i = 0; i < text.length(); i += Character.charCount(c))
+      {
+         c = text.codePointAt(i);
+         if ((c >= FIRST_CHAR) && !glyphs.containsKey(c))
+         {
+            addGlyph(c);
+            added = true;
+         }
+      }
+      if (added)
+      {
+         upload(gl);
+      }
+      TextRun run = new TextRun(text.length());
+      float   x   = 0.0f;
+      for (int i = 0; i < text.length(); i += Character.charCount(c))
+      {
+         c = text.codePointAt(i);
+         if (c < FIRST_CHAR)
+         {
+            continue;
+         }
+         Glyph glyph = glyphs.get(c);
+         if (glyph.page >= 0)
+         {
+            float left = (float)glyph.x / PAGE_SIZE;
+            float top  = (float)glyph.y / PAGE_SIZE;
+            run.add(pages.get(glyph.page).textureID, x + glyph.left, -SPREAD,
+                    glyph.width, glyph.height, left, top,
+                    left + ((float)glyph.width / PAGE_SIZE), top + ((float)glyph.height / PAGE_SIZE));
+         }
+         x += glyph.advance;
+      }
+      run.width = x;
+      return(run);
+   }
+
+
+   // Glyphs held, pages and the fraction of page area their cells use.
+   public int getGlyphCount()
+   {
+      return(glyphs.size());
+   }
+
+
+   public int getPageCount()
+   {
+      return(pages.size());
+   }
+
+
+   public float getOccupancy()
+   {
+      long used = 0;
+
+      for (Page page : pages)
+      {
+         used += page.usedArea;
+      }
+      return(pages.isEmpty() ? 0.0f : (float)used / ((long)pages.size() * PAGE_SIZE * PAGE_SIZE));
+   }
+
+
+   public String getStats()
+   {
+      return(String.format(Locale.US, "%d glyphs, %d pages, %.0f%% occupied",
+                           getGlyphCount(), getPageCount(), getOccupancy() * 100.0f));
+   }
+
+
+   // Scale drawing the atlas at a text size.
+   public float getScale(float textSize)
+   {
+      return(textSize / BASE_SIZE);
+   }
+
+
+   // Line height at the atlas size.
+   public float getLineHeight()
+   {
+      return(ascent + descent);
+   }
+
+
+   // Half width of the smoothed edge in field values, for about a
+   // pixel of smoothing at a scale.
+   public float getSmoothing(float scale)
+   {
+      return(Math.min(0.5f, 0.25f / (SPREAD * scale)));
+   }
+
+
+   // Delete the textures.
+   public void shutdown(GL10 gl)
+   {
+      for (Page page : pages)
+      {
+         if (page.textureID != 0)
+         {
+            gl.glDeleteTextures(1, new int[] { page.textureID }, 0);
+            page.textureID = 0;
+         }
+      }
+   }
+}
@@ -33,8 +33,12 @@ public class GoFish extends Activity
    // View.
    private GoFishView goFishView;
 
-   // Save file.
-   public final String saveFileName = "gofish.txt";
+   // Save file, and the text save file it replaces.
+   public final String saveFileName       = "gofish.sav";
+   public final String legacySaveFileName = "gofish.txt";
+
+   // Finished game records.
+   public final String recordsFileName = "gofish.records";
 
    // Identity.
    private UUID id;
@@ -51,8 +55,10 @@ public class GoFish extends Activity
       setID();
 
       // Create view.
-      String savePath = getDir("data", Context.MODE_PRIVATE).getAbsolutePath() + "/" + saveFileName;
-      goFishView = new GoFishView(this, savePath, id);
+      String dataPath = getDir("data", Context.MODE_PRIVATE).getAbsolutePath();
+      goFishView = new GoFishView(this, dataPath + "/" + saveFileName,
+                                  dataPath + "/" + legacySaveFileName,
+                                  dataPath + "/" + recordsFileName, id);
       setContentView(goFishView);
    }
 
@@ -119,4 +125,12 @@ public class GoFish extends Activity
       SoundManager.loadSounds();
       goFishView.onResume();
    }
+
+
+   @Override
+   protected void onDestroy()
+   {
+      goFishView.shutdown();
+      super.onDestroy();
+   }
 }
@@ -2,27 +2,23 @@
 
 package com.dialectek.gofish;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
-import com.dialectek.gofish.GoFishView.CARD_VISIBILITY;
+import com.dialectek.gofish.engine.GoFishGame.CARD_VISIBILITY;
 import android.content.Context;
 import android.content.res.Configuration;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.Matrix;
-import android.graphics.Paint;
 import android.graphics.Point;
-import android.graphics.Typeface;
+import android.opengl.ETC1Util;
+import android.opengl.GLES20;
 import android.opengl.GLSurfaceView;
-import android.opengl.GLUtils;
+import android.os.Build;
 import android.os.SystemClock;
-import android.util.Log;
 
 public class GoFishRenderer implements GLSurfaceView.Renderer
 {
@@ -68,45 +64,114 @@ public class GoFishRenderer implements GLSurfaceView.Renderer
    Card cardBack;
    Card[] numberCards;
    Card Jcard, Qcard, Kcard, Acard;
+   Card[] atlasCards;
 
-   // Text.
-   LabelMaker labelMaker;
-   LabelMaker welcomeLabelMaker;
-   int[] charLabels;
-   int[] welcomeLabels;
-   String[] welcomeText;
-   enum CHAR_LABEL_PARMS
+   // Card atlas images: the deck by suit and rank, then the back,
+   // number cards, rank cards, reset button and white.
+   static final String[] SUIT_NAMES = { "c", "d", "h", "s" };
+   static final String[] RANK_NAMES =
    {
-      CHAR_OFFSET(32),
-      NUM_CHARS(95);
-      private int value;
-      CHAR_LABEL_PARMS(int value) { this.value = value; }
-      int getValue() { return(value); }
+      "1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "j", "q", "k"
+   };
+   static final int BACK_IMAGE   = 52;
+   static final int NUMBER_IMAGE = 53;
+   static final int JACK_IMAGE   = 67;
+   static final int QUEEN_IMAGE  = 68;
+   static final int KING_IMAGE   = 69;
+   static final int ACE_IMAGE    = 70;
+   static final int RESET_IMAGE  = 71;
+   static final int WHITE_IMAGE  = 72;
+   static final int ATLAS_IMAGES = 73;
+   CardAtlas cardAtlas;
+
+   // Card atlas loading: one thread prepares the atlas while the
+   // decoder threads decode its images.
+   ExecutorService atlasLoader;
+   ExecutorService imageDecoder;
+   boolean         loadingCards;
+
+   // Sprite batch drawing the play surface, and the white atlas
+   // texel for untextured shapes.
+   SpriteBatch spriteBatch;
+   int         whiteTextureID;
+   float       whiteU, whiteV;
+
+   // Text glyphs, drawn at the text sizes of the layout.
+   GlyphAtlas glyphAtlas;
+   int        labelTextSize, welcomeTextSize;
+
+   // Laid out text runs of recently drawn strings.
+   static final int MAX_TEXT_RUNS = 32;
+   LinkedHashMap<String, TextRun> textRuns;
+
+   // Loading progress runs by percentage, made as progress reaches
+   // them so loading frames allocate nothing and leave textRuns alone.
+   TextRun[] loadingRuns = new TextRun[101];
+   static final String[] WELCOME_TEXT =
+   {
+      "Welcome to Go Fish", "dialectek.com/gofish", "Use arrows to play"
    };
    public static final int COLS          = 40;
    public static final int LINES         = 20;
    public static final int MAX_TEXT_SIZE = 32;
 
    // Reset button.
-   public ResetButton resetButton;
+   public Card resetButton;
 
-   // Drawables valid.
-   public boolean drawablesValid;
+   // Layout valid for the window size. Textures belong to the GL
+   // context and are only remade when it is lost.
+   public boolean layoutValid;
 
    // Welcome timing.
    int     WELCOME_TIME = 5000;
    long    welcomeTimer;
    boolean welcome;
 
+   // Frame statistics and their display.
+   FrameStats     frameStats;
+   public boolean frameStatsEnabled;
+
+   // Rendering on a GLES 2.0 context with shaders, instead of the
+   // fixed function pipeline.
+   boolean gles2;
+
    // Constructor.
-   public GoFishRenderer(Context context, GoFishView view)
+   public GoFishRenderer(Context context, GoFishView view, boolean gles2)
    {
       this.context = context;
       this.view    = view;
+      this.gles2   = gles2;
 
       // Initialize state.
-      drawablesValid = false;
-      welcome        = true;
+      layoutValid  = false;
+      welcome      = true;
+      welcomeTimer = SystemClock.uptimeMillis();
+      makeCards();
+      spriteBatch    = gles2 ? new Gles2SpriteBatch() : new SpriteBatch();
+      frameStats     = new FrameStats();
+      textRuns       = new LinkedHashMap<String, TextRun>(16, 0.75f, true)
+      {
+         @Override
+         protected boolean removeEldestEntry(Map.Entry<String, TextRun> eldest)
+         {
+            return(size() > MAX_TEXT_RUNS);
+         }
+      };
+      int threads = 1;
+      if (Build.VERSION.SDK_INT >= 21)
+      {
+         threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+      }
+      atlasLoader  = Executors.newSingleThreadExecutor();
+      imageDecoder = Executors.newFixedThreadPool(threads);
+   }
+
+
+   // Shut down loader threads.
+   public void shutdown()
+   {
+      atlasLoader.shutdownNow();
+      imageDecoder.shutdownNow();
    }
 
 
@@ -114,15 +179,38 @@ public class GoFishRenderer implements GLSurfaceView.Renderer
    @Override
    public void onSurfaceCreated(GL10 gl, EGLConfig config)
    {
-      gl.glDisable(GL10.GL_DITHER);
-      gl.glHint(GL10.GL_PERSPECTIVE_CORRECTION_HINT,
-                GL10.GL_FASTEST);
-      gl.glClearColor(0.0f, 1.0f, 0.0f, 1.0f);
-      gl.glShadeModel(GL10.GL_SMOOTH);
-      gl.glEnable(GL10.GL_DEPTH_TEST);
-      gl.glEnable(GL10.GL_TEXTURE_2D);
-      gl.glEnable(GL10.GL_CULL_FACE);
-      gl.glViewport(0, 0, windowWidth, windowHeight);
+      if (gles2)
+      {
+         GLES20.glDisable(GLES20.GL_DITHER);
+         GLES20.glClearColor(0.0f, 1.0f, 0.0f, 1.0f);
+         GLES20.glEnable(GLES20.GL_DEPTH_TEST);
+         GLES20.glViewport(0, 0, windowWidth, windowHeight);
+      }
+      else
+      {
+         gl.glDisable(GL10.GL_DITHER);
+         gl.glHint(GL10.GL_PERSPECTIVE_CORRECTION_HINT,
+                   GL10.GL_FASTEST);
+         gl.glClearColor(0.0f, 1.0f, 0.0f, 1.0f);
+         gl.glShadeModel(GL10.GL_SMOOTH);
+         gl.glEnable(GL10.GL_DEPTH_TEST);
+         gl.glEnable(GL10.GL_TEXTURE_2D);
+         gl.glEnable(GL10.GL_CULL_FACE);
+         gl.glViewport(0, 0, windowWidth, windowHeight);
+      }
+
+      // Textures and buffers of a previous surface are gone with its context.
+      spriteBatch.createBuffers(gl);
+      if (cardAtlas != null)
+      {
+         cardAtlas.cancel();
+      }
+      cardAtlas   = null;
+      layoutValid = false;
+      if (glyphAtlas != null)
+      {
+         glyphAtlas.loseTextures();
+      }
    }
 
 
@@ -132,12 +220,13 @@ public class GoFishRenderer implements GLSurfaceView.Renderer
    {
       if ((windowWidth != w) || (windowHeight != h))
       {
-         drawablesValid = false;
+         layoutValid = false;
       }
       windowWidth  = w;
       windowHeight = h;
       windowAspect = (float)windowWidth / (float)windowHeight;
       gl.glViewport(0, 0, w, h);
+      spriteBatch.setViewport(w, h);
    }
 
 
@@ -145,35 +234,69 @@ public class GoFishRenderer implements GLSurfaceView.Renderer
    @Override
    public void onDrawFrame(GL10 gl)
    {
+      boolean stats = frameStatsEnabled;
+
+      view.scheduler.frameStarted();
+      if (stats)
+      {
+         frameStats.beginFrame(spriteBatch);
+      }
       gl.glClear(GL10.GL_COLOR_BUFFER_BIT | GL10.GL_DEPTH_BUFFER_BIT);
-      gl.glMatrixMode(GL10.GL_PROJECTION);
-      gl.glPushMatrix();
-      gl.glLoadIdentity();
-      gl.glOrthof(0.0f, windowWidth, 0.0f, windowHeight, 0.0f, 1.0f);
-      gl.glMatrixMode(GL10.GL_MODELVIEW);
-      gl.glPushMatrix();
-      gl.glLoadIdentity();
-
-      // Create drawables?
-      if (!drawablesValid)
+      if (!gles2)
       {
-         playSurface = new PlaySurface(this);
-         makeCards(gl);
-         makeText(gl);
-         resetButton = new ResetButton("textures/reset_button.png",
-                                       playSurface.resetButtonSize, playSurface.resetButtonSize,
-                                       gl, context);
-         drawablesValid = true;
+         gl.glMatrixMode(GL10.GL_PROJECTION);
+         gl.glPushMatrix();
+         gl.glLoadIdentity();
+         gl.glOrthof(0.0f, windowWidth, 0.0f, windowHeight, 0.0f, 1.0f);
+         gl.glMatrixMode(GL10.GL_MODELVIEW);
+         gl.glPushMatrix();
+         gl.glLoadIdentity();
+      }
+
+      // Start loading card textures for a new context.
+      if (cardAtlas == null)
+      {
+         makeAtlas(gl);
       }
 
+      // Upload glyphs once per context.
+      if ((glyphAtlas == null) || !glyphAtlas.isUploaded())
+      {
+         makeGlyphs(gl);
+      }
 
-      // Welcome?
-      if (welcome)
+      // Lay out for the window size, keeping textures.
+      if (!layoutValid)
+      {
+         playSurface = new PlaySurface(this);
+         sizeCards();
+         makeText();
+         layoutValid = true;
+      }
+
+      // Welcome, and while the cards load? The welcome ends on a timer.
+      if (welcome && (SystemClock.uptimeMillis() - welcomeTimer >= WELCOME_TIME))
+      {
+         welcome = false;
+      }
+      // A failed atlas keeps its error up rather than a blank table.
+      boolean cardsLoaded = loadCards(gl);
+      boolean cardsFailed = cardsLoaded && (cardAtlas.getState() == CardAtlas.FAILED);
+      if (welcome || !cardsLoaded || cardsFailed)
       {
          drawWelcomeText(gl);
-         if (SystemClock.uptimeMillis() - welcomeTimer >= WELCOME_TIME)
+         int y = (int)(glyphAtlas.getLineHeight() * glyphAtlas.getScale(labelTextSize));
+         if (cardsFailed)
+         {
+            drawText(gl, "Cannot load cards", 0, y);
+         }
+         else if (!cardsLoaded)
          {
-            welcome = false;
+            drawText(gl, getLoadingRun(gl, cardAtlas.getProgress()), 0, y);
+         }
+         if (welcome)
+         {
+            view.scheduler.requestFrameAt(welcomeTimer + WELCOME_TIME);
          }
       }
       else
@@ -185,277 +308,267 @@ public class GoFishRenderer implements GLSurfaceView.Renderer
          }
       }
 
-      gl.glMatrixMode(GL10.GL_PROJECTION);
-      gl.glPopMatrix();
-      gl.glMatrixMode(GL10.GL_MODELVIEW);
-      gl.glPopMatrix();
+      // Frame statistics display.
+      if (stats)
+      {
+         drawText(gl, frameStats.getSummary(), 0,
+                  windowHeight - (int)(glyphAtlas.getLineHeight() * glyphAtlas.getScale(labelTextSize)));
+      }
+
+      if (!gles2)
+      {
+         gl.glMatrixMode(GL10.GL_PROJECTION);
+         gl.glPopMatrix();
+         gl.glMatrixMode(GL10.GL_MODELVIEW);
+         gl.glPopMatrix();
+      }
       gl.glFlush();
+      if (stats)
+      {
+         frameStats.endFrame(spriteBatch);
+      }
    }
 
 
-   // Draw text.
+   // Draw text from its cached run.
    void drawText(GL10 gl, String text, int x, int y)
    {
-      labelMaker.beginDrawing(gl, windowWidth, windowHeight);
-      char[] textChars = text.toCharArray();
-      int[] labels     = new int[textChars.length];
-      for (int i = 0; i < textChars.length; i++)
+      drawText(gl, getTextRun(gl, text), x, y);
+   }
+
+
+   void drawText(GL10 gl, TextRun run, int x, int y)
+   {
+      float scale = glyphAtlas.getScale(labelTextSize);
+
+      beginTextBatch(gl, scale);
+      spriteBatch.drawRun(gl, run, x, y, scale);
+      endTextBatch(gl);
+   }
+
+
+   void drawWelcomeText(GL10 gl)
+   {
+      float scale      = glyphAtlas.getScale(welcomeTextSize);
+      float lineHeight = glyphAtlas.getLineHeight() * scale;
+      float offset     = lineHeight * 2.0f;
+
+      beginTextBatch(gl, scale);
+      for (int i = 0; i < WELCOME_TEXT.length; i++)
       {
-         labels[i] = charLabels[(int)textChars[i] - CHAR_LABEL_PARMS.CHAR_OFFSET.getValue()];
+         offset += lineHeight;
+         spriteBatch.drawRun(gl, getTextRun(gl, WELCOME_TEXT[i]), 0,
+                             (int)((float)windowHeight - offset), scale);
       }
-      labelMaker.drawText(gl, labels, x, y);
-      labelMaker.endDrawing(gl);
+      endTextBatch(gl);
    }
 
 
-   void drawWelcomeText(GL10 gl)
+   // Text run of a string, laid out at the glyph atlas size.
+   TextRun getTextRun(GL10 gl, String text)
+   {
+      TextRun run = textRuns.get(text);
+
+      if (run == null)
+      {
+         run = makeRun(gl, text);
+         textRuns.put(text, run);
+      }
+      return(run);
+   }
+
+
+   // Text run of a loading progress percentage.
+   TextRun getLoadingRun(GL10 gl, int percent)
    {
-      welcomeLabelMaker.beginDrawing(gl, windowWidth, windowHeight);
-      float offset = welcomeLabelMaker.getHeight(0) * 2.0f;
+      TextRun run = loadingRuns[percent];
 
-      for (int i = 0; i < welcomeText.length; i++)
+      if (run == null)
       {
-         offset += welcomeLabelMaker.getHeight(i);
-         welcomeLabelMaker.draw(gl, 0,
-                                (int)((float)windowHeight - offset),
-                                welcomeLabels[i]);
+         run = makeRun(gl, "Loading " + percent + "%");
+         loadingRuns[percent] = run;
       }
-      welcomeLabelMaker.endDrawing(gl);
+      return(run);
    }
 
 
-   // Make cards.
-   public void makeCards(GL10 gl)
+   // Lay out text, adding glyphs it is the first to use. Adding binds
+   // glyph pages, so a batch in progress binds its texture again.
+   TextRun makeRun(GL10 gl, String text)
    {
-      // Create card drawables.
+      TextRun run = glyphAtlas.makeRun(gl, text);
+
+      spriteBatch.forgetBinding();
+      return(run);
+   }
+
+
+   // Draw text as blended distance field sprites over the play surface.
+   void beginTextBatch(GL10 gl, float scale)
+   {
+      gl.glDisable(GL10.GL_DEPTH_TEST);
+      gl.glEnable(GL10.GL_BLEND);
+      gl.glBlendFunc(GL10.GL_SRC_ALPHA, GL10.GL_ONE_MINUS_SRC_ALPHA);
+      spriteBatch.begin(gl);
+      spriteBatch.setDistanceField(gl, true, glyphAtlas.getSmoothing(scale));
+      spriteBatch.setColor(0.0f, 0.0f, 0.0f, 1.0f);
+   }
+
+
+   void endTextBatch(GL10 gl)
+   {
+      spriteBatch.setDistanceField(gl, false, 0.0f);
+      spriteBatch.end(gl);
+      gl.glDisable(GL10.GL_BLEND);
+      gl.glEnable(GL10.GL_DEPTH_TEST);
+   }
+
+
+   // Pack card images into the atlas once per context.
+   public void makeAtlas(GL10 gl)
+   {
+      int i, j;
+
+      String[] imageFiles = new String[ATLAS_IMAGES];
+      for (i = 0; i < 4; i++)
+      {
+         for (j = 0; j < 13; j++)
+         {
+            imageFiles[(i * 13) + j] = "textures/cards/" + SUIT_NAMES[i] + RANK_NAMES[j] + ".png";
+         }
+      }
+      imageFiles[BACK_IMAGE] = "textures/cards/b2fv.png";
+      for (i = 0; i < 14; i++)
+      {
+         imageFiles[NUMBER_IMAGE + i] = "textures/cards/" + i + ".png";
+      }
+      imageFiles[JACK_IMAGE]  = "textures/cards/J.png";
+      imageFiles[QUEEN_IMAGE] = "textures/cards/Q.png";
+      imageFiles[KING_IMAGE]  = "textures/cards/K.png";
+      imageFiles[ACE_IMAGE]   = "textures/cards/A.png";
+      imageFiles[RESET_IMAGE] = "textures/reset_button.png";
+      imageFiles[WHITE_IMAGE] = null;
+      whiteTextureID = 0;
+      whiteU         = whiteV = 0.0f;
+      int[] size = new int[1];
+      gl.glGetIntegerv(GL10.GL_MAX_TEXTURE_SIZE, size, 0);
+      final int maxSize =
+         Math.min(CardAtlas.MAX_PAGE_SIZE, size[0] > 0 ? size[0] : CardAtlas.MAX_PAGE_SIZE);
+      final boolean etc1 = (Build.VERSION.SDK_INT >= 8) && ETC1Util.isETC1Supported();
+      final CardAtlas atlas = new CardAtlas(imageFiles);
+      cardAtlas = atlas;
+
+      // Render continuously to show progress until loaded.
+      if (!loadingCards)
+      {
+         loadingCards = true;
+         view.scheduler.beginAnimation();
+      }
+      atlasLoader.submit(new Runnable()
+                         {
+                            public void run()
+                            {
+                               atlas.prepare(context, maxSize, imageDecoder, etc1);
+                            }
+                         }
+                         );
+   }
+
+
+   // Make cards, one per atlas image.
+   public void makeCards()
+   {
+      atlasCards = new Card[WHITE_IMAGE];
+      for (int i = 0; i < atlasCards.length; i++)
+      {
+         atlasCards[i] = new Card(i);
+      }
       cards = new Card[4][13];
-      cards[CLUBS][ACE_CARD] = new Card("textures/cards/c1.png",
-                                        playSurface.cardWidth, playSurface.cardHeight,
-                                        gl, context);
-      cards[CLUBS][TWO_CARD] = new Card("textures/cards/c2.png",
-                                        playSurface.cardWidth, playSurface.cardHeight,
-                                        gl, context);
-      cards[CLUBS][THREE_CARD] = new Card("textures/cards/c3.png",
-                                          playSurface.cardWidth, playSurface.cardHeight,
-                                          gl, context);
-      cards[CLUBS][FOUR_CARD] = new Card("textures/cards/c4.png",
-                                         playSurface.cardWidth, playSurface.cardHeight,
-                                         gl, context);
-      cards[CLUBS][FIVE_CARD] = new Card("textures/cards/c5.png",
-                                         playSurface.cardWidth, playSurface.cardHeight,
-                                         gl, context);
-      cards[CLUBS][SIX_CARD] = new Card("textures/cards/c6.png",
-                                        playSurface.cardWidth, playSurface.cardHeight,
-                                        gl, context);
-      cards[CLUBS][SEVEN_CARD] = new Card("textures/cards/c7.png",
-                                          playSurface.cardWidth, playSurface.cardHeight,
-                                          gl, context);
-      cards[CLUBS][EIGHT_CARD] = new Card("textures/cards/c8.png",
-                                          playSurface.cardWidth, playSurface.cardHeight,
-                                          gl, context);
-      cards[CLUBS][NINE_CARD] = new Card("textures/cards/c9.png",
-                                         playSurface.cardWidth, playSurface.cardHeight,
-                                         gl, context);
-      cards[CLUBS][TEN_CARD] = new Card("textures/cards/c10.png",
-                                        playSurface.cardWidth, playSurface.cardHeight,
-                                        gl, context);
-      cards[CLUBS][JACK_CARD] = new Card("textures/cards/cj.png",
-                                         playSurface.cardWidth, playSurface.cardHeight,
-                                         gl, context);
-      cards[CLUBS][QUEEN_CARD] = new Card("textures/cards/cq.png",
-                                          playSurface.cardWidth, playSurface.cardHeight,
-                                          gl, context);
-      cards[CLUBS][KING_CARD] = new Card("textures/cards/ck.png",
-                                         playSurface.cardWidth, playSurface.cardHeight,
-                                         gl, context);
-      cards[DIAMONDS][ACE_CARD] = new Card("textures/cards/d1.png",
-                                           playSurface.cardWidth, playSurface.cardHeight,
-                                           gl, context);
-      cards[DIAMONDS][TWO_CARD] = new Card("textures/cards/d2.png",
-                                           playSurface.cardWidth, playSurface.cardHeight,
-                                           gl, context);
-      cards[DIAMONDS][THREE_CARD] = new Card("textures/cards/d3.png",
-                                             playSurface.cardWidth, playSurface.cardHeight,
-                                             gl, context);
-      cards[DIAMONDS][FOUR_CARD] = new Card("textures/cards/d4.png",
-                                            playSurface.cardWidth, playSurface.cardHeight,
-                                            gl, context);
-      cards[DIAMONDS][FIVE_CARD] = new Card("textures/cards/d5.png",
-                                            playSurface.cardWidth, playSurface.cardHeight,
-                                            gl, context);
-      cards[DIAMONDS][SIX_CARD] = new Card("textures/cards/d6.png",
-                                           playSurface.cardWidth, playSurface.cardHeight,
-                                           gl, context);
-      cards[DIAMONDS][SEVEN_CARD] = new Card("textures/cards/d7.png",
-                                             playSurface.cardWidth, playSurface.cardHeight,
-                                             gl, context);
-      cards[DIAMONDS][EIGHT_CARD] = new Card("textures/cards/d8.png",
-                                             playSurface.cardWidth, playSurface.cardHeight,
-                                             gl, context);
-      cards[DIAMONDS][NINE_CARD] = new Card("textures/cards/d9.png",
-                                            playSurface.cardWidth, playSurface.cardHeight,
-                                            gl, context);
-      cards[DIAMONDS][TEN_CARD] = new Card("textures/cards/d10.png",
-                                           playSurface.cardWidth, playSurface.cardHeight,
-                                           gl, context);
-      cards[DIAMONDS][JACK_CARD] = new Card("textures/cards/dj.png",
-                                            playSurface.cardWidth, playSurface.cardHeight,
-                                            gl, context);
-      cards[DIAMONDS][QUEEN_CARD] = new Card("textures/cards/dq.png",
-                                             playSurface.cardWidth, playSurface.cardHeight,
-                                             gl, context);
-      cards[DIAMONDS][KING_CARD] = new Card("textures/cards/dk.png",
-                                            playSurface.cardWidth, playSurface.cardHeight,
-                                            gl, context);
-      cards[HEARTS][ACE_CARD] = new Card("textures/cards/h1.png",
-                                         playSurface.cardWidth, playSurface.cardHeight,
-                                         gl, context);
-      cards[HEARTS][TWO_CARD] = new Card("textures/cards/h2.png",
-                                         playSurface.cardWidth, playSurface.cardHeight,
-                                         gl, context);
-      cards[HEARTS][THREE_CARD] = new Card("textures/cards/h3.png",
-                                           playSurface.cardWidth, playSurface.cardHeight,
-                                           gl, context);
-      cards[HEARTS][FOUR_CARD] = new Card("textures/cards/h4.png",
-                                          playSurface.cardWidth, playSurface.cardHeight,
-                                          gl, context);
-      cards[HEARTS][FIVE_CARD] = new Card("textures/cards/h5.png",
-                                          playSurface.cardWidth, playSurface.cardHeight,
-                                          gl, context);
-      cards[HEARTS][SIX_CARD] = new Card("textures/cards/h6.png",
-                                         playSurface.cardWidth, playSurface.cardHeight,
-                                         gl, context);
-      cards[HEARTS][SEVEN_CARD] = new Card("textures/cards/h7.png",
-                                           playSurface.cardWidth, playSurface.cardHeight,
-                                           gl, context);
-      cards[HEARTS][EIGHT_CARD] = new Card("textures/cards/h8.png",
-                                           playSurface.cardWidth, playSurface.cardHeight,
-                                           gl, context);
-      cards[HEARTS][NINE_CARD] = new Card("textures/cards/h9.png",
-                                          playSurface.cardWidth, playSurface.cardHeight,
-                                          gl, context);
-      cards[HEARTS][TEN_CARD] = new Card("textures/cards/h10.png",
-                                         playSurface.cardWidth, playSurface.cardHeight,
-                                         gl, context);
-      cards[HEARTS][JACK_CARD] = new Card("textures/cards/hj.png",
-                                          playSurface.cardWidth, playSurface.cardHeight,
-                                          gl, context);
-      cards[HEARTS][QUEEN_CARD] = new Card("textures/cards/hq.png",
-                                           playSurface.cardWidth, playSurface.cardHeight,
-                                           gl, context);
-      cards[HEARTS][KING_CARD] = new Card("textures/cards/hk.png",
-                                          playSurface.cardWidth, playSurface.cardHeight,
-                                          gl, context);
-      cards[SPADES][ACE_CARD] = new Card("textures/cards/s1.png",
-                                         playSurface.cardWidth, playSurface.cardHeight,
-                                         gl, context);
-      cards[SPADES][TWO_CARD] = new Card("textures/cards/s2.png",
-                                         playSurface.cardWidth, playSurface.cardHeight,
-                                         gl, context);
-      cards[SPADES][THREE_CARD] = new Card("textures/cards/s3.png",
-                                           playSurface.cardWidth, playSurface.cardHeight,
-                                           gl, context);
-      cards[SPADES][FOUR_CARD] = new Card("textures/cards/s4.png",
-                                          playSurface.cardWidth, playSurface.cardHeight,
-                                          gl, context);
-      cards[SPADES][FIVE_CARD] = new Card("textures/cards/s5.png",
-                                          playSurface.cardWidth, playSurface.cardHeight,
-                                          gl, context);
-      cards[SPADES][SIX_CARD] = new Card("textures/cards/s6.png",
-                                         playSurface.cardWidth, playSurface.cardHeight,
-                                         gl, context);
-      cards[SPADES][SEVEN_CARD] = new Card("textures/cards/s7.png",
-                                           playSurface.cardWidth, playSurface.cardHeight,
-                                           gl, context);
-      cards[SPADES][EIGHT_CARD] = new Card("textures/cards/s8.png",
-                                           playSurface.cardWidth, playSurface.cardHeight,
-                                           gl, context);
-      cards[SPADES][NINE_CARD] = new Card("textures/cards/s9.png",
-                                          playSurface.cardWidth, playSurface.cardHeight,
-                                          gl, context);
-      cards[SPADES][TEN_CARD] = new Card("textures/cards/s10.png",
-                                         playSurface.cardWidth, playSurface.cardHeight,
-                                         gl, context);
-      cards[SPADES][JACK_CARD] = new Card("textures/cards/sj.png",
-                                          playSurface.cardWidth, playSurface.cardHeight,
-                                          gl, context);
-      cards[SPADES][QUEEN_CARD] = new Card("textures/cards/sq.png",
-                                           playSurface.cardWidth, playSurface.cardHeight,
-                                           gl, context);
-      cards[SPADES][KING_CARD] = new Card("textures/cards/sk.png",
-                                          playSurface.cardWidth, playSurface.cardHeight,
-                                          gl, context);
-      cardBack = new Card("textures/cards/b2fv.png",
-                          playSurface.cardWidth, playSurface.cardHeight,
-                          gl, context);
-      numberCards    = new Card[14];
-      numberCards[0] = new Card("textures/cards/0.png",
-                                playSurface.cardWidth, playSurface.cardHeight,
-                                gl, context);
-      numberCards[1] = new Card("textures/cards/1.png",
-                                playSurface.cardWidth, playSurface.cardHeight,
-                                gl, context);
-      numberCards[2] = new Card("textures/cards/2.png",
-                                playSurface.cardWidth, playSurface.cardHeight,
-                                gl, context);
-      numberCards[3] = new Card("textures/cards/3.png",
-                                playSurface.cardWidth, playSurface.cardHeight,
-                                gl, context);
-      numberCards[4] = new Card("textures/cards/4.png",
-                                playSurface.cardWidth, playSurface.cardHeight,
-                                gl, context);
-      numberCards[5] = new Card("textures/cards/5.png",
-                                playSurface.cardWidth, playSurface.cardHeight,
-                                gl, context);
-      numberCards[6] = new Card("textures/cards/6.png",
-                                playSurface.cardWidth, playSurface.cardHeight,
-                                gl, context);
-      numberCards[7] = new Card("textures/cards/7.png",
-                                playSurface.cardWidth, playSurface.cardHeight,
-                                gl, context);
-      numberCards[8] = new Card("textures/cards/8.png",
-                                playSurface.cardWidth, playSurface.cardHeight,
-                                gl, context);
-      numberCards[9] = new Card("textures/cards/9.png",
-                                playSurface.cardWidth, playSurface.cardHeight,
-                                gl, context);
-      numberCards[10] = new Card("textures/cards/10.png",
-                                 playSurface.cardWidth, playSurface.cardHeight,
-                                 gl, context);
-      numberCards[11] = new Card("textures/cards/11.png",
-                                 playSurface.cardWidth, playSurface.cardHeight,
-                                 gl, context);
-      numberCards[12] = new Card("textures/cards/12.png",
-                                 playSurface.cardWidth, playSurface.cardHeight,
-                                 gl, context);
-      numberCards[13] = new Card("textures/cards/13.png",
-                                 playSurface.cardWidth, playSurface.cardHeight,
-                                 gl, context);
-      Jcard = new Card("textures/cards/J.png",
-                       playSurface.cardWidth, playSurface.cardHeight,
-                       gl, context);
-      Qcard = new Card("textures/cards/Q.png",
-                       playSurface.cardWidth, playSurface.cardHeight,
-                       gl, context);
-      Kcard = new Card("textures/cards/K.png",
-                       playSurface.cardWidth, playSurface.cardHeight,
-                       gl, context);
-      Acard = new Card("textures/cards/A.png",
-                       playSurface.cardWidth, playSurface.cardHeight,
-                       gl, context);
+      for (int i = 0; i < 4; i++)
+      {
+         for (int j = 0; j < 13; j++)
+         {
+            cards[i][j] = atlasCards[(i * 13) + j];
+         }
+      }
+      cardBack    = atlasCards[BACK_IMAGE];
+      numberCards = new Card[14];
+      for (int i = 0; i < 14; i++)
+      {
+         numberCards[i] = atlasCards[NUMBER_IMAGE + i];
+      }
+      Jcard       = atlasCards[JACK_IMAGE];
+      Qcard       = atlasCards[QUEEN_IMAGE];
+      Kcard       = atlasCards[KING_IMAGE];
+      Acard       = atlasCards[ACE_IMAGE];
+      resetButton = atlasCards[RESET_IMAGE];
+   }
+
+
+   // Size cards to the layout.
+   void sizeCards()
+   {
+      for (Card card : atlasCards)
+      {
+         card.setSize(playSurface.cardWidth, playSurface.cardHeight);
+      }
+      resetButton.setSize(playSurface.resetButtonSize, playSurface.resetButtonSize);
    }
 
 
-   // Make text.
-   public void makeText(GL10 gl)
+   // Upload a prepared card atlas page per frame, returning
+   // true once loading is over.
+   boolean loadCards(GL10 gl)
    {
-      int i;
+      int state = cardAtlas.getState();
 
-      // Create small text labels.
-      if (labelMaker != null)
+      if (state == CardAtlas.UPLOADING)
       {
-         labelMaker.shutdown(gl);
+         cardAtlas.uploadPage(gl);
+         state = cardAtlas.getState();
+         if (state == CardAtlas.LOADED)
+         {
+            whiteTextureID = cardAtlas.getTextureID(WHITE_IMAGE);
+            whiteU         = (cardAtlas.getLeft(WHITE_IMAGE) + cardAtlas.getRight(WHITE_IMAGE)) / 2.0f;
+            whiteV         = (cardAtlas.getTop(WHITE_IMAGE) + cardAtlas.getBottom(WHITE_IMAGE)) / 2.0f;
+            for (Card card : atlasCards)
+            {
+               card.bind();
+            }
+         }
+      }
+      if ((state == CardAtlas.LOADED) || (state == CardAtlas.FAILED))
+      {
+         if (loadingCards)
+         {
+            loadingCards = false;
+            view.scheduler.endAnimation();
+         }
+         return(true);
       }
+      return(false);
+   }
+
+
+   // Make glyphs, mapped from their cache or rasterized once, and
+   // upload them for the context. Runs hold the glyph textures.
+   void makeGlyphs(GL10 gl)
+   {
+      if (glyphAtlas == null)
+      {
+         glyphAtlas = new GlyphAtlas();
+         glyphAtlas.prepare(context);
+      }
+      glyphAtlas.upload(gl);
+      textRuns.clear();
+      Arrays.fill(loadingRuns, null);
+   }
+
+
+   // Choose text sizes for the layout. Glyphs draw at any size.
+   public void makeText()
+   {
+      // Small text size.
       int textSize = Math.min((windowWidth / COLS), (windowHeight / LINES));
 
       if (context.getResources().getConfiguration().orientation == Configuration.ORIENTATION_PORTRAIT)
@@ -467,58 +580,12 @@ public class GoFishRenderer implements GLSurfaceView.Renderer
          textSize = (int)((float)textSize * 1.5f);
       }
       if (textSize > MAX_TEXT_SIZE) { textSize = MAX_TEXT_SIZE; }
-      int x = CHAR_LABEL_PARMS.NUM_CHARS.getValue() * textSize * 2;
-      int y = textSize * 2;
-      int w2, h2;
-      for (w2 = 2; w2 < x; w2 *= 2) {}
-      for (h2 = 2; h2 < y; h2 *= 2) {}
-      labelMaker = new LabelMaker(true, w2, h2);
-      labelMaker.initialize(gl);
-      labelMaker.beginAdding(gl);
-      Paint labelPaint = new Paint();
-      labelPaint.setTypeface(Typeface.MONOSPACE);
-      labelPaint.setTextSize(textSize);
-      labelPaint.setAntiAlias(true);
-      labelPaint.setARGB(255, 0, 0, 0);
-      charLabels = new int[CHAR_LABEL_PARMS.NUM_CHARS.getValue()];
-      for (i = 0; i < charLabels.length; i++)
-      {
-         charLabels[i] =
-            labelMaker.add(gl,
-                           Character.toString((char)(i + CHAR_LABEL_PARMS.CHAR_OFFSET.getValue())),
-                           labelPaint);
-      }
-      labelMaker.endAdding(gl);
+      labelTextSize = textSize;
 
-      // Create welcome text.
-      if (welcomeLabelMaker != null)
-      {
-         welcomeLabelMaker.shutdown(gl);
-      }
-      welcomeText    = new String[3];
-      welcomeText[0] = "Welcome to Go Fish";
-      welcomeText[1] = "dialectek.com/gofish";
-      welcomeText[2] = "Use arrows to play";
-      textSize       = windowWidth / welcomeText[0].length();
+      // Welcome text size.
+      textSize = windowWidth / WELCOME_TEXT[0].length();
       if (textSize > MAX_TEXT_SIZE) { textSize = MAX_TEXT_SIZE; }
-      x = welcomeText[0].length() * textSize * 2;
-      y = textSize * 2;
-      for (w2 = 2; w2 < x; w2 *= 2) {}
-      for (h2 = 2; h2 < y; h2 *= 2) {}
-      welcomeLabelMaker = new LabelMaker(true, w2, h2);
-      welcomeLabelMaker.initialize(gl);
-      welcomeLabelMaker.beginAdding(gl);
-      labelPaint = new Paint();
-      labelPaint.setTypeface(Typeface.MONOSPACE);
-      labelPaint.setTextSize(textSize);
-      labelPaint.setAntiAlias(true);
-      labelPaint.setARGB(255, 0, 0, 0);
-      welcomeLabels = new int[welcomeText.length];
-      for (i = 0; i < welcomeText.length; i++)
-      {
-         welcomeLabels[i] = welcomeLabelMaker.add(gl, welcomeText[i], labelPaint);
-      }
-      welcomeLabelMaker.endAdding(gl);
+      welcomeTextSize = textSize;
    }
 
 
@@ -562,15 +629,8 @@ public class GoFishRenderer implements GLSurfaceView.Renderer
       public Point resetButtonTouch;
 
       // Drawables.
-      private CardFrame   cardFrame;
-      private Arrow       arrow;
-      private FloatBuffer myScoreToStageLine;
-      private FloatBuffer otherScoreToStageLine;
-      private FloatBuffer exchangeToDrawLine;
-      private FloatBuffer myHandToStageLine;
-      private FloatBuffer otherHandToStageLine;
-      private FloatBuffer myStageToExchangeLine;
-      private FloatBuffer otherStageToExchangeLine;
+      private CardFrame cardFrame;
+      private Arrow     arrow;
 
       public PlaySurface(GoFishRenderer renderer)
       {
@@ -732,488 +792,311 @@ public class GoFishRenderer implements GLSurfaceView.Renderer
          // Create drawables.
          cardFrame = new CardFrame(cardWidth, cardHeight);
          arrow     = new Arrow(arrowSize);
-         ByteBuffer vbb = ByteBuffer.allocateDirect(2 * 2 * 4);
-         vbb.order(ByteOrder.nativeOrder());
-         myScoreToStageLine = vbb.asFloatBuffer();
-         myScoreToStageLine.put(myScoreToStageBegin.x);
-         myScoreToStageLine.put(myScoreToStageBegin.y);
-         myScoreToStageLine.put(myScoreToStageEnd.x);
-         myScoreToStageLine.put(myScoreToStageEnd.y);
-         myScoreToStageLine.position(0);
-         vbb = ByteBuffer.allocateDirect(2 * 2 * 4);
-         vbb.order(ByteOrder.nativeOrder());
-         otherScoreToStageLine = vbb.asFloatBuffer();
-         otherScoreToStageLine.put(otherScoreToStageBegin.x);
-         otherScoreToStageLine.put(otherScoreToStageBegin.y);
-         otherScoreToStageLine.put(otherScoreToStageEnd.x);
-         otherScoreToStageLine.put(otherScoreToStageEnd.y);
-         otherScoreToStageLine.position(0);
-         vbb = ByteBuffer.allocateDirect(2 * 2 * 4);
-         vbb.order(ByteOrder.nativeOrder());
-         exchangeToDrawLine = vbb.asFloatBuffer();
-         exchangeToDrawLine.put(exchangeToDrawBegin.x);
-         exchangeToDrawLine.put(exchangeToDrawBegin.y);
-         exchangeToDrawLine.put(exchangeToDrawEnd.x);
-         exchangeToDrawLine.put(exchangeToDrawEnd.y);
-         exchangeToDrawLine.position(0);
-         vbb = ByteBuffer.allocateDirect(2 * 2 * 4);
-         vbb.order(ByteOrder.nativeOrder());
-         myHandToStageLine = vbb.asFloatBuffer();
-         myHandToStageLine.put(myHandToStageBegin.x);
-         myHandToStageLine.put(myHandToStageBegin.y);
-         myHandToStageLine.put(myHandToStageEnd.x);
-         myHandToStageLine.put(myHandToStageEnd.y);
-         myHandToStageLine.position(0);
-         vbb = ByteBuffer.allocateDirect(2 * 2 * 4);
-         vbb.order(ByteOrder.nativeOrder());
-         otherHandToStageLine = vbb.asFloatBuffer();
-         otherHandToStageLine.put(otherHandToStageBegin.x);
-         otherHandToStageLine.put(otherHandToStageBegin.y);
-         otherHandToStageLine.put(otherHandToStageEnd.x);
-         otherHandToStageLine.put(otherHandToStageEnd.y);
-         otherHandToStageLine.position(0);
-         vbb = ByteBuffer.allocateDirect(2 * 2 * 4);
-         vbb.order(ByteOrder.nativeOrder());
-         myStageToExchangeLine = vbb.asFloatBuffer();
-         myStageToExchangeLine.put(myStageToExchangeBegin.x);
-         myStageToExchangeLine.put(myStageToExchangeBegin.y);
-         myStageToExchangeLine.put(myStageToExchangeEnd.x);
-         myStageToExchangeLine.put(myStageToExchangeEnd.y);
-         myStageToExchangeLine.position(0);
-         vbb = ByteBuffer.allocateDirect(2 * 2 * 4);
-         vbb.order(ByteOrder.nativeOrder());
-         otherStageToExchangeLine = vbb.asFloatBuffer();
-         otherStageToExchangeLine.put(otherStageToExchangeBegin.x);
-         otherStageToExchangeLine.put(otherStageToExchangeBegin.y);
-         otherStageToExchangeLine.put(otherStageToExchangeEnd.x);
-         otherStageToExchangeLine.put(otherStageToExchangeEnd.y);
-         otherStageToExchangeLine.position(0);
       }
 
 
       public void draw(GL10 gl)
       {
+         // Batch everything but text.
+         spriteBatch.begin(gl);
+
          // Draw layout.
-         gl.glDisable(GL10.GL_TEXTURE_2D);
-         gl.glColor4f(1.0f, 1.0f, 1.0f, 1.0f);
-         gl.glEnableClientState(GL10.GL_VERTEX_ARRAY);
-         gl.glVertexPointer(2, GL10.GL_FLOAT, 0, myScoreToStageLine);
-         gl.glDrawArrays(GL10.GL_LINES, 0, 2);
-         gl.glVertexPointer(2, GL10.GL_FLOAT, 0, otherScoreToStageLine);
-         gl.glDrawArrays(GL10.GL_LINES, 0, 2);
-         gl.glVertexPointer(2, GL10.GL_FLOAT, 0, exchangeToDrawLine);
-         gl.glDrawArrays(GL10.GL_LINES, 0, 2);
-         gl.glVertexPointer(2, GL10.GL_FLOAT, 0, myHandToStageLine);
-         gl.glDrawArrays(GL10.GL_LINES, 0, 2);
-         gl.glVertexPointer(2, GL10.GL_FLOAT, 0, otherHandToStageLine);
-         gl.glDrawArrays(GL10.GL_LINES, 0, 2);
-         gl.glVertexPointer(2, GL10.GL_FLOAT, 0, myStageToExchangeLine);
-         gl.glDrawArrays(GL10.GL_LINES, 0, 2);
-         gl.glVertexPointer(2, GL10.GL_FLOAT, 0, otherStageToExchangeLine);
-         gl.glDrawArrays(GL10.GL_LINES, 0, 2);
-         gl.glDisableClientState(GL10.GL_VERTEX_ARRAY);
+         drawLine(gl, myScoreToStageBegin, myScoreToStageEnd);
+         drawLine(gl, otherScoreToStageBegin, otherScoreToStageEnd);
+         drawLine(gl, exchangeToDrawBegin, exchangeToDrawEnd);
+         drawLine(gl, myHandToStageBegin, myHandToStageEnd);
+         drawLine(gl, otherHandToStageBegin, otherHandToStageEnd);
+         drawLine(gl, myStageToExchangeBegin, myStageToExchangeEnd);
+         drawLine(gl, otherStageToExchangeBegin, otherStageToExchangeEnd);
 
          // Draw cards.
          int   i, j, k;
          float offset;
          for (i = 0; i < 13; i++)
          {
-            j = i - view.myHandShift;
+            j = i - view.game.state.myHandShift;
             while (j < 0) { j += 13; }
             j %= 13;
-            if (view.myHand[j].visibility != CARD_VISIBILITY.HIDDEN)
+            if (view.game.myHand[j].getVisibility() != CARD_VISIBILITY.HIDDEN)
             {
-               offset = (float)view.myHand[j].getCount() * cardOffset;
+               offset = (float)view.game.myHand[j].getCount() * cardOffset;
                if (offset > 0.0f)
                {
                   for (k = 3; k >= 0; k--)
                   {
-                     if (view.myHand[j].cards[k] != null)
+                     if (view.game.myHand[j].hasCard(k))
                      {
-                        gl.glPushMatrix();
                         offset -= cardOffset;
-                        gl.glTranslatef((int)((float)myCardsHolder[i].x + offset), (myCardsHolder[i].y - offset), 0.0f);
-                        cards[k][j].draw(gl);
-                        gl.glPopMatrix();
+                        cards[k][j].draw(gl, (int)((float)myCardsHolder[i].x + offset), (myCardsHolder[i].y - offset));
                      }
                   }
                }
                else
                {
-                  gl.glPushMatrix();
-                  gl.glTranslatef(myCardsHolder[i].x, myCardsHolder[i].y, 0.0f);
                   switch (j)
                   {
                   case ACE_CARD:
-                     Acard.draw(gl);
+                     Acard.draw(gl, myCardsHolder[i].x, myCardsHolder[i].y);
                      break;
 
                   case JACK_CARD:
-                     Jcard.draw(gl);
+                     Jcard.draw(gl, myCardsHolder[i].x, myCardsHolder[i].y);
                      break;
 
                   case QUEEN_CARD:
-                     Qcard.draw(gl);
+                     Qcard.draw(gl, myCardsHolder[i].x, myCardsHolder[i].y);
                      break;
 
                   case KING_CARD:
-                     Kcard.draw(gl);
+                     Kcard.draw(gl, myCardsHolder[i].x, myCardsHolder[i].y);
                      break;
 
                   default:
-                     numberCards[j + 1].draw(gl);
+                     numberCards[j + 1].draw(gl, myCardsHolder[i].x, myCardsHolder[i].y);
                   }
-                  gl.glPopMatrix();
                }
             }
             else
             {
-               gl.glPushMatrix();
-               gl.glTranslatef(myCardsHolder[i].x, myCardsHolder[i].y, 0.0f);
-               cardFrame.drawDim(gl);
-               gl.glPopMatrix();
+               cardFrame.drawDim(gl, myCardsHolder[i].x, myCardsHolder[i].y);
             }
          }
 
          for (i = j = 0; i < 13; i++)
          {
-            if (view.otherHand[i].visibility != CARD_VISIBILITY.HIDDEN)
+            if (view.game.otherHand[i].getVisibility() != CARD_VISIBILITY.HIDDEN)
             {
-               j += view.otherHand[i].getCount();
+               j += view.game.otherHand[i].getCount();
             }
          }
          offset = (float)j * cardOffset;
          for (i = 0; i < j; i++)
          {
-            gl.glPushMatrix();
-            gl.glTranslatef((int)((float)otherHand.x + offset), otherHand.y, 0.0f);
+            cardBack.draw(gl, (int)((float)otherHand.x + offset), otherHand.y);
             offset -= (cardOffset * 2.0f);
-            cardBack.draw(gl);
-            gl.glPopMatrix();
          }
 
-         if (view.deckDeal < 52)
+         if (view.game.state.deckDeal < 52)
          {
-            gl.glPushMatrix();
-            gl.glTranslatef(drawCard.x, drawCard.y, 0.0f);
-            cardBack.draw(gl);
-            gl.glPopMatrix();
+            cardBack.draw(gl, drawCard.x, drawCard.y);
          }
          else
          {
-            gl.glPushMatrix();
-            gl.glTranslatef(drawCard.x, drawCard.y, 0.0f);
-            cardFrame.drawDim(gl);
-            gl.glPopMatrix();
+            cardFrame.drawDim(gl, drawCard.x, drawCard.y);
          }
 
-         gl.glPushMatrix();
-         gl.glTranslatef(myScoreCard.x, myScoreCard.y, 0.0f);
-         numberCards[view.myScore].draw(gl);
-         gl.glPopMatrix();
+         numberCards[view.game.state.getMyScore()].draw(gl, myScoreCard.x, myScoreCard.y);
 
-         gl.glPushMatrix();
-         gl.glTranslatef(otherScoreCard.x, otherScoreCard.y, 0.0f);
-         numberCards[view.otherScore].draw(gl);
-         gl.glPopMatrix();
+         numberCards[view.game.state.getOtherScore()].draw(gl, otherScoreCard.x, otherScoreCard.y);
 
-         offset = (float)view.exchange.getCount() * cardOffset;
+         offset = (float)view.game.exchange.getCount() * cardOffset;
          if (offset > 0.0f)
          {
             for (k = 3; k >= 0; k--)
             {
-               if (view.exchange.cards[k] != null)
+               if (view.game.exchange.hasCard(k))
                {
-                  gl.glPushMatrix();
                   offset -= cardOffset;
-                  gl.glTranslatef((int)((float)exchangeCard.x + offset), exchangeCard.y, 0.0f);
-                  if (view.exchange.visibility == CARD_VISIBILITY.FACE_DOWN)
+                  if (view.game.exchange.getVisibility() == CARD_VISIBILITY.FACE_DOWN)
                   {
-                     cardBack.draw(gl);
+                     cardBack.draw(gl, (int)((float)exchangeCard.x + offset), exchangeCard.y);
                   }
                   else
                   {
-                     j = view.exchange.cards[k].rank;
-                     cards[k][j].draw(gl);
+                     j = view.game.exchange.getRank();
+                     cards[k][j].draw(gl, (int)((float)exchangeCard.x + offset), exchangeCard.y);
                   }
-                  gl.glPopMatrix();
                }
             }
          }
          else
          {
-            gl.glPushMatrix();
-            gl.glTranslatef(exchangeCard.x, exchangeCard.y, 0.0f);
-            cardFrame.draw(gl);
-            gl.glPopMatrix();
+            cardFrame.draw(gl, exchangeCard.x, exchangeCard.y);
          }
 
-         switch (view.myStage.visibility)
+         switch (view.game.myStage.getVisibility())
          {
          case FACE_UP:
          case FACE_DOWN:
-            offset = (float)view.myStage.getCount() * cardOffset;
+            offset = (float)view.game.myStage.getCount() * cardOffset;
             if (offset > 0.0f)
             {
                for (k = 3; k >= 0; k--)
                {
-                  if (view.myStage.cards[k] != null)
+                  if (view.game.myStage.hasCard(k))
                   {
-                     gl.glPushMatrix();
                      offset -= cardOffset;
-                     gl.glTranslatef((int)((float)myStageCard.x + offset), myStageCard.y, 0.0f);
-                     if (view.myStage.visibility == CARD_VISIBILITY.FACE_DOWN)
+                     if (view.game.myStage.getVisibility() == CARD_VISIBILITY.FACE_DOWN)
                      {
-                        cardBack.draw(gl);
+                        cardBack.draw(gl, (int)((float)myStageCard.x + offset), myStageCard.y);
                      }
                      else
                      {
-                        cards[k][view.myStage.rank].draw(gl);
+                        cards[k][view.game.myStage.getRank()].draw(gl, (int)((float)myStageCard.x + offset), myStageCard.y);
                      }
-                     gl.glPopMatrix();
                   }
                }
             }
             break;
 
          case RANK:
-            gl.glPushMatrix();
-            gl.glTranslatef(myStageCard.x, myStageCard.y, 0.0f);
-            switch (view.myStage.rank)
+            switch (view.game.myStage.getRank())
             {
             case ACE_CARD:
-               Acard.draw(gl);
+               Acard.draw(gl, myStageCard.x, myStageCard.y);
                break;
 
             case JACK_CARD:
-               Jcard.draw(gl);
+               Jcard.draw(gl, myStageCard.x, myStageCard.y);
                break;
 
             case QUEEN_CARD:
-               Qcard.draw(gl);
+               Qcard.draw(gl, myStageCard.x, myStageCard.y);
                break;
 
             case KING_CARD:
-               Kcard.draw(gl);
+               Kcard.draw(gl, myStageCard.x, myStageCard.y);
                break;
 
             default:
-               numberCards[view.myStage.rank + 1].draw(gl);
+               numberCards[view.game.myStage.getRank() + 1].draw(gl, myStageCard.x, myStageCard.y);
             }
-            gl.glPopMatrix();
             break;
 
          case HIDDEN:
-            gl.glPushMatrix();
-            gl.glTranslatef(myStageCard.x, myStageCard.y, 0.0f);
-            cardFrame.draw(gl);
-            gl.glPopMatrix();
+            cardFrame.draw(gl, myStageCard.x, myStageCard.y);
          }
 
-         switch (view.otherStage.visibility)
+         switch (view.game.otherStage.getVisibility())
          {
          case FACE_UP:
          case FACE_DOWN:
-            offset = (float)view.otherStage.getCount() * cardOffset;
+            offset = (float)view.game.otherStage.getCount() * cardOffset;
             if (offset > 0.0f)
             {
                for (k = 3; k >= 0; k--)
                {
-                  if (view.otherStage.cards[k] != null)
+                  if (view.game.otherStage.hasCard(k))
                   {
-                     gl.glPushMatrix();
                      offset -= cardOffset;
-                     gl.glTranslatef((int)((float)otherStageCard.x + offset), otherStageCard.y, 0.0f);
-                     if (view.otherStage.visibility == CARD_VISIBILITY.FACE_DOWN)
+                     if (view.game.otherStage.getVisibility() == CARD_VISIBILITY.FACE_DOWN)
                      {
-                        cardBack.draw(gl);
+                        cardBack.draw(gl, (int)((float)otherStageCard.x + offset), otherStageCard.y);
                      }
                      else
                      {
-                        cards[k][view.otherStage.rank].draw(gl);
+                        cards[k][view.game.otherStage.getRank()].draw(gl, (int)((float)otherStageCard.x + offset), otherStageCard.y);
                      }
-                     gl.glPopMatrix();
                   }
                }
             }
             break;
 
          case RANK:
-            gl.glPushMatrix();
-            gl.glTranslatef(otherStageCard.x, otherStageCard.y, 0.0f);
-            switch (view.otherStage.rank)
+            switch (view.game.otherStage.getRank())
             {
             case ACE_CARD:
-               Acard.draw(gl);
+               Acard.draw(gl, otherStageCard.x, otherStageCard.y);
                break;
 
             case JACK_CARD:
-               Jcard.draw(gl);
+               Jcard.draw(gl, otherStageCard.x, otherStageCard.y);
                break;
 
             case QUEEN_CARD:
-               Qcard.draw(gl);
+               Qcard.draw(gl, otherStageCard.x, otherStageCard.y);
                break;
 
             case KING_CARD:
-               Kcard.draw(gl);
+               Kcard.draw(gl, otherStageCard.x, otherStageCard.y);
                break;
 
             default:
-               numberCards[view.otherStage.rank + 1].draw(gl);
+               numberCards[view.game.otherStage.getRank() + 1].draw(gl, otherStageCard.x, otherStageCard.y);
             }
-            gl.glPopMatrix();
             break;
 
          case HIDDEN:
-            gl.glPushMatrix();
-            gl.glTranslatef(otherStageCard.x, otherStageCard.y, 0.0f);
-            cardFrame.draw(gl);
-            gl.glPopMatrix();
+            cardFrame.draw(gl, otherStageCard.x, otherStageCard.y);
          }
 
          // Draw reset button.
-         gl.glPushMatrix();
-         gl.glTranslatef(resetButtonDraw.x, resetButtonDraw.y, 0.0f);
-         resetButton.draw(gl);
-         gl.glPopMatrix();
+         resetButton.draw(gl, resetButtonDraw.x, resetButtonDraw.y);
 
          // Draw state-dependent arrows.
-         switch (view.gameState)
+         switch (view.game.state.gameState)
          {
          case START:
             break;
 
          case MY_TURN:
-            gl.glPushMatrix();
-            gl.glTranslatef(myHandLeftArrow.x, myHandLeftArrow.y, 0.0f);
-            gl.glRotatef(90.0f, 0.0f, 0.0f, 1.0f);
-            arrow.draw(gl);
-            gl.glPopMatrix();
-            gl.glPushMatrix();
-            gl.glTranslatef(myHandRightArrow.x, myHandRightArrow.y, 0.0f);
-            gl.glRotatef(-90.0f, 0.0f, 0.0f, 1.0f);
-            arrow.draw(gl);
-            gl.glPopMatrix();
-            gl.glPushMatrix();
-            gl.glTranslatef(myHandToStageArrow.x, myHandToStageArrow.y, 0.0f);
-            arrow.draw(gl);
-            gl.glPopMatrix();
+            arrow.draw(gl, myHandLeftArrow.x, myHandLeftArrow.y, 90.0f);
+            arrow.draw(gl, myHandRightArrow.x, myHandRightArrow.y, -90.0f);
+            arrow.draw(gl, myHandToStageArrow.x, myHandToStageArrow.y, 0.0f);
             break;
 
          case MY_HAND_TO_STAGE_SHIFT:
-            gl.glPushMatrix();
-            gl.glTranslatef(myHandLeftArrow.x, myHandLeftArrow.y, 0.0f);
-            gl.glRotatef(90.0f, 0.0f, 0.0f, 1.0f);
-            arrow.draw(gl);
-            gl.glPopMatrix();
-            gl.glPushMatrix();
-            gl.glTranslatef(myHandRightArrow.x, myHandRightArrow.y, 0.0f);
-            gl.glRotatef(-90.0f, 0.0f, 0.0f, 1.0f);
-            arrow.draw(gl);
-            gl.glPopMatrix();
+            arrow.draw(gl, myHandLeftArrow.x, myHandLeftArrow.y, 90.0f);
+            arrow.draw(gl, myHandRightArrow.x, myHandRightArrow.y, -90.0f);
             break;
 
          case MY_HAND_TO_STAGE_ONLY:
-            gl.glPushMatrix();
-            gl.glTranslatef(myHandToStageArrow.x, myHandToStageArrow.y, 0.0f);
-            arrow.draw(gl);
-            gl.glPopMatrix();
+            arrow.draw(gl, myHandToStageArrow.x, myHandToStageArrow.y, 0.0f);
             break;
 
          case MY_STAGE_TO_HAND:
-            gl.glPushMatrix();
-            gl.glTranslatef(myHandToStageArrow.x, myHandToStageArrow.y, 0.0f);
-            gl.glRotatef(180.0f, 0.0f, 0.0f, 1.0f);
-            arrow.draw(gl);
-            gl.glPopMatrix();
+            arrow.draw(gl, myHandToStageArrow.x, myHandToStageArrow.y, 180.0f);
             break;
 
          case MY_STAGE_TO_EXCHANGE:
-            gl.glPushMatrix();
-            gl.glTranslatef(myStageToExchangeArrow.x, myStageToExchangeArrow.y, 0.0f);
-            arrow.draw(gl);
-            gl.glPopMatrix();
+            arrow.draw(gl, myStageToExchangeArrow.x, myStageToExchangeArrow.y, 0.0f);
             break;
 
          case MY_STAGE_TO_SCORE:
-            gl.glPushMatrix();
-            gl.glTranslatef(myScoreToStageArrow.x, myScoreToStageArrow.y, 0.0f);
-            gl.glRotatef(90.0f, 0.0f, 0.0f, 1.0f);
-            arrow.draw(gl);
-            gl.glPopMatrix();
+            arrow.draw(gl, myScoreToStageArrow.x, myScoreToStageArrow.y, 90.0f);
             break;
 
          case EXCHANGE_TO_MY_STAGE:
-            gl.glPushMatrix();
-            gl.glTranslatef(myStageToExchangeArrow.x, myStageToExchangeArrow.y, 0.0f);
-            gl.glRotatef(180.0f, 0.0f, 0.0f, 1.0f);
-            arrow.draw(gl);
-            gl.glPopMatrix();
+            arrow.draw(gl, myStageToExchangeArrow.x, myStageToExchangeArrow.y, 180.0f);
             break;
 
          case OTHER_TURN:
-            gl.glPushMatrix();
-            gl.glTranslatef(otherHandToStageArrow.x, otherHandToStageArrow.y, 0.0f);
-            gl.glRotatef(180.0f, 0.0f, 0.0f, 1.0f);
-            arrow.draw(gl);
-            gl.glPopMatrix();
+            arrow.draw(gl, otherHandToStageArrow.x, otherHandToStageArrow.y, 180.0f);
             break;
 
          case OTHER_HAND_TO_STAGE:
-            gl.glPushMatrix();
-            gl.glTranslatef(otherHandToStageArrow.x, otherHandToStageArrow.y, 0.0f);
-            gl.glRotatef(180.0f, 0.0f, 0.0f, 1.0f);
-            arrow.draw(gl);
-            gl.glPopMatrix();
+            arrow.draw(gl, otherHandToStageArrow.x, otherHandToStageArrow.y, 180.0f);
             break;
 
          case OTHER_STAGE_TO_HAND:
-            gl.glPushMatrix();
-            gl.glTranslatef(otherHandToStageArrow.x, otherHandToStageArrow.y, 0.0f);
-            arrow.draw(gl);
-            gl.glPopMatrix();
+            arrow.draw(gl, otherHandToStageArrow.x, otherHandToStageArrow.y, 0.0f);
             break;
 
          case OTHER_STAGE_TO_EXCHANGE:
-            gl.glPushMatrix();
-            gl.glTranslatef(otherStageToExchangeArrow.x, otherStageToExchangeArrow.y, 0.0f);
-            gl.glRotatef(180.0f, 0.0f, 0.0f, 1.0f);
-            arrow.draw(gl);
-            gl.glPopMatrix();
+            arrow.draw(gl, otherStageToExchangeArrow.x, otherStageToExchangeArrow.y, 180.0f);
             break;
 
          case OTHER_STAGE_TO_SCORE:
-            gl.glPushMatrix();
-            gl.glTranslatef(otherScoreToStageArrow.x, otherScoreToStageArrow.y, 0.0f);
-            gl.glRotatef(90.0f, 0.0f, 0.0f, 1.0f);
-            arrow.draw(gl);
-            gl.glPopMatrix();
+            arrow.draw(gl, otherScoreToStageArrow.x, otherScoreToStageArrow.y, 90.0f);
             break;
 
          case EXCHANGE_TO_OTHER_STAGE:
-            gl.glPushMatrix();
-            gl.glTranslatef(otherStageToExchangeArrow.x, otherStageToExchangeArrow.y, 0.0f);
-            arrow.draw(gl);
-            gl.glPopMatrix();
+            arrow.draw(gl, otherStageToExchangeArrow.x, otherStageToExchangeArrow.y, 0.0f);
             break;
 
          case MY_DRAW_TO_EXCHANGE:
-            gl.glPushMatrix();
-            gl.glTranslatef(exchangeToDrawArrow.x, exchangeToDrawArrow.y, 0.0f);
-            gl.glRotatef(90.0f, 0.0f, 0.0f, 1.0f);
-            arrow.draw(gl);
-            gl.glPopMatrix();
+            arrow.draw(gl, exchangeToDrawArrow.x, exchangeToDrawArrow.y, 90.0f);
             break;
 
          case OTHER_DRAW_TO_EXCHANGE:
-            gl.glPushMatrix();
-            gl.glTranslatef(exchangeToDrawArrow.x, exchangeToDrawArrow.y, 0.0f);
-            gl.glRotatef(90.0f, 0.0f, 0.0f, 1.0f);
-            arrow.draw(gl);
-            gl.glPopMatrix();
+            arrow.draw(gl, exchangeToDrawArrow.x, exchangeToDrawArrow.y, 90.0f);
             break;
+         }
+         spriteBatch.end(gl);
 
+         // Draw outcome.
+         switch (view.game.state.gameState)
+         {
          case MY_WIN:
             drawText(gl, "You win!", myScoreCard.x, exchangeCard.y);
             break;
@@ -1225,201 +1108,92 @@ public class GoFishRenderer implements GLSurfaceView.Renderer
          case TIE:
             drawText(gl, "Tie", myScoreCard.x, exchangeCard.y);
             break;
+
+         default:
+            break;
          }
       }
+
+
+      // Draw a layout line one pixel wide.
+      private void drawLine(GL10 gl, Point begin, Point end)
+      {
+         spriteBatch.setColor(1.0f, 1.0f, 1.0f, 1.0f);
+         spriteBatch.drawLine(gl, whiteTextureID, begin.x, begin.y, end.x, end.y, 1.0f, whiteU, whiteV);
+      }
    }
 
-   // Card.
+   // Card: an atlas image drawn at card size.
    public class Card
    {
       public int textureID;
 
-      protected FloatBuffer vertexBuffer;
-      protected float       vertices[] =
-      {
-         0.0f, 0.0f, 0.0f,
-         0.0f, 1.0f, 0.0f,
-         1.0f, 0.0f, 0.0f,
-         1.0f, 1.0f, 0.0f
-      };
+      // Image, size and texture rectangle.
+      int   image;
+      float width, height;
+      float left, top, right, bottom;
 
-      protected FloatBuffer textureBuffer;
-      protected float       texture[] =
+      public Card(int image)
       {
-         0.0f, 1.0f,
-         0.0f, 0.0f,
-         1.0f, 1.0f,
-         1.0f, 0.0f
-      };
-
-      public Card(String imageFile, float width, float height,
-                  GL10 gl, Context context)
-      {
-         createTexture(imageFile, gl, context);
-         ByteBuffer byteBuffer = ByteBuffer.allocateDirect(vertices.length * 4);
-         byteBuffer.order(ByteOrder.nativeOrder());
-         vertexBuffer = byteBuffer.asFloatBuffer();
-         for (int i = 0; i < VERTS; i++)
-         {
-            vertices[i * 3]     *= width;
-            vertices[i * 3 + 1] *= height;
-         }
-         vertexBuffer.put(vertices);
-         vertexBuffer.position(0);
-         byteBuffer = ByteBuffer.allocateDirect(texture.length * 4);
-         byteBuffer.order(ByteOrder.nativeOrder());
-         textureBuffer = byteBuffer.asFloatBuffer();
-         textureBuffer.put(texture);
-         textureBuffer.position(0);
+         this.image = image;
       }
 
 
-      public Card() {}
-
-      // Create texture from image file.
-      private void createTexture(String imageFile, GL10 gl, Context context)
+      // Take the texture rectangle from the loaded atlas.
+      public void bind()
       {
-         InputStream is = null;
-
-         try
-         {
-            is = context.getAssets().open(imageFile);
-         }
-         catch (IOException e) {}
-         if (is == null)
-         {
-            Log.d("GoFish", "Cannot open card texture file " + imageFile);
-            return;
-         }
-         Bitmap b = null;
-         try {
-            b = BitmapFactory.decodeStream(is);
-         }
-         finally {
-            try {
-               is.close();
-            }
-            catch (IOException e) {}
-         }
-         if (b == null)
-         {
-            Log.d("GoFish", "Cannot create card texture bitmap from image file " + imageFile);
-            return;
-         }
-         int w = b.getWidth();
-         int h = b.getHeight();
-         int w2, h2;
-         for (w2 = 2; w2 < w; w2 *= 2) {}
-         for (h2 = 2; h2 < h; h2 *= 2) {}
-         Bitmap b2 = resize(b, w2, h2);
-         b.recycle();
-         b = b2;
-         int[] textures = new int[1];
-         gl.glGenTextures(1, textures, 0);
-         textureID = textures[0];
-         gl.glBindTexture(GL10.GL_TEXTURE_2D, textureID);
-         gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_MIN_FILTER, GL10.GL_NEAREST);
-         gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_MAG_FILTER, GL10.GL_LINEAR);
-         GLUtils.texImage2D(GL10.GL_TEXTURE_2D, 0, b, 0);
-         b.recycle();
+         textureID = cardAtlas.getTextureID(image);
+         left      = cardAtlas.getLeft(image);
+         top       = cardAtlas.getTop(image);
+         right     = cardAtlas.getRight(image);
+         bottom    = cardAtlas.getBottom(image);
       }
 
 
-      // Resize bitmap.
-      protected Bitmap resize(Bitmap bitmap, int newHeight, int newWidth)
+      public void setSize(float width, float height)
       {
-         int   width       = bitmap.getWidth();
-         int   height      = bitmap.getHeight();
-         float scaleWidth  = ((float)newWidth) / width;
-         float scaleHeight = ((float)newHeight) / height;
-
-         // create a matrix for the manipulation
-         Matrix matrix = new Matrix();
-
-         matrix.postScale(scaleWidth, scaleHeight);
-
-         // resize the Bitmap
-         Bitmap resizedBitmap = Bitmap.createBitmap(bitmap, 0, 0, width, height, matrix, false);
-         return(resizedBitmap);
+         this.width  = width;
+         this.height = height;
       }
 
 
-      public void draw(GL10 gl)
+      public void draw(GL10 gl, float x, float y)
       {
-         gl.glBindTexture(GL10.GL_TEXTURE_2D, textureID);
-         gl.glEnable(GL10.GL_TEXTURE_2D);
-         gl.glEnableClientState(GL10.GL_VERTEX_ARRAY);
-         gl.glEnableClientState(GL10.GL_TEXTURE_COORD_ARRAY);
-         gl.glFrontFace(GL10.GL_CW);
-         gl.glCullFace(GL10.GL_BACK);
-         gl.glVertexPointer(3, GL10.GL_FLOAT, 0, vertexBuffer);
-         gl.glTexCoordPointer(2, GL10.GL_FLOAT, 0, textureBuffer);
-         gl.glDrawArrays(GL10.GL_TRIANGLE_STRIP, 0, vertices.length / 3);
-         gl.glDisableClientState(GL10.GL_VERTEX_ARRAY);
-         gl.glDisableClientState(GL10.GL_TEXTURE_COORD_ARRAY);
+         spriteBatch.setColor(1.0f, 1.0f, 1.0f, 1.0f);
+         spriteBatch.drawQuad(gl, textureID, x, y, width, height, left, top, right, bottom);
       }
-
-
-      private final static int VERTS = 4;
    }
 
    // Card frame.
    class CardFrame
    {
+      float width, height;
+
       public CardFrame(float width, float height)
       {
-         ByteBuffer vbb = ByteBuffer.allocateDirect(VERTS * 2 * 4);
-
-         vbb.order(ByteOrder.nativeOrder());
-         mFVertexBuffer = vbb.asFloatBuffer();
-
-         float[] vertCoords =
-         {
-            0.0f, 0.0f,
-            0.0f, 1.0f,
-            1.0f, 1.0f,
-            1.0f, 1.0f,
-            1.0f, 0.0f,
-            0.0f, 0.0f
-         };
-
-         for (int i = 0; i < VERTS; i++)
-         {
-            mFVertexBuffer.put(vertCoords[i * 2] * width);
-            mFVertexBuffer.put(vertCoords[i * 2 + 1] * height);
-         }
-         mFVertexBuffer.position(0);
+         this.width  = width;
+         this.height = height;
       }
 
 
-      public void draw(GL10 gl)
+      public void draw(GL10 gl, float x, float y)
       {
-         gl.glColor4f(1.0f, 1.0f, 1.0f, 1.0f);
-         drawCommon(gl);
+         spriteBatch.setColor(1.0f, 1.0f, 1.0f, 1.0f);
+         drawCommon(gl, x, y);
       }
 
 
-      public void drawDim(GL10 gl)
+      public void drawDim(GL10 gl, float x, float y)
       {
-         gl.glColor4f(0.5f, 0.5f, 0.5f, 1.0f);
-         drawCommon(gl);
+         spriteBatch.setColor(0.5f, 0.5f, 0.5f, 1.0f);
+         drawCommon(gl, x, y);
       }
 
 
-      private void drawCommon(GL10 gl)
+      private void drawCommon(GL10 gl, float x, float y)
       {
-         gl.glDisable(GL10.GL_TEXTURE_2D);
-         gl.glEnableClientState(GL10.GL_VERTEX_ARRAY);
-         gl.glFrontFace(GL10.GL_CW);
-         gl.glCullFace(GL10.GL_BACK);
-         gl.glVertexPointer(2, GL10.GL_FLOAT, 0, mFVertexBuffer);
-         gl.glDrawArrays(GL10.GL_TRIANGLES, 0, VERTS);
-         gl.glDisableClientState(GL10.GL_VERTEX_ARRAY);
+         spriteBatch.drawQuad(gl, whiteTextureID, x, y, width, height, whiteU, whiteV, whiteU, whiteV);
       }
-
-
-      private final static int VERTS = 6;
-      private FloatBuffer      mFVertexBuffer;
    }
 
    // Arrow.
@@ -1427,10 +1201,7 @@ public class GoFishRenderer implements GLSurfaceView.Renderer
    {
       public Arrow(float size)
       {
-         ByteBuffer vbb = ByteBuffer.allocateDirect(VERTS * 2 * 4);
-
-         vbb.order(ByteOrder.nativeOrder());
-         mFVertexBuffer = vbb.asFloatBuffer();
+         vertices = new float[VERTS * 2];
 
          float[] vertCoords =
          {
@@ -1439,138 +1210,35 @@ public class GoFishRenderer implements GLSurfaceView.Renderer
             0.5f, -0.433f
          };
 
-         for (int i = 0; i < VERTS; i++)
+         for (int i = 0; i < VERTS * 2; i++)
          {
-            for (int j = 0; j < 2; j++)
-            {
-               mFVertexBuffer.put(vertCoords[i * 2 + j] * size);
-            }
+            vertices[i] = vertCoords[i] * size;
          }
-         mFVertexBuffer.position(0);
       }
 
 
-      public void draw(GL10 gl)
+      // Draw centered at x, y, rotated counterclockwise by degrees.
+      public void draw(GL10 gl, float x, float y, float degrees)
       {
-         gl.glDisable(GL10.GL_TEXTURE_2D);
-         gl.glColor4f(1.0f, 1.0f, 1.0f, 1.0f);
-         gl.glEnableClientState(GL10.GL_VERTEX_ARRAY);
-         gl.glFrontFace(GL10.GL_CW);
-         gl.glCullFace(GL10.GL_BACK);
-         gl.glVertexPointer(2, GL10.GL_FLOAT, 0, mFVertexBuffer);
-         gl.glDrawArrays(GL10.GL_TRIANGLES, 0, VERTS);
-         gl.glDisableClientState(GL10.GL_VERTEX_ARRAY);
-      }
-
-
-      private final static int VERTS = 3;
-      private FloatBuffer      mFVertexBuffer;
-   }
-
-   // Reset button.
-   public class ResetButton
-   {
-      public int textureID;
+         double radians = Math.toRadians(degrees);
+         float  c       = (float)Math.cos(radians);
+         float  s       = (float)Math.sin(radians);
 
-      protected FloatBuffer vertexBuffer;
-      protected float       vertices[] =
-      {
-         0.0f, 0.0f, 0.0f,
-         0.0f, 1.0f, 0.0f,
-         1.0f, 0.0f, 0.0f,
-         1.0f, 1.0f, 0.0f
-      };
-
-      protected FloatBuffer textureBuffer;
-      protected float       texture[] =
-      {
-         0.0f, 1.0f,
-         0.0f, 0.0f,
-         1.0f, 1.0f,
-         1.0f, 0.0f
-      };
-
-      public ResetButton(String imageFile, float width, float height,
-                         GL10 gl, Context context)
-      {
-         createTexture(imageFile, gl, context);
-         ByteBuffer byteBuffer = ByteBuffer.allocateDirect(vertices.length * 4);
-         byteBuffer.order(ByteOrder.nativeOrder());
-         vertexBuffer = byteBuffer.asFloatBuffer();
          for (int i = 0; i < VERTS; i++)
          {
-            vertices[i * 3]     *= width;
-            vertices[i * 3 + 1] *= height;
+            float vx = vertices[i * 2];
+            float vy = vertices[i * 2 + 1];
+            rotated[i * 2]     = x + (vx * c) - (vy * s);
+            rotated[i * 2 + 1] = y + (vx * s) + (vy * c);
          }
-         vertexBuffer.put(vertices);
-         vertexBuffer.position(0);
-         byteBuffer = ByteBuffer.allocateDirect(texture.length * 4);
-         byteBuffer.order(ByteOrder.nativeOrder());
-         textureBuffer = byteBuffer.asFloatBuffer();
-         textureBuffer.put(texture);
-         textureBuffer.position(0);
+         spriteBatch.setColor(1.0f, 1.0f, 1.0f, 1.0f);
+         spriteBatch.drawTriangle(gl, whiteTextureID, rotated[0], rotated[1], rotated[2], rotated[3],
+                                  rotated[4], rotated[5], whiteU, whiteV);
       }
 
 
-      public ResetButton() {}
-
-      // Create texture from image file.
-      private void createTexture(String imageFile, GL10 gl, Context context)
-      {
-         InputStream is = null;
-
-         try
-         {
-            is = context.getAssets().open(imageFile);
-         }
-         catch (IOException e) {}
-         if (is == null)
-         {
-            Log.d("GoFish", "Cannot open reset button texture file " + imageFile);
-            return;
-         }
-         Bitmap b = null;
-         try {
-            b = BitmapFactory.decodeStream(is);
-         }
-         finally {
-            try {
-               is.close();
-            }
-            catch (IOException e) {}
-         }
-         if (b == null)
-         {
-            Log.d("GoFish", "Cannot create reset button texture bitmap from image file " + imageFile);
-            return;
-         }
-         int[] textures = new int[1];
-         gl.glGenTextures(1, textures, 0);
-         textureID = textures[0];
-         gl.glBindTexture(GL10.GL_TEXTURE_2D, textureID);
-         gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_MIN_FILTER, GL10.GL_NEAREST);
-         gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_MAG_FILTER, GL10.GL_LINEAR);
-         GLUtils.texImage2D(GL10.GL_TEXTURE_2D, 0, b, 0);
-         b.recycle();
-      }
-
-
-      public void draw(GL10 gl)
-      {
-         gl.glBindTexture(GL10.GL_TEXTURE_2D, textureID);
-         gl.glEnable(GL10.GL_TEXTURE_2D);
-         gl.glEnableClientState(GL10.GL_VERTEX_ARRAY);
-         gl.glEnableClientState(GL10.GL_TEXTURE_COORD_ARRAY);
-         gl.glFrontFace(GL10.GL_CW);
-         gl.glCullFace(GL10.GL_BACK);
-         gl.glVertexPointer(3, GL10.GL_FLOAT, 0, vertexBuffer);
-         gl.glTexCoordPointer(2, GL10.GL_FLOAT, 0, textureBuffer);
-         gl.glDrawArrays(GL10.GL_TRIANGLE_STRIP, 0, vertices.length / 3);
-         gl.glDisableClientState(GL10.GL_VERTEX_ARRAY);
-         gl.glDisableClientState(GL10.GL_TEXTURE_COORD_ARRAY);
-      }
-
-
-      private final static int VERTS = 4;
+      private final static int VERTS = 3;
+      private float[]          vertices;
+      private final float[]    rotated = new float[VERTS * 2];
    }
 }
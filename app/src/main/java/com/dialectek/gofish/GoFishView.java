@@ -2,21 +2,39 @@
 
 package com.dialectek.gofish;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.Random;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
 import java.util.UUID;
-import java.util.Vector;
-
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.dialectek.gofish.engine.GameRecord;
+import com.dialectek.gofish.engine.GameState;
+import com.dialectek.gofish.engine.GoFishGame;
+import com.dialectek.gofish.engine.GoFishGame.GAME_STATE;
+import com.dialectek.gofish.engine.IsmctsStrategy;
+import com.dialectek.gofish.engine.MoveJournal;
+import com.dialectek.gofish.engine.Replayer;
+import com.dialectek.gofish.engine.SaveFile;
+import com.dialectek.gofish.engine.SelfPlay;
+import com.dialectek.gofish.engine.Shuffle;
+
+import android.app.ActivityManager;
 import android.content.ActivityNotFoundException;
 import android.content.Context;
 import android.content.Intent;
 import android.graphics.Point;
 import android.opengl.GLSurfaceView;
+import android.os.Build;
 import android.util.Log;
 import android.view.GestureDetector;
 import android.view.KeyEvent;
@@ -29,69 +47,32 @@ implements GestureDetector.OnGestureListener
    private static final String LOG_TAG =
       GoFishView.class .getSimpleName();
 
-   // Card suits.
-   public final int CLUBS    = 0;
-   public final int DIAMONDS = 1;
-   public final int HEARTS   = 2;
-   public final int SPADES   = 3;
-
-   // Cards.
-   public                 RankSet[] myHand;
-   public                 RankSet[] otherHand;
-   public Vector<RankSet> myScoreRanks;
-   public Vector<RankSet> otherScoreRanks;
-   public RankSet         myStage;
-   public RankSet         otherStage;
-   public RankSet         exchange;
-   public                 Card[] deck;
-   public int             deckDeal;
-   public int             askRank;
-   public int             myHandShift;
-
-   // Game state.
-   public enum GAME_STATE
-   {
-      START,
-      MY_TURN,
-      MY_HAND_TO_STAGE_SHIFT,
-      MY_HAND_TO_STAGE_ONLY,
-      MY_STAGE_TO_HAND,
-      MY_STAGE_TO_EXCHANGE,
-      MY_STAGE_TO_SCORE,
-      EXCHANGE_TO_MY_STAGE,
-      OTHER_TURN,
-      OTHER_HAND_TO_STAGE,
-      OTHER_STAGE_TO_HAND,
-      OTHER_STAGE_TO_EXCHANGE,
-      OTHER_STAGE_TO_SCORE,
-      EXCHANGE_TO_OTHER_STAGE,
-      MY_DRAW_TO_EXCHANGE,
-      OTHER_DRAW_TO_EXCHANGE,
-      MY_WIN,
-      OTHER_WIN,
-      TIE
-   };
-   public GAME_STATE gameState;
-   public int        myScore, otherScore;
-
-   // Player card rank knowledge.
-   public enum RANK_KNOWLEDGE
-   {
-      DOES_HAVE,
-      DOES_NOT_HAVE,
-      MIGHT_HAVE,
-      CANNOT_HAVE
-   };
-   public RANK_KNOWLEDGE[] rankKnowledge;
+   // Game.
+   public GoFishGame game;
+
+   // Other player move search.
+   static final long       MOVE_TIME_LIMIT = 400000000L;
+   IsmctsStrategy          search;
+   ExecutorService         moveExecutor;
+   Future<?>               otherMove;
+   int                     moveGeneration;
 
    // Context.
    Context context;
 
-   // Renderer.
-   GoFishRenderer renderer;
+   // Renderer, using GLES 2.0 shaders when the device supports them.
+   static final boolean GLES2_ENABLED = true;
+   GoFishRenderer       renderer;
+
+   // Frame scheduler.
+   FrameScheduler scheduler;
+
+   // Fair play: deal from a secure generator instead of a seed.
+   static final boolean FAIR_PLAY = false;
 
-   // Random numbers.
-   Random random;
+   // Frame statistics display, toggled with the F key, and export.
+   static final boolean FRAME_STATS_ENABLED = false;
+   static final String  FRAME_STATS_FILE    = "framestats.csv";
 
    // Viewing manual?
    boolean viewManual;
@@ -103,30 +84,90 @@ implements GestureDetector.OnGestureListener
    float           moveX, moveY;
    boolean         swipeDone;
 
-   // Save file path.
-   String savePath;
+   // Save file paths and buffers. Each move is appended to a journal
+   // and the state snapshot is rewritten every JOURNAL_MOVES moves.
+   // Writes are made on a background thread, snapshots from copies
+   // taken under the lock.
+   static final int JOURNAL_MOVES = 256;
+   String           savePath;
+   String           legacySavePath;
+   ByteBuffer       loadBuffer;
+   ByteBuffer       saveBuffer;
+   MoveJournal      journal;
+   long             saveEpoch;
+   int              journalMoves;
+   ExecutorService  saveExecutor;
+   Future<?>        pendingSave;
+
+   // Game recording: the moves of the current game are journaled
+   // with its seed, and finished games appended to the records file.
+   // Past its size limit the oldest games are dropped down to half of
+   // it, so the file stays bounded and is rarely rewritten.
+   static final long MAX_RECORDS_SIZE = 1L << 20;
+   String           recordsPath;
+   MoveJournal      gameJournal;
+   boolean          recording;
 
    // Constructor.
-   public GoFishView(Context context, String savePath, UUID id)
+   public GoFishView(Context context, String savePath, String legacySavePath,
+                     String recordsPath, UUID id)
    {
       super(context);
-      this.context  = context;
-      this.savePath = savePath;
-
-      // Random numbers.
-      random = new Random();
-
-      // Initialize game.
-      init();
+      this.context        = context;
+      this.savePath       = savePath;
+      this.legacySavePath = legacySavePath;
+      loadBuffer          = ByteBuffer.allocate(SaveFile.SIZE);
+      saveBuffer          = ByteBuffer.allocate(SaveFile.SIZE);
+      journal             = new MoveJournal(new File(savePath + ".journal"));
+      saveEpoch           = 0L;
+      journalMoves        = 0;
+      saveExecutor        = Executors.newSingleThreadExecutor();
+      pendingSave         = null;
+      this.recordsPath    = recordsPath;
+      gameJournal         = new MoveJournal(new File(savePath + ".game"));
+      recording           = false;
+
+      // Create game. Seeds come from a secure generator so deals
+      // cannot be predicted, yet each game replays from its record.
+      // In fair play games are dealt from the secure generator itself
+      // and, having no seed, are not recorded.
+      game = new GoFishGame(new SecureRandom(), FAIR_PLAY);
+
+      // Search other player moves in the background, leaving a core
+      // for the renderer where there is more than one.
+      int threads = 1;
+      if (Build.VERSION.SDK_INT >= 21)
+      {
+         threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+      }
+      search         = new IsmctsStrategy(IsmctsStrategy.DEFAULT_ITERATIONS, MOVE_TIME_LIMIT,
+                                          threads, IsmctsStrategy.DEFAULT_MAX_NODES);
+      game.strategy  = search;
+      moveExecutor   = Executors.newSingleThreadExecutor();
+      otherMove      = null;
+      moveGeneration = 0;
 
       // Not viewing manual.
       viewManual = false;
 
-      // Create renderer.
-      renderer = new GoFishRenderer(context, this);
+      // Create renderer, with shaders where GLES 2.0 is available.
+      boolean gles2 = false;
+      if (GLES2_ENABLED && (Build.VERSION.SDK_INT >= 8))
+      {
+         ActivityManager activityManager =
+            (ActivityManager)context.getSystemService(Context.ACTIVITY_SERVICE);
+         gles2 = activityManager.getDeviceConfigurationInfo().reqGlEsVersion >= 0x20000;
+      }
+      if (gles2)
+      {
+         setEGLContextClientVersion(2);
+      }
+      renderer = new GoFishRenderer(context, this, gles2);
+      renderer.frameStatsEnabled = FRAME_STATS_ENABLED;
       setRenderer(renderer);
       setRenderMode(GLSurfaceView.RENDERMODE_WHEN_DIRTY);
-      requestRender();
+      scheduler = new FrameScheduler(this);
+      scheduler.requestFrame();
 
       // Create gesture detector.
       moveX     = moveY = 0.0f;
@@ -135,119 +176,6 @@ implements GestureDetector.OnGestureListener
    }
 
 
-   // Initialize game.
-   private void init()
-   {
-      // Create cards.
-      int i, j, k;
-
-      myHand = new RankSet[13];
-      for (i = 0; i < 13; i++)
-      {
-         myHand[i] = new RankSet(i);
-      }
-      otherHand = new RankSet[13];
-      for (i = 0; i < 13; i++)
-      {
-         otherHand[i] = new RankSet(i);
-      }
-      myScoreRanks          = new Vector<RankSet>();
-      otherScoreRanks       = new Vector<RankSet>();
-      myStage               = new RankSet();
-      myStage.visibility    = CARD_VISIBILITY.HIDDEN;
-      otherStage            = new RankSet();
-      otherStage.visibility = CARD_VISIBILITY.HIDDEN;
-      exchange              = new RankSet();
-      exchange.visibility   = CARD_VISIBILITY.HIDDEN;
-      deck     = new Card[52];
-      deckDeal = k = 0;
-      for (i = 0; i < 4; i++)
-      {
-         for (j = 0; j < 13; j++)
-         {
-            deck[k] = new Card(i, j);
-            k++;
-         }
-      }
-
-      // Shuffle deck.
-      Card card;
-      for (i = 0; i < 1000; i++)
-      {
-         j       = random.nextInt(52);
-         k       = random.nextInt(52);
-         card    = deck[j];
-         deck[j] = deck[k];
-         deck[k] = card;
-      }
-
-      // Deal cards.
-      for (i = 0; i < 7; i++)
-      {
-         card = deck[deckDeal];
-         deckDeal++;
-         myHand[card.rank].add(card);
-         myHand[card.rank].visibility = CARD_VISIBILITY.FACE_UP;
-         card = deck[deckDeal];
-         deckDeal++;
-         otherHand[card.rank].add(card);
-         otherHand[card.rank].visibility = CARD_VISIBILITY.FACE_DOWN;
-      }
-      askRank     = -1;
-      myHandShift = 0;
-      myScore     = otherScore = 0;
-
-      // Check for score on deal.
-      for (i = 0; i < 13; i++)
-      {
-         if (myHand[i].getCount() == 4)
-         {
-            myScore = 1;
-            myHand[i].visibility = CARD_VISIBILITY.RANK;
-            myScoreRanks.add(new RankSet(myHand[i]));
-            myHand[i].visibility    = CARD_VISIBILITY.HIDDEN;
-            otherHand[i].visibility = CARD_VISIBILITY.HIDDEN;
-            break;
-         }
-      }
-      for (i = 0; i < 13; i++)
-      {
-         if (otherHand[i].getCount() == 4)
-         {
-            otherScore = 1;
-            otherHand[i].visibility = CARD_VISIBILITY.RANK;
-            otherScoreRanks.add(new RankSet(otherHand[i]));
-            myHand[i].visibility    = CARD_VISIBILITY.HIDDEN;
-            otherHand[i].visibility = CARD_VISIBILITY.HIDDEN;
-            break;
-         }
-      }
-
-      // Start game.
-      if (myHand[6].visibility == CARD_VISIBILITY.FACE_UP)
-      {
-         gameState = GAME_STATE.MY_TURN;
-      }
-      else
-      {
-         gameState = GAME_STATE.MY_HAND_TO_STAGE_SHIFT;
-      }
-
-      rankKnowledge = new RANK_KNOWLEDGE[13];
-      for (i = 0; i < 13; i++)
-      {
-         if (myHand[i].visibility == CARD_VISIBILITY.HIDDEN)
-         {
-            rankKnowledge[i] = RANK_KNOWLEDGE.CANNOT_HAVE;
-         }
-         else
-         {
-            rankKnowledge[i] = RANK_KNOWLEDGE.MIGHT_HAVE;
-         }
-      }
-   }
-
-
    // Key press events.
    @Override
    public boolean onKeyDown(int keyCode, KeyEvent event)
@@ -272,14 +200,23 @@ implements GestureDetector.OnGestureListener
       case KeyEvent.KEYCODE_BACK:
          synchronized (renderer)
          {
-            init();
-            requestRender();
+            cancelOtherMove();
+            game.init();
+            saveGame();
+            startRecord();
          }
+         scheduler.requestFrame();
          return(true);
 
       // View manual?
       case KeyEvent.KEYCODE_SEARCH:
          return(viewManual());
+
+      // Toggle frame statistics?
+      case KeyEvent.KEYCODE_F:
+         renderer.frameStatsEnabled = !renderer.frameStatsEnabled;
+         scheduler.requestFrame();
+         return(true);
       }
 
       // Move input.
@@ -292,7 +229,7 @@ implements GestureDetector.OnGestureListener
    void doMoveInput(int keyCode)
    {
       // Game move.
-      switch (gameState)
+      switch (game.state.gameState)
       {
       case START:
          break;
@@ -460,14 +397,17 @@ implements GestureDetector.OnGestureListener
       {
          synchronized (renderer)
          {
-            init();
-            requestRender();
+            cancelOtherMove();
+            game.init();
+            saveGame();
+            startRecord();
          }
+         scheduler.requestFrame();
          return(true);
       }
 
       // Touch arrow?
-      switch (gameState)
+      switch (game.state.gameState)
       {
       case START:
          break;
@@ -715,689 +655,78 @@ implements GestureDetector.OnGestureListener
    {
       synchronized (renderer)
       {
-         myHandShift += direction;
-         int rank = getShiftIndex(6);
-         if (myHand[rank].visibility == CARD_VISIBILITY.FACE_UP)
-         {
-            if (otherStage.visibility == CARD_VISIBILITY.RANK)
-            {
-               if (myHand[rank].rank == otherStage.rank)
-               {
-                  gameState = GAME_STATE.MY_HAND_TO_STAGE_ONLY;
-               }
-               else
-               {
-                  gameState = GAME_STATE.MY_HAND_TO_STAGE_SHIFT;
-               }
-            }
-            else
-            {
-               if (myStage.getCount() == 0)
-               {
-                  gameState = GAME_STATE.MY_TURN;
-               }
-               else
-               {
-                  if (myStage.rank == rank)
-                  {
-                     gameState = GAME_STATE.MY_HAND_TO_STAGE_ONLY;
-                  }
-                  else
-                  {
-                     gameState = GAME_STATE.MY_HAND_TO_STAGE_SHIFT;
-                  }
-               }
-            }
-         }
-         else
-         {
-            gameState = GAME_STATE.MY_HAND_TO_STAGE_SHIFT;
-         }
-         requestRender();
+         game.shiftHand(direction);
+         journalMove(MoveJournal.SHIFT, direction);
       }
+      scheduler.requestFrame();
    }
 
 
    // Do game move.
    private void doMove()
    {
-      int i, j, rank;
-
       synchronized (renderer)
       {
-         switch (gameState)
+         if (game.state.gameState == GAME_STATE.OTHER_TURN)
          {
-         case START:
-            break;
-
-         case MY_TURN:
-            rank                = getShiftIndex(6);
-            askRank             = rank;
-            rankKnowledge[rank] = RANK_KNOWLEDGE.DOES_HAVE;
-            myStage.rank        = rank;
-            myStage.visibility  = CARD_VISIBILITY.RANK;
-            if (otherHand[rank].getCount() > 0)
-            {
-               gameState = GAME_STATE.OTHER_HAND_TO_STAGE;
-            }
-            else
-            {
-               gameState = GAME_STATE.MY_DRAW_TO_EXCHANGE;
-            }
-            break;
-
-         case MY_HAND_TO_STAGE_ONLY:
-            rank = getShiftIndex(6);
-            myStage.transfer(myHand[rank]);
-            myStage.visibility      = CARD_VISIBILITY.FACE_UP;
-            myHand[rank].visibility = CARD_VISIBILITY.RANK;
-            if (otherStage.visibility == CARD_VISIBILITY.RANK)
-            {
-               gameState = GAME_STATE.MY_STAGE_TO_EXCHANGE;
-            }
-            else
-            {
-               gameState = GAME_STATE.MY_STAGE_TO_SCORE;
-            }
-            break;
-
-         case MY_STAGE_TO_HAND:
-            rank = myStage.rank;
-            myHand[rank].transfer(myStage);
-            myHand[rank].visibility = CARD_VISIBILITY.FACE_UP;
-            if (myStage.visibility == CARD_VISIBILITY.FACE_UP)
-            {
-               gameState = GAME_STATE.MY_TURN;
-            }
-            else
-            {
-               gameState = GAME_STATE.OTHER_TURN;
-            }
-            myStage.visibility = CARD_VISIBILITY.HIDDEN;
-            for (i = 0; i < 13; i++)
-            {
-               if (otherHand[i].visibility != CARD_VISIBILITY.HIDDEN)
-               {
-                  if (otherHand[i].getCount() > 0) { break; }
-               }
-            }
-            if ((deckDeal == 52) || (i == 13))
-            {
-               if (myScore > otherScore)
-               {
-                  gameState = GAME_STATE.MY_WIN;
-               }
-               else if (myScore == otherScore)
-               {
-                  gameState = GAME_STATE.TIE;
-               }
-               else
-               {
-                  gameState = GAME_STATE.OTHER_WIN;
-               }
-            }
-            break;
-
-         case MY_STAGE_TO_EXCHANGE:
-            exchange.transfer(myStage);
-            exchange.visibility = myStage.visibility;
-            myStage.visibility  = CARD_VISIBILITY.HIDDEN;
-            gameState           = GAME_STATE.EXCHANGE_TO_OTHER_STAGE;
-            break;
-
-         case MY_STAGE_TO_SCORE:
-            myScore++;
-            rank = myStage.rank;
-            rankKnowledge[rank] = RANK_KNOWLEDGE.CANNOT_HAVE;
-            myStage.visibility  = CARD_VISIBILITY.RANK;
-            myScoreRanks.add(new RankSet(myStage));
-            myStage.visibility         = CARD_VISIBILITY.HIDDEN;
-            myHand[rank].visibility    = CARD_VISIBILITY.HIDDEN;
-            otherHand[rank].visibility = CARD_VISIBILITY.HIDDEN;
-            if (askRank == rank)
-            {
-               if (myHand[getShiftIndex(6)].getCount() > 0)
-               {
-                  gameState = GAME_STATE.MY_TURN;
-               }
-               else
-               {
-                  gameState = GAME_STATE.MY_HAND_TO_STAGE_SHIFT;
-               }
-            }
-            else
-            {
-               gameState = GAME_STATE.OTHER_TURN;
-            }
-            for (i = 0; i < 13; i++)
-            {
-               if (myHand[i].visibility != CARD_VISIBILITY.HIDDEN)
-               {
-                  if (myHand[i].getCount() > 0) { break; }
-               }
-            }
-            for (j = 0; j < 13; j++)
-            {
-               if (otherHand[j].visibility != CARD_VISIBILITY.HIDDEN)
-               {
-                  if (otherHand[j].getCount() > 0) { break; }
-               }
-            }
-            if ((deckDeal == 52) || (i == 13) || (j == 13))
-            {
-               if (myScore > otherScore)
-               {
-                  gameState = GAME_STATE.MY_WIN;
-               }
-               else if (myScore == otherScore)
-               {
-                  gameState = GAME_STATE.TIE;
-               }
-               else
-               {
-                  gameState = GAME_STATE.OTHER_WIN;
-               }
-            }
-            break;
-
-         case EXCHANGE_TO_MY_STAGE:
-            myStage.transfer(exchange);
-            myStage.visibility  = exchange.visibility;
-            exchange.visibility = CARD_VISIBILITY.HIDDEN;
-            if (myStage.visibility == CARD_VISIBILITY.FACE_DOWN)
-            {
-               if ((myStage.getCount() + myHand[myStage.rank].getCount()) == 4)
-               {
-                  myStage.visibility = CARD_VISIBILITY.FACE_UP;
-                  gameState          = GAME_STATE.MY_HAND_TO_STAGE_SHIFT;
-               }
-               else
-               {
-                  for (i = 0; i < 13; i++)
-                  {
-                     if (rankKnowledge[i] == RANK_KNOWLEDGE.DOES_NOT_HAVE)
-                     {
-                        rankKnowledge[i] = RANK_KNOWLEDGE.MIGHT_HAVE;
-                     }
-                  }
-                  gameState = GAME_STATE.MY_STAGE_TO_HAND;
-               }
-            }
-            else
-            {
-               if ((myStage.getCount() + myHand[myStage.rank].getCount()) == 4)
-               {
-                  gameState = GAME_STATE.MY_HAND_TO_STAGE_ONLY;
-               }
-               else
-               {
-                  gameState = GAME_STATE.MY_STAGE_TO_HAND;
-               }
-            }
-            break;
-
-         case OTHER_TURN:
-            rank                  = getAskRank();
-            askRank               = rank;
-            rankKnowledge[rank]   = RANK_KNOWLEDGE.DOES_NOT_HAVE;
-            otherStage.rank       = rank;
-            otherStage.visibility = CARD_VISIBILITY.RANK;
-            if (myHand[rank].getCount() > 0)
-            {
-               if (getShiftIndex(6) == rank)
-               {
-                  gameState = GAME_STATE.MY_HAND_TO_STAGE_ONLY;
-               }
-               else
-               {
-                  gameState = GAME_STATE.MY_HAND_TO_STAGE_SHIFT;
-               }
-            }
-            else
-            {
-               gameState = GAME_STATE.OTHER_DRAW_TO_EXCHANGE;
-            }
-            break;
-
-         case OTHER_HAND_TO_STAGE:
-            if (otherStage.getCount() > 0)
-            {
-               rank = otherStage.rank;
-               otherStage.transfer(otherHand[rank]);
-               otherStage.visibility      = CARD_VISIBILITY.FACE_UP;
-               otherHand[rank].visibility = CARD_VISIBILITY.RANK;
-               gameState = GAME_STATE.OTHER_STAGE_TO_SCORE;
-            }
-            else
-            {
-               rank = myStage.rank;
-               otherStage.transfer(otherHand[rank]);
-               otherStage.visibility      = CARD_VISIBILITY.FACE_UP;
-               otherHand[rank].visibility = CARD_VISIBILITY.RANK;
-               gameState = GAME_STATE.OTHER_STAGE_TO_EXCHANGE;
-            }
-            break;
-
-         case OTHER_STAGE_TO_HAND:
-            rank = otherStage.rank;
-            otherHand[rank].transfer(otherStage);
-            otherHand[rank].visibility = CARD_VISIBILITY.FACE_DOWN;
-            if (otherStage.visibility == CARD_VISIBILITY.FACE_UP)
-            {
-               gameState = GAME_STATE.OTHER_TURN;
-            }
-            else
-            {
-               if (myHand[getShiftIndex(6)].getCount() > 0)
-               {
-                  gameState = GAME_STATE.MY_TURN;
-               }
-               else
-               {
-                  gameState = GAME_STATE.MY_HAND_TO_STAGE_SHIFT;
-               }
-            }
-            otherStage.visibility = CARD_VISIBILITY.HIDDEN;
-            for (i = 0; i < 13; i++)
-            {
-               if (myHand[i].visibility != CARD_VISIBILITY.HIDDEN)
-               {
-                  if (myHand[i].getCount() > 0) { break; }
-               }
-            }
-            if ((deckDeal == 52) || (i == 13))
-            {
-               if (myScore > otherScore)
-               {
-                  gameState = GAME_STATE.MY_WIN;
-               }
-               else if (myScore == otherScore)
-               {
-                  gameState = GAME_STATE.TIE;
-               }
-               else
-               {
-                  gameState = GAME_STATE.OTHER_WIN;
-               }
-            }
-            break;
-
-         case OTHER_STAGE_TO_EXCHANGE:
-            exchange.transfer(otherStage);
-            exchange.visibility   = otherStage.visibility;
-            otherStage.visibility = CARD_VISIBILITY.HIDDEN;
-            gameState             = GAME_STATE.EXCHANGE_TO_MY_STAGE;
-            break;
-
-         case OTHER_STAGE_TO_SCORE:
-            otherScore++;
-            rank = otherStage.rank;
-            rankKnowledge[rank]   = RANK_KNOWLEDGE.CANNOT_HAVE;
-            otherStage.visibility = CARD_VISIBILITY.RANK;
-            otherScoreRanks.add(new RankSet(otherStage));
-            otherStage.visibility      = CARD_VISIBILITY.HIDDEN;
-            otherHand[rank].visibility = CARD_VISIBILITY.HIDDEN;
-            myHand[rank].visibility    = CARD_VISIBILITY.HIDDEN;
-            if (askRank == rank)
-            {
-               gameState = GAME_STATE.OTHER_TURN;
-            }
-            else
-            {
-               if (myHand[getShiftIndex(6)].getCount() > 0)
-               {
-                  gameState = GAME_STATE.MY_TURN;
-               }
-               else
-               {
-                  gameState = GAME_STATE.MY_HAND_TO_STAGE_SHIFT;
-               }
-            }
-            for (i = 0; i < 13; i++)
-            {
-               if (myHand[i].visibility != CARD_VISIBILITY.HIDDEN)
-               {
-                  if (myHand[i].getCount() > 0) { break; }
-               }
-            }
-            for (j = 0; j < 13; j++)
-            {
-               if (otherHand[j].visibility != CARD_VISIBILITY.HIDDEN)
-               {
-                  if (otherHand[j].getCount() > 0) { break; }
-               }
-            }
-            if ((deckDeal == 52) || (i == 13) || (j == 13))
-            {
-               if (myScore > otherScore)
-               {
-                  gameState = GAME_STATE.MY_WIN;
-               }
-               else if (myScore == otherScore)
-               {
-                  gameState = GAME_STATE.TIE;
-               }
-               else
-               {
-                  gameState = GAME_STATE.OTHER_WIN;
-               }
-            }
-            break;
-
-         case EXCHANGE_TO_OTHER_STAGE:
-            otherStage.transfer(exchange);
-            otherStage.visibility = exchange.visibility;
-            exchange.visibility   = CARD_VISIBILITY.HIDDEN;
-            if (otherStage.visibility == CARD_VISIBILITY.FACE_DOWN)
-            {
-               if ((otherStage.getCount() + otherHand[otherStage.rank].getCount()) == 4)
-               {
-                  otherStage.visibility = CARD_VISIBILITY.FACE_UP;
-                  gameState             = GAME_STATE.OTHER_HAND_TO_STAGE;
-               }
-               else
-               {
-                  gameState = GAME_STATE.OTHER_STAGE_TO_HAND;
-               }
-            }
-            else
-            {
-               if ((otherStage.getCount() + otherHand[otherStage.rank].getCount()) == 4)
-               {
-                  gameState = GAME_STATE.OTHER_HAND_TO_STAGE;
-               }
-               else
-               {
-                  gameState = GAME_STATE.OTHER_STAGE_TO_HAND;
-               }
-            }
-            break;
-
-         case MY_DRAW_TO_EXCHANGE:
-            exchange.add(deck[deckDeal]);
-            deckDeal++;
-            if (myStage.rank == exchange.rank)
-            {
-               exchange.visibility = CARD_VISIBILITY.FACE_UP;
-            }
-            else
-            {
-               exchange.visibility = CARD_VISIBILITY.FACE_DOWN;
-            }
-            gameState = GAME_STATE.EXCHANGE_TO_MY_STAGE;
-            break;
-
-         case OTHER_DRAW_TO_EXCHANGE:
-            exchange.add(deck[deckDeal]);
-            deckDeal++;
-            if (otherStage.rank == exchange.rank)
-            {
-               exchange.visibility = CARD_VISIBILITY.FACE_UP;
-            }
-            else
-            {
-               exchange.visibility = CARD_VISIBILITY.FACE_DOWN;
-            }
-            gameState = GAME_STATE.EXCHANGE_TO_OTHER_STAGE;
-            break;
-
-         case MY_WIN:
-            break;
-
-         case OTHER_WIN:
-            break;
-
-         case TIE:
-            break;
+            startOtherMove();
+            return;
          }
-         requestRender();
+         game.doMove();
+         journalMove(MoveJournal.MOVE, 0);
       }
+      scheduler.requestFrame();
    }
 
 
-   // Card.
-   public class Card
+   // Start searching for the other player's move on a copy of the
+   // state, then post the move back if the game has not moved on.
+   // Caller holds the renderer lock.
+   private void startOtherMove()
    {
-      public int suit;
-      public int rank;
-
-      public Card(int suit, int rank)
-      {
-         this.suit = suit;
-         this.rank = rank;
-      }
-
-
-      public Card()
-      {
-         suit = rank = 0;
-      }
-
-
-      public void load(BufferedReader in) throws IOException
-      {
-         suit = Integer.parseInt(in.readLine());
-         rank = Integer.parseInt(in.readLine());
-      }
-
-
-      public void save(PrintWriter out)
-      {
-         out.println(suit + "");
-         out.println(rank + "");
-      }
-   };
-
-   // Card visibility.
-   public enum CARD_VISIBILITY
-   {
-      FACE_UP,
-      FACE_DOWN,
-      RANK,
-      HIDDEN
-   };
-
-   // Card rank set.
-   public class RankSet
-   {
-      public int      rank;
-      public          Card[] cards;
-      CARD_VISIBILITY visibility;
-
-      public RankSet(int rank)
-      {
-         this.rank = rank;
-         cards     = new Card[4];
-         clear();
-         visibility = CARD_VISIBILITY.RANK;
-      }
-
-
-      public RankSet()
-      {
-         rank  = 0;
-         cards = new Card[4];
-         clear();
-         visibility = CARD_VISIBILITY.RANK;
-      }
-
-
-      public RankSet(RankSet from)
-      {
-         rank  = from.rank;
-         cards = new Card[4];
-         clear();
-         for (int i = 0; i < 4; i++)
-         {
-            cards[i] = from.cards[i];
-            if (from.cards[i] != null)
-            {
-               from.cards[i] = null;
-            }
-         }
-         visibility = from.visibility;
-      }
-
-
-      public void add(Card card)
-      {
-         cards[card.suit] = card;
-         rank             = card.rank;
-      }
-
-
-      public int getCount()
-      {
-         int count = 0;
-
-         for (int i = 0; i < 4; i++)
-         {
-            if (cards[i] != null)
-            {
-               count++;
-            }
-         }
-         return(count);
-      }
-
-
-      public void transfer(RankSet from)
-      {
-         for (int i = 0; i < 4; i++)
-         {
-            if (from.cards[i] != null)
-            {
-               cards[i]      = from.cards[i];
-               from.cards[i] = null;
-               rank          = from.rank;
-            }
-         }
-      }
-
-
-      public void clear()
+      if ((otherMove != null) && !otherMove.isDone())
       {
-         for (int i = 0; i < 4; i++)
-         {
-            cards[i] = null;
-         }
+         return;
       }
+      final GameState snapshot = new GameState();
+      snapshot.copyFrom(game.state);
+      final int generation = moveGeneration;
+      otherMove = moveExecutor.submit(new Runnable()
+                                      {
+                                         public void run()
+                                         {
+                                            int rank = game.getAskRank(snapshot);
+
+                                            synchronized (renderer)
+                                            {
+                                               if ((generation != moveGeneration) ||
+                                                   (game.state.gameState != GAME_STATE.OTHER_TURN))
+                                               {
+                                                  return;
+                                               }
+                                               game.doMove(rank);
+                                               journalMove(MoveJournal.ASK, rank);
+                                            }
+                                            scheduler.requestFrame();
+                                         }
+                                      }
+                                      );
+   }
 
 
-      public void load(BufferedReader in) throws IOException
-      {
-         int i;
-
-         rank = Integer.parseInt(in.readLine());
-         clear();
-         for (i = 0; i < 4; i++)
-         {
-            if (in.readLine().equals("1"))
-            {
-               cards[i] = new Card();
-               cards[i].load(in);
-            }
-         }
-         i = Integer.parseInt(in.readLine());
-         switch (i)
-         {
-         case 0:
-            visibility = CARD_VISIBILITY.FACE_UP;
-            break;
-
-         case 1:
-            visibility = CARD_VISIBILITY.FACE_DOWN;
-            break;
-
-         case 2:
-            visibility = CARD_VISIBILITY.RANK;
-            break;
-
-         case 3:
-            visibility = CARD_VISIBILITY.HIDDEN;
-            break;
-         }
-      }
-
-
-      public void save(PrintWriter out)
-      {
-         out.println(rank + "");
-         for (int i = 0; i < 4; i++)
-         {
-            if (cards[i] != null)
-            {
-               out.println("1");
-               cards[i].save(out);
-            }
-            else
-            {
-               out.println("0");
-            }
-         }
-         switch (visibility)
-         {
-         case FACE_UP:
-            out.println("0");
-            break;
-
-         case FACE_DOWN:
-            out.println("1");
-            break;
-
-         case RANK:
-            out.println("2");
-            break;
-
-         case HIDDEN:
-            out.println("3");
-            break;
-         }
-      }
-   };
-
-   // Get ask card rank.
-   private int getAskRank()
+   // Cancel any pending other player move.
+   // Caller holds the renderer lock.
+   private void cancelOtherMove()
    {
-      int i, rank;
-
-      for (i = 0, rank = random.nextInt(13); i < 13; i++, rank = (rank + 1) % 13)
-      {
-         if ((otherHand[rank].getCount() > 0) &&
-             (rankKnowledge[rank] == RANK_KNOWLEDGE.DOES_HAVE))
-         {
-            return(rank);
-         }
-      }
-      for (i = 0, rank = random.nextInt(13); i < 13; i++, rank = (rank + 1) % 13)
-      {
-         if ((otherHand[rank].getCount() > 0) &&
-             (rankKnowledge[rank] == RANK_KNOWLEDGE.MIGHT_HAVE))
-         {
-            return(rank);
-         }
-      }
-      for (i = 0, rank = random.nextInt(13); i < 13; i++, rank = (rank + 1) % 13)
+      moveGeneration++;
+      if (otherMove != null)
       {
-         if (otherHand[rank].getCount() > 0)
-         {
-            return(rank);
-         }
+         otherMove.cancel(true);
+         otherMove = null;
       }
-      return(0);
    }
 
 
-   // Get shifted card index.
-   private int getShiftIndex(int i)
-   {
-      int j = i - myHandShift;
-
-      while (j < 0) { j += 13; }
-      j %= 13;
-      return(j);
-   }
-
 
    @Override
    public void onResume()
@@ -1413,8 +742,8 @@ implements GestureDetector.OnGestureListener
       requestFocus();
 
       // Activate renderer.
-      renderer.drawablesValid = false;
-      requestRender();
+      renderer.layoutValid = false;
+      scheduler.requestFrame();
    }
 
 
@@ -1423,8 +752,43 @@ implements GestureDetector.OnGestureListener
    {
       super.onPause();
 
+      // Cancel move search.
+      synchronized (renderer)
+      {
+         cancelOtherMove();
+      }
+
       // Save for later resumption.
       saveGame();
+
+      // Export frame statistics.
+      if (renderer.frameStatsEnabled)
+      {
+         File file = new File(new File(savePath).getParentFile(), FRAME_STATS_FILE);
+         try
+         {
+            renderer.frameStats.export(file);
+         }
+         catch (IOException e)
+         {
+            Log.d("GoFish", "Cannot export frame statistics to " + file);
+         }
+      }
+   }
+
+
+   // Shut down worker threads when the activity is destroyed.
+   // Pending saves are finished first.
+   public void shutdown()
+   {
+      synchronized (renderer)
+      {
+         cancelOtherMove();
+      }
+      moveExecutor.shutdownNow();
+      search.shutdown();
+      saveExecutor.shutdown();
+      renderer.shutdown();
    }
 
 
@@ -1451,303 +815,317 @@ implements GestureDetector.OnGestureListener
    }
 
 
-   // Load game.
+   // Load game snapshot and replay its journal, migrating a text
+   // save file. Then start a new snapshot.
    void loadGame()
    {
-      int     i, n;
-      RankSet rankSet;
+      File file = new File(savePath);
 
+      waitForSave();
+      if (!file.exists())
+      {
+         loadLegacyGame();
+         return;
+      }
       try
       {
-         BufferedReader in = new BufferedReader(new FileReader(savePath));
-         for (i = 0; i < 13; i++)
+         GameState loaded = new GameState();
+         long      epoch  = SaveFile.load(file, loaded, loadBuffer);
+         int       moves  = MoveJournal.replay(new File(savePath + ".journal"), epoch, loaded);
+
+         // Continue recording if the game record reproduces the state.
+         GameRecord record   = MoveJournal.read(new File(savePath + ".game"));
+         GameState  replayed = new GameState();
+         boolean    resume   = (record != null) && !SelfPlay.isOver(loaded.gameState) &&
+                               record.replay(replayed, new Shuffle()) && replayed.equals(loaded);
+         synchronized (renderer)
          {
-            myHand[i].load(in);
+            cancelOtherMove();
+            game.state.copyFrom(loaded);
+            saveEpoch = epoch;
+            recording = resume;
+            if (resume)
+            {
+               game.seed = record.seed;
+               resumeRecord(record.seed, record.moveCount);
+            }
          }
-         for (i = 0; i < 13; i++)
+         if (moves > 0)
          {
-            otherHand[i].load(in);
+            Log.d("GoFish", "Replayed " + moves + " journaled moves");
          }
-         n = Integer.parseInt(in.readLine());
-         myScoreRanks.clear();
-         for (i = 0; i < n; i++)
+      }
+      catch (IOException e)
+      {
+         Log.d("GoFish", "Error loading " + savePath + ": " + e.getMessage());
+      }
+      saveGame();
+   }
+
+
+   // Load text save file and replace it with a binary one.
+   void loadLegacyGame()
+   {
+      try
+      {
+         BufferedReader in = new BufferedReader(new FileReader(legacySavePath));
+         try
          {
-            rankSet = new RankSet();
-            rankSet.load(in);
-            myScoreRanks.add(rankSet);
+            synchronized (renderer)
+            {
+               cancelOtherMove();
+               game.load(in);
+            }
          }
-         n = Integer.parseInt(in.readLine());
-         otherScoreRanks.clear();
-         for (i = 0; i < n; i++)
+         finally
          {
-            rankSet = new RankSet();
-            rankSet.load(in);
-            otherScoreRanks.add(rankSet);
+            in.close();
          }
-         myStage.load(in);
-         otherStage.load(in);
-         exchange.load(in);
-         for (i = 0; i < 52; i++)
+      }
+      catch (FileNotFoundException e)
+      {
+         synchronized (renderer)
          {
-            deck[i].load(in);
+            startRecord();
          }
-         deckDeal    = Integer.parseInt(in.readLine());
-         askRank     = Integer.parseInt(in.readLine());
-         myHandShift = Integer.parseInt(in.readLine());
-         i           = Integer.parseInt(in.readLine());
-         switch (i)
-         {
-         case 0:
-            gameState = GAME_STATE.START;
-            break;
-
-         case 1:
-            gameState = GAME_STATE.MY_TURN;
-            break;
-
-         case 2:
-            gameState = GAME_STATE.MY_HAND_TO_STAGE_SHIFT;
-            break;
-
-         case 3:
-            gameState = GAME_STATE.MY_HAND_TO_STAGE_ONLY;
-            break;
-
-         case 4:
-            gameState = GAME_STATE.MY_STAGE_TO_HAND;
-            break;
-
-         case 5:
-            gameState = GAME_STATE.MY_STAGE_TO_EXCHANGE;
-            break;
-
-         case 6:
-            gameState = GAME_STATE.MY_STAGE_TO_SCORE;
-            break;
-
-         case 7:
-            gameState = GAME_STATE.EXCHANGE_TO_MY_STAGE;
-            break;
-
-         case 8:
-            gameState = GAME_STATE.OTHER_TURN;
-            break;
-
-         case 9:
-            gameState = GAME_STATE.OTHER_HAND_TO_STAGE;
-            break;
-
-         case 10:
-            gameState = GAME_STATE.OTHER_STAGE_TO_HAND;
-            break;
-
-         case 11:
-            gameState = GAME_STATE.OTHER_STAGE_TO_EXCHANGE;
-            break;
-
-         case 12:
-            gameState = GAME_STATE.OTHER_STAGE_TO_SCORE;
-            break;
-
-         case 13:
-            gameState = GAME_STATE.EXCHANGE_TO_OTHER_STAGE;
-            break;
-
-         case 14:
-            gameState = GAME_STATE.MY_DRAW_TO_EXCHANGE;
-            break;
-
-         case 15:
-            gameState = GAME_STATE.OTHER_DRAW_TO_EXCHANGE;
-            break;
+         saveGame();
+         return;
+      }
+      catch (IOException e)
+      {
+         Log.d("GoFish", "Error loading " + legacySavePath + ": " + e.getMessage());
+         saveGame();
+         return;
+      }
+      saveGame(legacySavePath);
+   }
 
-         case 16:
-            gameState = GAME_STATE.MY_WIN;
-            break;
 
-         case 17:
-            gameState = GAME_STATE.OTHER_WIN;
-            break;
+   // Journal a move, or snapshot the state when the journal is long,
+   // and record it. Caller holds the renderer lock.
+   void journalMove(final int op, final int arg)
+   {
+      final boolean   record   = recording;
+      final GameState finished;
 
-         case 18:
-            gameState = GAME_STATE.TIE;
-            break;
-         }
-         myScore    = Integer.parseInt(in.readLine());
-         otherScore = Integer.parseInt(in.readLine());
-         for (i = 0; i < 13; i++)
-         {
-            switch (Integer.parseInt(in.readLine()))
-            {
-            case 0:
-               rankKnowledge[i] = RANK_KNOWLEDGE.DOES_HAVE;
-               break;
+      if (recording && SelfPlay.isOver(game.state.gameState))
+      {
+         finished = new GameState();
+         finished.copyFrom(game.state);
+         recording = false;
+      }
+      else
+      {
+         finished = null;
+      }
+      journalMoves++;
+      final boolean snapshot = journalMoves >= JOURNAL_MOVES;
+      if (snapshot)
+      {
+         saveGame();
+      }
+      pendingSave = saveExecutor.submit(new Runnable()
+                                        {
+                                           public void run()
+                                           {
+                                              try
+                                              {
+                                                 if (!snapshot)
+                                                 {
+                                                    journal.append(op, arg);
+                                                 }
+                                              }
+                                              catch (IOException e)
+                                              {
+                                                 Log.d("GoFish", "Error journaling move: " + e.getMessage());
+                                              }
+                                              if (record)
+                                              {
+                                                 recordMove(op, arg, finished);
+                                              }
+                                           }
+                                        }
+                                        );
+   }
 
-            case 1:
-               rankKnowledge[i] = RANK_KNOWLEDGE.DOES_NOT_HAVE;
-               break;
 
-            case 2:
-               rankKnowledge[i] = RANK_KNOWLEDGE.MIGHT_HAVE;
-               break;
+   // Start recording a new game. Caller holds the renderer lock.
+   void startRecord()
+   {
+      final long seed = game.seed;
 
-            case 3:
-               rankKnowledge[i] = RANK_KNOWLEDGE.CANNOT_HAVE;
-               break;
-            }
-         }
-         in.close();
-      }
-      catch (FileNotFoundException e) {}
-      catch (IOException e)
+      recording = !game.fairPlay;
+      if (!recording)
       {
-         Log.d("GoFish", "Error loading " + savePath);
+         return;
       }
+      pendingSave = saveExecutor.submit(new Runnable()
+                                        {
+                                           public void run()
+                                           {
+                                              try
+                                              {
+                                                 gameJournal.reset(seed);
+                                              }
+                                              catch (IOException e)
+                                              {
+                                                 Log.d("GoFish", "Error starting game record: " + e.getMessage());
+                                              }
+                                           }
+                                        }
+                                        );
    }
 
 
-   // Save game.
-   void saveGame()
+   // Continue recording a loaded game. Caller holds the renderer lock.
+   void resumeRecord(final long seed, final int moves)
    {
-      int i;
+      pendingSave = saveExecutor.submit(new Runnable()
+                                        {
+                                           public void run()
+                                           {
+                                              try
+                                              {
+                                                 gameJournal.resume(seed, moves);
+                                              }
+                                              catch (IOException e)
+                                              {
+                                                 Log.d("GoFish", "Error resuming game record: " + e.getMessage());
+                                              }
+                                           }
+                                        }
+                                        );
+   }
 
+
+   // Record a move, and when the game is finished append its
+   // verified record to the records file. Runs on the save thread.
+   void recordMove(int op, int arg, GameState finished)
+   {
       try
       {
-         PrintWriter out = new PrintWriter(new FileWriter(savePath));
-         for (i = 0; i < 13; i++)
+         gameJournal.append(op, arg);
+         if (finished == null)
          {
-            myHand[i].save(out);
+            return;
          }
-         for (i = 0; i < 13; i++)
+         gameJournal.close();
+         GameRecord record = MoveJournal.read(new File(savePath + ".game"));
+         if (record == null)
          {
-            otherHand[i].save(out);
+            return;
          }
-         out.println(myScoreRanks.size() + "");
-         for (i = 0; i < myScoreRanks.size(); i++)
+         record.finish(finished);
+         if (!record.verify(new GameState(), new Shuffle()))
          {
-            myScoreRanks.get(i).save(out);
+            Log.d("GoFish", "Game record does not reproduce the game");
+            return;
          }
-         out.println(otherScoreRanks.size() + "");
-         for (i = 0; i < otherScoreRanks.size(); i++)
+         DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                                                        new FileOutputStream(recordsPath, true)));
+         try
          {
-            otherScoreRanks.get(i).save(out);
+            record.write(out);
          }
-         myStage.save(out);
-         otherStage.save(out);
-         exchange.save(out);
-         for (i = 0; i < 52; i++)
+         finally
          {
-            deck[i].save(out);
+            out.close();
          }
-         out.println(deckDeal + "");
-         out.println(askRank + "");
-         out.println(myHandShift + "");
-         switch (gameState)
+      }
+      catch (IOException e)
+      {
+         Log.d("GoFish", "Error recording game: " + e.getMessage());
+         return;
+      }
+      File records = new File(recordsPath);
+      if (records.length() > MAX_RECORDS_SIZE)
+      {
+         try
          {
-         case START:
-            out.println("0");
-            break;
-
-         case MY_TURN:
-            out.println("1");
-            break;
-
-         case MY_HAND_TO_STAGE_SHIFT:
-            out.println("2");
-            break;
-
-         case MY_HAND_TO_STAGE_ONLY:
-            out.println("3");
-            break;
-
-         case MY_STAGE_TO_HAND:
-            out.println("4");
-            break;
-
-         case MY_STAGE_TO_EXCHANGE:
-            out.println("5");
-            break;
-
-         case MY_STAGE_TO_SCORE:
-            out.println("6");
-            break;
-
-         case EXCHANGE_TO_MY_STAGE:
-            out.println("7");
-            break;
-
-         case OTHER_TURN:
-            out.println("8");
-            break;
-
-         case OTHER_HAND_TO_STAGE:
-            out.println("9");
-            break;
-
-         case OTHER_STAGE_TO_HAND:
-            out.println("10");
-            break;
-
-         case OTHER_STAGE_TO_EXCHANGE:
-            out.println("11");
-            break;
-
-         case OTHER_STAGE_TO_SCORE:
-            out.println("12");
-            break;
-
-         case EXCHANGE_TO_OTHER_STAGE:
-            out.println("13");
-            break;
+            Replayer.trim(records, MAX_RECORDS_SIZE / 2);
+         }
+         catch (IOException e)
+         {
+            Log.d("GoFish", "Error trimming game records, discarding them: " + e.getMessage());
+            records.delete();
+         }
+      }
+   }
 
-         case MY_DRAW_TO_EXCHANGE:
-            out.println("14");
-            break;
 
-         case OTHER_DRAW_TO_EXCHANGE:
-            out.println("15");
-            break;
+   // Save game.
+   void saveGame()
+   {
+      saveGame(null);
+   }
 
-         case MY_WIN:
-            out.println("16");
-            break;
 
-         case OTHER_WIN:
-            out.println("17");
-            break;
+   // Save game snapshot in the background and start a new journal,
+   // then delete the replaced file if any. If the snapshot fails the
+   // old snapshot and journal remain valid and moves keep appending.
+   void saveGame(final String replacedPath)
+   {
+      final GameState snapshot = new GameState();
+      final long      epoch;
 
-         case TIE:
-            out.println("18");
-            break;
-         }
-         out.println(myScore + "");
-         out.println(otherScore + "");
-         for (i = 0; i < 13; i++)
-         {
-            switch (rankKnowledge[i])
-            {
-            case DOES_HAVE:
-               out.println("0");
-               break;
+      synchronized (renderer)
+      {
+         snapshot.copyFrom(game.state);
+         saveEpoch++;
+         epoch        = saveEpoch;
+         journalMoves = 0;
+      }
+      pendingSave = saveExecutor.submit(new Runnable()
+                                        {
+                                           public void run()
+                                           {
+                                              try
+                                              {
+                                                 SaveFile.save(snapshot, epoch, new File(savePath), saveBuffer);
+                                              }
+                                              catch (IOException e)
+                                              {
+                                                 Log.d("GoFish", "Error saving " + savePath + ": " + e.getMessage());
+                                                 return;
+                                              }
+                                              try
+                                              {
+                                                 journal.reset(epoch);
+                                                 if (replacedPath != null)
+                                                 {
+                                                    new File(replacedPath).delete();
+                                                 }
+                                              }
+                                              catch (IOException e)
+                                              {
+                                                 Log.d("GoFish", "Error starting journal: " + e.getMessage());
+                                              }
+                                           }
+                                        }
+                                        );
+   }
 
-            case DOES_NOT_HAVE:
-               out.println("1");
-               break;
 
-            case MIGHT_HAVE:
-               out.println("2");
-               break;
+   // Wait for background saves to finish.
+   void waitForSave()
+   {
+      Future<?> save;
 
-            case CANNOT_HAVE:
-               out.println("3");
-               break;
-            }
-         }
-         out.close();
+      synchronized (renderer)
+      {
+         save = pendingSave;
       }
-      catch (IOException e)
+      if (save == null)
+      {
+         return;
+      }
+      try
+      {
+         save.get();
+      }
+      catch (Exception e)
       {
-         Log.d("GoFish", "Error saving " + savePath);
+         Log.d("GoFish", "Error waiting for save: " + e.getMessage());
       }
    }
 }
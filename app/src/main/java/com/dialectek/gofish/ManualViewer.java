@@ -1,10 +1,18 @@
 // Go Fish game manual viewer.
+// The manual loads off the UI thread: its first chunk, small enough
+// to decode at once, is shown as the first screen while the rest is
+// decoded a buffer at a time, and then the whole text replaces it in
+// one layout. The decoded manual goes into the document cache, and
+// later opens show the cached text, measured ahead where supported,
+// in one step.
 
 package com.dialectek.gofish;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import android.app.Activity;
 import android.content.res.Configuration;
@@ -16,66 +24,161 @@ import android.widget.Toast;
 
 public class ManualViewer extends Activity
 {
+   // Characters in the first chunk, about a screen, and in the rest.
+   public static final int FIRST_CHUNK = 2048;
+   public static final int CHUNK       = 16384;
+
+   // Manual text, its metrics parameters and its loader.
+   TextView         tv;
+   Object           textParams;
+   ExecutorService  loader;
+   volatile boolean destroyed;
+
    @Override
    public void onCreate(Bundle savedInstanceState)
    {
       super.onCreate(savedInstanceState);
-      TextView tv = new TextView(this);
+      tv = new TextView(this);
       tv.setClickable(false);
       tv.setLongClickable(false);
       tv.setMovementMethod(new ScrollingMovementMethod());
       tv.setHorizontallyScrolling(true);
       tv.setTypeface(Typeface.MONOSPACE);
       tv.setText("Unknown manual path");
-      String manualPath = null;
-      Bundle extras     = getIntent().getExtras();
+      Bundle extras = getIntent().getExtras();
       if (extras != null)
       {
-         String s = extras.getString("manual_path");
-         if (s != null)
+         final String manualPath = extras.getString("manual_path");
+         if (manualPath != null)
          {
-            manualPath = s;
-            s          = readManual(manualPath);
-            if (s != null)
-            {
-               tv.setText(s);
-            }
+            tv.setText("");
+            textParams = DocumentCache.getTextMetricsParams(tv);
+            loader     = Executors.newSingleThreadExecutor();
+            loader.execute(new Runnable()
+                           {
+                              public void run()
+                              {
+                                 loadManual(manualPath);
+                              }
+                           }
+                           );
          }
       }
       setContentView(tv);
    }
 
 
-   // Get manual text.
-   private String readManual(String manualPath)
+   @Override
+   public void onDestroy()
+   {
+      destroyed = true;
+      if (loader != null)
+      {
+         loader.shutdownNow();
+      }
+      super.onDestroy();
+   }
+
+
+   // Show the cached manual, or read and decode it, showing the first
+   // chunk and then the whole text, and cache it. Runs on the loader.
+   void loadManual(String manualPath)
    {
-      ByteArrayOutputStream byteArrayOutputStream = null;
+      CharSequence cached = DocumentCache.getLayout(this, manualPath, textParams);
 
+      if (cached != null)
+      {
+         showManual(cached, null);
+         return;
+      }
+      Reader in = null;
       try
       {
-         InputStream inputStream = getAssets().open(manualPath);
-         byteArrayOutputStream = new ByteArrayOutputStream(23000);
-         int i = inputStream.read();
-         while (i != -1)
+         in = new InputStreamReader(getAssets().open(manualPath), "UTF-8");
+         StringBuilder manual = new StringBuilder();
+         char[]        buffer = new char[CHUNK];
+         int           n      = read(in, buffer, FIRST_CHUNK);
+         manual.append(buffer, 0, n);
+         showManual(manual.toString(), null);
+         while (!destroyed && ((n = read(in, buffer, CHUNK)) > 0))
+         {
+            manual.append(buffer, 0, n);
+         }
+         if (destroyed)
+         {
+            return;
+         }
+         DocumentCache.putText(this, manualPath, manual.toString());
+         if (manual.length() > FIRST_CHUNK)
          {
-            byteArrayOutputStream.write(i);
-            i = inputStream.read();
+            CharSequence layout = DocumentCache.getLayout(this, manualPath, textParams);
+            showManual(layout != null ? layout : manual.toString(), null);
          }
-         inputStream.close();
       }
       catch (IOException e) {
-         Toast.makeText(this,
-                        "Cannot read manual " + manualPath,
-                        Toast.LENGTH_SHORT).show();
+         showManual(null, "Cannot read manual " + manualPath);
       }
-      if (byteArrayOutputStream != null)
-      {
-         return(byteArrayOutputStream.toString());
+      finally {
+         if (in != null)
+         {
+            try {
+               in.close();
+            }
+            catch (IOException e) {
+               // Ignore
+            }
+         }
       }
-      else
+   }
+
+
+   // Fill a chunk, short only at the end of the manual.
+   private static int read(Reader in, char[] buffer, int size) throws IOException
+   {
+      int n = 0;
+
+      while (n < size)
       {
-         return(null);
+         int count = in.read(buffer, n, size - n);
+         if (count < 0)
+         {
+            break;
+         }
+         n += count;
       }
+      return(n);
+   }
+
+
+   // Show manual text, or an error, on the UI thread unless the
+   // viewer is gone.
+   void showManual(final CharSequence manual, final String error)
+   {
+      runOnUiThread(new Runnable()
+                    {
+                       public void run()
+                       {
+                          if (destroyed)
+                          {
+                             return;
+                          }
+                          if (error != null)
+                          {
+                             Toast.makeText(ManualViewer.this, error, Toast.LENGTH_SHORT).show();
+                             return;
+                          }
+                          try
+                          {
+                             tv.setText(manual, TextView.BufferType.NORMAL);
+                          }
+                          catch (IllegalArgumentException e)
+                          {
+                             // Measured for other text metrics: lay it out again.
+                             tv.setText(manual.toString(), TextView.BufferType.NORMAL);
+                          }
+                       }
+                    }
+                    );
    }
 
 
@@ -0,0 +1,305 @@
+// Go Fish sprite batch.
+// Accumulates the textured, colored quads of a frame in one reusable
+// direct buffer of interleaved position, texture and color values,
+// and draws them with one call per texture. Untextured shapes sample
+// a white atlas texel so they batch with the cards. On GL 1.1 the
+// quad indices live in a static index buffer object and the vertices
+// stream through one vertex buffer object; GL 1.0 uses client arrays.
+
+package com.dialectek.gofish;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import javax.microedition.khronos.opengles.GL10;
+import javax.microedition.khronos.opengles.GL11;
+
+public class SpriteBatch
+{
+   // Quads per draw call.
+   public static final int MAX_QUADS = 256;
+
+   // Vertex layout: x, y, u, v, red, green, blue, alpha.
+   static final int VERTEX_FLOATS = 8;
+   static final int VERTEX_BYTES  = VERTEX_FLOATS * 4;
+   static final int QUAD_FLOATS   = VERTEX_FLOATS * 4;
+
+   // Buffers.
+   FloatBuffer vertices;
+   ShortBuffer indices;
+   final float[] quad = new float[QUAD_FLOATS];
+   int           quadCount;
+
+   // Current and bound textures, and color.
+   int   textureID, boundTextureID;
+   float red, green, blue, alpha;
+
+   // Buffer objects, if supported.
+   boolean useBufferObjects;
+   int     vertexBufferID, indexBufferID;
+
+   // View size in pixels.
+   int viewWidth, viewHeight;
+
+   // Draw calls, texture binds and vertices drawn, cleared by FrameStats.
+   public int drawCalls, textureBinds, vertexCount;
+
+   public SpriteBatch()
+   {
+      vertices = ByteBuffer.allocateDirect(MAX_QUADS * QUAD_FLOATS * 4)
+                    .order(ByteOrder.nativeOrder()).asFloatBuffer();
+      indices = ByteBuffer.allocateDirect(MAX_QUADS * 6 * 2)
+                   .order(ByteOrder.nativeOrder()).asShortBuffer();
+      for (int i = 0; i < MAX_QUADS; i++)
+      {
+         short v = (short)(i * 4);
+         indices.put(v);
+         indices.put((short)(v + 1));
+         indices.put((short)(v + 2));
+         indices.put(v);
+         indices.put((short)(v + 2));
+         indices.put((short)(v + 3));
+      }
+      indices.position(0);
+      setColor(1.0f, 1.0f, 1.0f, 1.0f);
+   }
+
+
+   // Create buffer objects for a new context, when GL 1.1 is
+   // available. Buffers of a lost context are gone with it.
+   public void createBuffers(GL10 gl)
+   {
+      String version = gl.glGetString(GL10.GL_VERSION);
+
+      useBufferObjects = (gl instanceof GL11) && (version != null) && !version.contains("ES-CM 1.0");
+      if (!useBufferObjects)
+      {
+         return;
+      }
+      GL11  gl11 = (GL11)gl;
+      int[] ids  = new int[2];
+      gl11.glGenBuffers(2, ids, 0);
+      vertexBufferID = ids[0];
+      indexBufferID  = ids[1];
+      gl11.glBindBuffer(GL11.GL_ELEMENT_ARRAY_BUFFER, indexBufferID);
+      gl11.glBufferData(GL11.GL_ELEMENT_ARRAY_BUFFER, indices.capacity() * 2, indices, GL11.GL_STATIC_DRAW);
+      gl11.glBindBuffer(GL11.GL_ELEMENT_ARRAY_BUFFER, 0);
+      if (gl11.glGetError() != GL10.GL_NO_ERROR)
+      {
+         useBufferObjects = false;
+      }
+   }
+
+
+   // Set the view size. Positions are in pixels from the lower left.
+   public void setViewport(int width, int height)
+   {
+      viewWidth  = width;
+      viewHeight = height;
+   }
+
+
+   // Begin a batch, setting the drawing state once.
+   public void begin(GL10 gl)
+   {
+      gl.glEnable(GL10.GL_TEXTURE_2D);
+      gl.glDisable(GL10.GL_CULL_FACE);
+      gl.glTexEnvf(GL10.GL_TEXTURE_ENV, GL10.GL_TEXTURE_ENV_MODE, GL10.GL_MODULATE);
+      gl.glEnableClientState(GL10.GL_VERTEX_ARRAY);
+      gl.glEnableClientState(GL10.GL_TEXTURE_COORD_ARRAY);
+      gl.glEnableClientState(GL10.GL_COLOR_ARRAY);
+      if (useBufferObjects)
+      {
+         GL11 gl11 = (GL11)gl;
+         gl11.glBindBuffer(GL11.GL_ARRAY_BUFFER, vertexBufferID);
+         gl11.glBindBuffer(GL11.GL_ELEMENT_ARRAY_BUFFER, indexBufferID);
+         gl11.glVertexPointer(2, GL10.GL_FLOAT, VERTEX_BYTES, 0);
+         gl11.glTexCoordPointer(2, GL10.GL_FLOAT, VERTEX_BYTES, 2 * 4);
+         gl11.glColorPointer(4, GL10.GL_FLOAT, VERTEX_BYTES, 4 * 4);
+      }
+      textureID      = 0;
+      boundTextureID = -1;
+      quadCount      = 0;
+      vertices.clear();
+      setColor(1.0f, 1.0f, 1.0f, 1.0f);
+   }
+
+
+   // Draw the remaining quads and restore state.
+   public void end(GL10 gl)
+   {
+      flush(gl);
+      if (useBufferObjects)
+      {
+         GL11 gl11 = (GL11)gl;
+         gl11.glBindBuffer(GL11.GL_ARRAY_BUFFER, 0);
+         gl11.glBindBuffer(GL11.GL_ELEMENT_ARRAY_BUFFER, 0);
+      }
+      gl.glDisableClientState(GL10.GL_VERTEX_ARRAY);
+      gl.glDisableClientState(GL10.GL_TEXTURE_COORD_ARRAY);
+      gl.glDisableClientState(GL10.GL_COLOR_ARRAY);
+      gl.glEnable(GL10.GL_CULL_FACE);
+      gl.glColor4f(1.0f, 1.0f, 1.0f, 1.0f);
+   }
+
+
+   // Draw accumulated quads.
+   public void flush(GL10 gl)
+   {
+      if (quadCount == 0)
+      {
+         return;
+      }
+      if (textureID != boundTextureID)
+      {
+         gl.glBindTexture(GL10.GL_TEXTURE_2D, textureID);
+         boundTextureID = textureID;
+         textureBinds++;
+      }
+      if (useBufferObjects)
+      {
+         // Respecify the vertex buffer so a draw in flight keeps its data.
+         GL11 gl11 = (GL11)gl;
+         vertices.position(0);
+         gl11.glBufferData(GL11.GL_ARRAY_BUFFER, quadCount * QUAD_FLOATS * 4, vertices, GL11.GL_DYNAMIC_DRAW);
+         gl11.glDrawElements(GL10.GL_TRIANGLES, quadCount * 6, GL10.GL_UNSIGNED_SHORT, 0);
+      }
+      else
+      {
+         vertices.position(0);
+         gl.glVertexPointer(2, GL10.GL_FLOAT, VERTEX_BYTES, vertices);
+         vertices.position(2);
+         gl.glTexCoordPointer(2, GL10.GL_FLOAT, VERTEX_BYTES, vertices);
+         vertices.position(4);
+         gl.glColorPointer(4, GL10.GL_FLOAT, VERTEX_BYTES, vertices);
+         gl.glDrawElements(GL10.GL_TRIANGLES, quadCount * 6, GL10.GL_UNSIGNED_SHORT, indices);
+      }
+      vertices.clear();
+      vertexCount += quadCount * 4;
+      quadCount    = 0;
+      drawCalls++;
+   }
+
+
+   // Forget the bound texture after textures are bound outside the
+   // batch, so the next flush binds its own.
+   public void forgetBinding()
+   {
+      boundTextureID = -1;
+   }
+
+
+   public void setColor(float red, float green, float blue, float alpha)
+   {
+      this.red   = red;
+      this.green = green;
+      this.blue  = blue;
+      this.alpha = alpha;
+   }
+
+
+   // Draw an axis aligned quad with its lower left corner at x, y,
+   // mapping the texture rectangle onto it.
+   public void drawQuad(GL10 gl, int textureID, float x, float y, float width, float height,
+                        float left, float top, float right, float bottom)
+   {
+      setVertex(0, x, y, left, bottom);
+      setVertex(1, x, y + height, left, top);
+      setVertex(2, x + width, y + height, right, top);
+      setVertex(3, x + width, y, right, bottom);
+      add(gl, textureID);
+   }
+
+
+   // Draw a text run scaled, with its lower left corner at x, y.
+   public void drawRun(GL10 gl, TextRun run, float x, float y, float scale)
+   {
+      float[] q = run.quads;
+
+      for (int i = 0, j = 0; i < run.glyphs; i++, j += TextRun.GLYPH_FLOATS)
+      {
+         drawQuad(gl, run.textureIDs[i], x + (q[j] * scale), y + (q[j + 1] * scale),
+                  q[j + 2] * scale, q[j + 3] * scale, q[j + 4], q[j + 5], q[j + 6], q[j + 7]);
+      }
+   }
+
+
+   // Draw following quads as distance field glyphs, whose texture alpha
+   // is one half on the glyph edge. Without shaders the edge is cut by
+   // alpha testing, and the smoothing width is unused.
+   public void setDistanceField(GL10 gl, boolean distanceField, float smoothing)
+   {
+      flush(gl);
+      if (distanceField)
+      {
+         gl.glEnable(GL10.GL_ALPHA_TEST);
+         gl.glAlphaFunc(GL10.GL_GEQUAL, 0.5f);
+      }
+      else
+      {
+         gl.glDisable(GL10.GL_ALPHA_TEST);
+      }
+   }
+
+
+   // Draw a triangle with one texture coordinate.
+   public void drawTriangle(GL10 gl, int textureID, float x0, float y0, float x1, float y1,
+                            float x2, float y2, float u, float v)
+   {
+      setVertex(0, x0, y0, u, v);
+      setVertex(1, x1, y1, u, v);
+      setVertex(2, x2, y2, u, v);
+      setVertex(3, x2, y2, u, v);
+      add(gl, textureID);
+   }
+
+
+   // Draw a line as a quad of the given width with one texture coordinate.
+   public void drawLine(GL10 gl, int textureID, float x0, float y0, float x1, float y1,
+                        float width, float u, float v)
+   {
+      float dx     = x1 - x0;
+      float dy     = y1 - y0;
+      float length = (float)Math.sqrt((dx * dx) + (dy * dy));
+
+      if (length == 0.0f)
+      {
+         return;
+      }
+      float nx = -dy / length * width * 0.5f;
+      float ny = dx / length * width * 0.5f;
+      setVertex(0, x0 - nx, y0 - ny, u, v);
+      setVertex(1, x0 + nx, y0 + ny, u, v);
+      setVertex(2, x1 + nx, y1 + ny, u, v);
+      setVertex(3, x1 - nx, y1 - ny, u, v);
+      add(gl, textureID);
+   }
+
+
+   private void setVertex(int i, float x, float y, float u, float v)
+   {
+      i          *= VERTEX_FLOATS;
+      quad[i]     = x;
+      quad[i + 1] = y;
+      quad[i + 2] = u;
+      quad[i + 3] = v;
+      quad[i + 4] = red;
+      quad[i + 5] = green;
+      quad[i + 6] = blue;
+      quad[i + 7] = alpha;
+   }
+
+
+   // Add the quad, flushing on a texture change or a full buffer.
+   private void add(GL10 gl, int textureID)
+   {
+      if ((textureID != this.textureID) || (quadCount == MAX_QUADS))
+      {
+         flush(gl);
+         this.textureID = textureID;
+      }
+      vertices.put(quad, 0, QUAD_FLOATS);
+      quadCount++;
+   }
+}
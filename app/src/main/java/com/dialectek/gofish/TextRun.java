@@ -0,0 +1,45 @@
+// Go Fish text run.
+// A string laid out once as glyph quads, so drawing it through the
+// sprite batch allocates nothing. Glyph atlas runs are laid out at the
+// atlas size and scaled to the text size as they are drawn.
+
+package com.dialectek.gofish;
+
+public class TextRun
+{
+   // Quad values per glyph: x, y, width, height, left, top, right, bottom.
+   static final int GLYPH_FLOATS = 8;
+
+   // Glyphs, their textures and quads.
+   int     glyphs;
+   int[]   textureIDs;
+   float[] quads;
+
+   // Width in pixels.
+   public float width;
+
+   public TextRun(int maxGlyphs)
+   {
+      textureIDs = new int[maxGlyphs];
+      quads      = new float[maxGlyphs * GLYPH_FLOATS];
+   }
+
+
+   // Add a glyph quad.
+   void add(int textureID, float x, float y, float width, float height,
+            float left, float top, float right, float bottom)
+   {
+      int i = glyphs * GLYPH_FLOATS;
+
+      textureIDs[glyphs] = textureID;
+      quads[i]           = x;
+      quads[i + 1]       = y;
+      quads[i + 2]       = width;
+      quads[i + 3]       = height;
+      quads[i + 4]       = left;
+      quads[i + 5]       = top;
+      quads[i + 6]       = right;
+      quads[i + 7]       = bottom;
+      glyphs++;
+   }
+}
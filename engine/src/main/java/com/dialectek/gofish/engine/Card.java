@@ -0,0 +1,54 @@
+// Go Fish card.
+
+package com.dialectek.gofish.engine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+public class Card
+{
+   public int suit;
+   public int rank;
+
+   public Card(int suit, int rank)
+   {
+      this.suit = suit;
+      this.rank = rank;
+   }
+
+
+   public Card()
+   {
+      suit = rank = 0;
+   }
+
+
+   // Card from game state card index.
+   public Card(int card)
+   {
+      suit = GameState.cardSuit(card);
+      rank = GameState.cardRank(card);
+   }
+
+
+   // Game state card index.
+   public int getIndex()
+   {
+      return(GameState.card(suit, rank));
+   }
+
+
+   public void load(BufferedReader in) throws IOException
+   {
+      suit = GoFishGame.readInt(in);
+      rank = GoFishGame.readInt(in);
+   }
+
+
+   public void save(PrintWriter out)
+   {
+      out.println(suit + "");
+      out.println(rank + "");
+   }
+}
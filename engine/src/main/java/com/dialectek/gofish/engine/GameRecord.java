@@ -0,0 +1,215 @@
+// Go Fish game record.
+// The seed and shuffle a game was dealt with and the moves made, as
+// journal operations, with the outcome. Replaying the moves on a game
+// initialized from the seed reproduces it. Version 1 records were
+// all dealt with the legacy shuffle.
+
+package com.dialectek.gofish.engine;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+import com.dialectek.gofish.engine.GoFishGame.GAME_STATE;
+
+public class GameRecord
+{
+   // Record header.
+   public static final int MAGIC   = 0x47465243;          // "GFRC"
+   public static final int VERSION = 2;
+
+   // Maximum moves in a record.
+   public static final int MAX_MOVES = 65536;
+
+   // Seed, shuffle kind and moves as operation and argument byte pairs.
+   public long   seed;
+   public int    shuffle;
+   public byte[] moves;
+   public int    moveCount;
+
+   // Outcome.
+   public GAME_STATE outcome;
+   public int        myScore, otherScore;
+
+   // Enum lookups.
+   private static final GAME_STATE[] GAME_STATES = GAME_STATE.values();
+
+   public GameRecord(long seed)
+   {
+      this.seed = seed;
+      shuffle   = Shuffle.FISHER_YATES;
+      moves     = new byte[256];
+      moveCount = 0;
+      outcome   = GAME_STATE.START;
+   }
+
+
+   // Add a move.
+   public void add(int op, int arg)
+   {
+      if ((moveCount + 1) * 2 > moves.length)
+      {
+         moves = Arrays.copyOf(moves, moves.length * 2);
+      }
+      moves[moveCount * 2]     = (byte)op;
+      moves[moveCount * 2 + 1] = (byte)arg;
+      moveCount++;
+   }
+
+
+   public int getOp(int move)
+   {
+      return(moves[move * 2]);
+   }
+
+
+   public int getArg(int move)
+   {
+      return(moves[move * 2 + 1]);
+   }
+
+
+   // Set outcome from a finished game.
+   public void finish(GameState state)
+   {
+      outcome    = state.gameState;
+      myScore    = state.getMyScore();
+      otherScore = state.getOtherScore();
+   }
+
+
+   // Replay into state using the given shuffle.
+   // Returns false if a move cannot be applied.
+   public boolean replay(GameState state, Shuffle shuffler)
+   {
+      shuffler.init(state, seed, shuffle);
+      for (int i = 0; i < moveCount; i++)
+      {
+         if (!MoveJournal.apply(state, getOp(i), getArg(i)))
+         {
+            return(false);
+         }
+      }
+      return(true);
+   }
+
+
+   // Replay and check the recorded outcome.
+   public boolean verify(GameState state, Shuffle shuffler)
+   {
+      return(replay(state, shuffler) && (state.gameState == outcome) &&
+             (state.getMyScore() == myScore) && (state.getOtherScore() == otherScore));
+   }
+
+
+   // Size of the written record in bytes.
+   public int getSize()
+   {
+      return(4 + 1 + 8 + 1 + 4 + (moveCount * 2) + 3);
+   }
+
+
+   // Write record.
+   public void write(DataOutputStream out) throws IOException
+   {
+      out.writeInt(MAGIC);
+      out.writeByte(VERSION);
+      out.writeLong(seed);
+      out.writeByte(shuffle);
+      out.writeInt(moveCount);
+      out.write(moves, 0, moveCount * 2);
+      out.writeByte(outcome.ordinal());
+      out.writeByte(myScore);
+      out.writeByte(otherScore);
+   }
+
+
+   // Read record, or return null at end of input.
+   public static GameRecord read(DataInputStream in) throws IOException
+   {
+      int magic;
+
+      try
+      {
+         magic = in.readInt();
+      }
+      catch (EOFException e)
+      {
+         return(null);
+      }
+      if (magic != MAGIC)
+      {
+         throw new IOException("Not a game record");
+      }
+      int version = in.readUnsignedByte();
+      if ((version < 1) || (version > VERSION))
+      {
+         throw new IOException("Unsupported game record version " + version);
+      }
+      GameRecord record = new GameRecord(in.readLong());
+      record.shuffle = Shuffle.LEGACY;
+      if (version >= 2)
+      {
+         record.shuffle = in.readUnsignedByte();
+         if (record.shuffle > Shuffle.FISHER_YATES)
+         {
+            throw new IOException("Invalid shuffle " + record.shuffle);
+         }
+      }
+      int n = in.readInt();
+      if ((n < 0) || (n > MAX_MOVES))
+      {
+         throw new IOException("Invalid move count " + n);
+      }
+      record.moves     = new byte[Math.max(2, n * 2)];
+      record.moveCount = n;
+      in.readFully(record.moves, 0, n * 2);
+      int i = in.readUnsignedByte();
+      if (i >= GAME_STATES.length)
+      {
+         throw new IOException("Invalid outcome " + i);
+      }
+      record.outcome    = GAME_STATES[i];
+      record.myScore    = in.readUnsignedByte();
+      record.otherScore = in.readUnsignedByte();
+      return(record);
+   }
+
+
+   // Print record as text.
+   public void print(PrintStream out)
+   {
+      out.println("seed " + seed + " shuffle " + shuffle + " moves " + moveCount + " outcome " + outcome +
+                  " score " + myScore + "-" + otherScore);
+      StringBuilder line = new StringBuilder();
+      for (int i = 0; i < moveCount; i++)
+      {
+         switch (getOp(i))
+         {
+         case MoveJournal.SHIFT:
+            line.append(" s").append(getArg(i));
+            break;
+
+         case MoveJournal.MOVE:
+            line.append(" m");
+            break;
+
+         case MoveJournal.ASK:
+            line.append(" a").append(getArg(i));
+            break;
+
+         default:
+            line.append(" ?");
+            break;
+         }
+         if ((line.length() > 72) || (i == moveCount - 1))
+         {
+            out.println(line.toString().trim());
+            line.setLength(0);
+         }
+      }
+   }
+}
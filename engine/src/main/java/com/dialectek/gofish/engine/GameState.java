@@ -0,0 +1,795 @@
+// Go Fish compact game state.
+// Each hand, stage and the exchange is a 52-bit card mask with
+// bit (rank * 4 + suit) set when the card is present, so counts
+// are bit counts and transfers are mask operations. A state is a
+// handful of primitives plus the deck order, and can be copied
+// into another state without allocation.
+
+package com.dialectek.gofish.engine;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.dialectek.gofish.engine.GoFishGame.CARD_VISIBILITY;
+import com.dialectek.gofish.engine.GoFishGame.GAME_STATE;
+import com.dialectek.gofish.engine.GoFishGame.RANK_KNOWLEDGE;
+
+public class GameState
+{
+   // All cards.
+   public static final long ALL_CARDS = (1L << 52) - 1L;
+
+   // Players.
+   public static final int MY_PLAYER    = 0;
+   public static final int OTHER_PLAYER = 1;
+
+   // Cards.
+   public long       myHand, otherHand;
+   public long       myStage, otherStage, exchange;
+   public int        myStageRank, otherStageRank, exchangeRank;
+   public int        myScoreRanks, otherScoreRanks;
+   public final byte[] deck = new byte[52];
+   public int        deckDeal;
+   public int        askRank;
+   public int        myHandShift;
+
+   // Visibility: 2 bits per hand rank.
+   public int             myHandVisibility, otherHandVisibility;
+   public CARD_VISIBILITY myStageVisibility, otherStageVisibility, exchangeVisibility;
+
+   // Game state.
+   public GAME_STATE gameState;
+
+   // Player card rank knowledge: 2 bits per rank.
+   // rankKnowledge is what the other player knows of my hand,
+   // otherRankKnowledge what I know of the other player's hand.
+   public int rankKnowledge, otherRankKnowledge;
+
+   // Enum lookups.
+   private static final CARD_VISIBILITY[] VISIBILITIES = CARD_VISIBILITY.values();
+   private static final RANK_KNOWLEDGE[]  KNOWLEDGE    = RANK_KNOWLEDGE.values();
+
+   // Card index.
+   public static int card(int suit, int rank)
+   {
+      return((rank << 2) | suit);
+   }
+
+
+   public static int cardSuit(int card)
+   {
+      return(card & 3);
+   }
+
+
+   public static int cardRank(int card)
+   {
+      return(card >>> 2);
+   }
+
+
+   // Mask of all suits of a rank.
+   public static long rankMask(int rank)
+   {
+      return(0xfL << (rank << 2));
+   }
+
+
+   // Count cards of a rank.
+   public static int count(long cards, int rank)
+   {
+      return(Long.bitCount(cards & rankMask(rank)));
+   }
+
+
+   // Copy state.
+   public void copyFrom(GameState from)
+   {
+      myHand               = from.myHand;
+      otherHand            = from.otherHand;
+      myStage              = from.myStage;
+      otherStage           = from.otherStage;
+      exchange             = from.exchange;
+      myStageRank          = from.myStageRank;
+      otherStageRank       = from.otherStageRank;
+      exchangeRank         = from.exchangeRank;
+      myScoreRanks         = from.myScoreRanks;
+      otherScoreRanks      = from.otherScoreRanks;
+      System.arraycopy(from.deck, 0, deck, 0, 52);
+      deckDeal             = from.deckDeal;
+      askRank              = from.askRank;
+      myHandShift          = from.myHandShift;
+      myHandVisibility     = from.myHandVisibility;
+      otherHandVisibility  = from.otherHandVisibility;
+      myStageVisibility    = from.myStageVisibility;
+      otherStageVisibility = from.otherStageVisibility;
+      exchangeVisibility   = from.exchangeVisibility;
+      gameState            = from.gameState;
+      rankKnowledge        = from.rankKnowledge;
+      otherRankKnowledge   = from.otherRankKnowledge;
+   }
+
+
+   @Override
+   public boolean equals(Object object)
+   {
+      if (!(object instanceof GameState))
+      {
+         return(false);
+      }
+      GameState s = (GameState)object;
+      return(myHand == s.myHand && otherHand == s.otherHand &&
+             myStage == s.myStage && otherStage == s.otherStage && exchange == s.exchange &&
+             myStageRank == s.myStageRank && otherStageRank == s.otherStageRank &&
+             exchangeRank == s.exchangeRank &&
+             myScoreRanks == s.myScoreRanks && otherScoreRanks == s.otherScoreRanks &&
+             Arrays.equals(deck, s.deck) && deckDeal == s.deckDeal && askRank == s.askRank &&
+             myHandShift == s.myHandShift &&
+             myHandVisibility == s.myHandVisibility && otherHandVisibility == s.otherHandVisibility &&
+             myStageVisibility == s.myStageVisibility && otherStageVisibility == s.otherStageVisibility &&
+             exchangeVisibility == s.exchangeVisibility && gameState == s.gameState &&
+             rankKnowledge == s.rankKnowledge && otherRankKnowledge == s.otherRankKnowledge);
+   }
+
+
+   @Override
+   public int hashCode()
+   {
+      long h = myHand * 31 + otherHand;
+
+      h = h * 31 + Arrays.hashCode(deck);
+      h = h * 31 + deckDeal;
+      h = h * 31 + (gameState == null ? 0 : gameState.ordinal());
+      return((int)(h ^ (h >>> 32)));
+   }
+
+
+   // Scores.
+   public int getMyScore()
+   {
+      return(Integer.bitCount(myScoreRanks));
+   }
+
+
+   public int getOtherScore()
+   {
+      return(Integer.bitCount(otherScoreRanks));
+   }
+
+
+   // Hand rank visibility.
+   public CARD_VISIBILITY getMyHandVisibility(int rank)
+   {
+      return(VISIBILITIES[(myHandVisibility >>> (rank << 1)) & 3]);
+   }
+
+
+   public void setMyHandVisibility(int rank, CARD_VISIBILITY visibility)
+   {
+      myHandVisibility = pack(myHandVisibility, rank, visibility.ordinal());
+   }
+
+
+   public CARD_VISIBILITY getOtherHandVisibility(int rank)
+   {
+      return(VISIBILITIES[(otherHandVisibility >>> (rank << 1)) & 3]);
+   }
+
+
+   public void setOtherHandVisibility(int rank, CARD_VISIBILITY visibility)
+   {
+      otherHandVisibility = pack(otherHandVisibility, rank, visibility.ordinal());
+   }
+
+
+   // Rank knowledge.
+   public RANK_KNOWLEDGE getRankKnowledge(int rank)
+   {
+      return(KNOWLEDGE[(rankKnowledge >>> (rank << 1)) & 3]);
+   }
+
+
+   public void setRankKnowledge(int rank, RANK_KNOWLEDGE knowledge)
+   {
+      rankKnowledge = pack(rankKnowledge, rank, knowledge.ordinal());
+   }
+
+
+   public RANK_KNOWLEDGE getOtherRankKnowledge(int rank)
+   {
+      return(KNOWLEDGE[(otherRankKnowledge >>> (rank << 1)) & 3]);
+   }
+
+
+   public void setOtherRankKnowledge(int rank, RANK_KNOWLEDGE knowledge)
+   {
+      otherRankKnowledge = pack(otherRankKnowledge, rank, knowledge.ordinal());
+   }
+
+
+   // Player's hand.
+   public long getHand(int player)
+   {
+      return(player == MY_PLAYER ? myHand : otherHand);
+   }
+
+
+   // Player's knowledge of the opponent's hand.
+   public RANK_KNOWLEDGE getKnowledge(int player, int rank)
+   {
+      return(player == MY_PLAYER ? getOtherRankKnowledge(rank) : getRankKnowledge(rank));
+   }
+
+
+   private static int pack(int bits, int rank, int value)
+   {
+      int shift = rank << 1;
+
+      return((bits & ~(3 << shift)) | (value << shift));
+   }
+
+
+   // Initialize game with the original swap shuffle.
+   public void init(Random random)
+   {
+      initDeck();
+      Shuffle.shuffleLegacy(deck, random);
+      deal();
+   }
+
+
+   // Initialize game with a Fisher-Yates shuffle.
+   public void init(Rng rng)
+   {
+      initDeck();
+      Shuffle.shuffle(deck, 52, rng);
+      deal();
+   }
+
+
+   // Clear table and order deck.
+   private void initDeck()
+   {
+      int i, j, k;
+
+      myHand              = otherHand = 0L;
+      myStage             = otherStage = exchange = 0L;
+      myStageRank         = otherStageRank = exchangeRank = 0;
+      myScoreRanks        = otherScoreRanks = 0;
+      myHandVisibility    = otherHandVisibility = 0;
+      for (i = 0; i < 13; i++)
+      {
+         setMyHandVisibility(i, CARD_VISIBILITY.RANK);
+         setOtherHandVisibility(i, CARD_VISIBILITY.RANK);
+      }
+      myStageVisibility    = CARD_VISIBILITY.HIDDEN;
+      otherStageVisibility = CARD_VISIBILITY.HIDDEN;
+      exchangeVisibility   = CARD_VISIBILITY.HIDDEN;
+      deckDeal             = k = 0;
+      for (i = 0; i < 4; i++)
+      {
+         for (j = 0; j < 13; j++)
+         {
+            deck[k] = (byte)card(i, j);
+            k++;
+         }
+      }
+   }
+
+
+   // Deal shuffled deck and start game.
+   private void deal()
+   {
+      int i, card;
+
+      // Deal cards.
+      for (i = 0; i < 7; i++)
+      {
+         card = deck[deckDeal];
+         deckDeal++;
+         myHand |= 1L << card;
+         setMyHandVisibility(cardRank(card), CARD_VISIBILITY.FACE_UP);
+         card = deck[deckDeal];
+         deckDeal++;
+         otherHand |= 1L << card;
+         setOtherHandVisibility(cardRank(card), CARD_VISIBILITY.FACE_DOWN);
+      }
+      askRank     = -1;
+      myHandShift = 0;
+
+      // Check for score on deal.
+      for (i = 0; i < 13; i++)
+      {
+         if (count(myHand, i) == 4)
+         {
+            myScoreRanks |= 1 << i;
+            myHand       &= ~rankMask(i);
+            setMyHandVisibility(i, CARD_VISIBILITY.HIDDEN);
+            setOtherHandVisibility(i, CARD_VISIBILITY.HIDDEN);
+            break;
+         }
+      }
+      for (i = 0; i < 13; i++)
+      {
+         if (count(otherHand, i) == 4)
+         {
+            otherScoreRanks |= 1 << i;
+            otherHand       &= ~rankMask(i);
+            setMyHandVisibility(i, CARD_VISIBILITY.HIDDEN);
+            setOtherHandVisibility(i, CARD_VISIBILITY.HIDDEN);
+            break;
+         }
+      }
+
+      // Start game.
+      if (getMyHandVisibility(6) == CARD_VISIBILITY.FACE_UP)
+      {
+         gameState = GAME_STATE.MY_TURN;
+      }
+      else
+      {
+         gameState = GAME_STATE.MY_HAND_TO_STAGE_SHIFT;
+      }
+
+      initKnowledge();
+   }
+
+
+   // Initialize rank knowledge: only scored ranks are known.
+   public void initKnowledge()
+   {
+      rankKnowledge = otherRankKnowledge = 0;
+      for (int i = 0; i < 13; i++)
+      {
+         if (((myScoreRanks | otherScoreRanks) & (1 << i)) != 0)
+         {
+            setRankKnowledge(i, RANK_KNOWLEDGE.CANNOT_HAVE);
+            setOtherRankKnowledge(i, RANK_KNOWLEDGE.CANNOT_HAVE);
+         }
+         else
+         {
+            setRankKnowledge(i, RANK_KNOWLEDGE.MIGHT_HAVE);
+            setOtherRankKnowledge(i, RANK_KNOWLEDGE.MIGHT_HAVE);
+         }
+      }
+   }
+
+
+   // Shift hand.
+   public void shiftHand(int direction)
+   {
+      myHandShift += direction;
+      int rank = getShiftIndex(6);
+      if (getMyHandVisibility(rank) == CARD_VISIBILITY.FACE_UP)
+      {
+         if (otherStageVisibility == CARD_VISIBILITY.RANK)
+         {
+            if (rank == otherStageRank)
+            {
+               gameState = GAME_STATE.MY_HAND_TO_STAGE_ONLY;
+            }
+            else
+            {
+               gameState = GAME_STATE.MY_HAND_TO_STAGE_SHIFT;
+            }
+         }
+         else
+         {
+            if (myStage == 0L)
+            {
+               gameState = GAME_STATE.MY_TURN;
+            }
+            else
+            {
+               if (myStageRank == rank)
+               {
+                  gameState = GAME_STATE.MY_HAND_TO_STAGE_ONLY;
+               }
+               else
+               {
+                  gameState = GAME_STATE.MY_HAND_TO_STAGE_SHIFT;
+               }
+            }
+         }
+      }
+      else
+      {
+         gameState = GAME_STATE.MY_HAND_TO_STAGE_SHIFT;
+      }
+   }
+
+
+   // Shift hand so that the given rank is selected.
+   public void shiftTo(int rank)
+   {
+      shiftHand((6 - rank) - myHandShift);
+   }
+
+
+   // Do game move.
+   // The other player's ask rank is only used in the OTHER_TURN state.
+   // Scored ranks are hidden and empty, so a hand with no cards left
+   // has no visible cards.
+   public void doMove(int otherAskRank)
+   {
+      int  rank;
+      long cards;
+
+      switch (gameState)
+      {
+      case START:
+         break;
+
+      case MY_TURN:
+         rank    = getShiftIndex(6);
+         askRank = rank;
+         setRankKnowledge(rank, RANK_KNOWLEDGE.DOES_HAVE);
+         setOtherRankKnowledge(rank, RANK_KNOWLEDGE.DOES_NOT_HAVE);
+         myStageRank       = rank;
+         myStageVisibility = CARD_VISIBILITY.RANK;
+         if (count(otherHand, rank) > 0)
+         {
+            gameState = GAME_STATE.OTHER_HAND_TO_STAGE;
+         }
+         else
+         {
+            gameState = GAME_STATE.MY_DRAW_TO_EXCHANGE;
+         }
+         break;
+
+      case MY_HAND_TO_STAGE_ONLY:
+         rank  = getShiftIndex(6);
+         cards = myHand & rankMask(rank);
+         if (cards != 0L)
+         {
+            myHand     &= ~cards;
+            myStage    |= cards;
+            myStageRank = rank;
+         }
+         myStageVisibility = CARD_VISIBILITY.FACE_UP;
+         setMyHandVisibility(rank, CARD_VISIBILITY.RANK);
+         if (otherStageVisibility == CARD_VISIBILITY.RANK)
+         {
+            gameState = GAME_STATE.MY_STAGE_TO_EXCHANGE;
+         }
+         else
+         {
+            gameState = GAME_STATE.MY_STAGE_TO_SCORE;
+         }
+         break;
+
+      case MY_STAGE_TO_HAND:
+         rank    = myStageRank;
+         myHand |= myStage;
+         myStage = 0L;
+         setMyHandVisibility(rank, CARD_VISIBILITY.FACE_UP);
+         if (myStageVisibility == CARD_VISIBILITY.FACE_UP)
+         {
+            gameState = GAME_STATE.MY_TURN;
+         }
+         else
+         {
+            gameState = GAME_STATE.OTHER_TURN;
+         }
+         myStageVisibility = CARD_VISIBILITY.HIDDEN;
+         if ((deckDeal == 52) || (otherHand == 0L))
+         {
+            endGame();
+         }
+         break;
+
+      case MY_STAGE_TO_EXCHANGE:
+         if (myStage != 0L)
+         {
+            exchange    |= myStage;
+            exchangeRank = myStageRank;
+            myStage      = 0L;
+         }
+         exchangeVisibility = myStageVisibility;
+         myStageVisibility  = CARD_VISIBILITY.HIDDEN;
+         gameState          = GAME_STATE.EXCHANGE_TO_OTHER_STAGE;
+         break;
+
+      case MY_STAGE_TO_SCORE:
+         rank          = myStageRank;
+         myScoreRanks |= 1 << rank;
+         setRankKnowledge(rank, RANK_KNOWLEDGE.CANNOT_HAVE);
+         setOtherRankKnowledge(rank, RANK_KNOWLEDGE.CANNOT_HAVE);
+         myStage           = 0L;
+         myStageVisibility = CARD_VISIBILITY.HIDDEN;
+         setMyHandVisibility(rank, CARD_VISIBILITY.HIDDEN);
+         setOtherHandVisibility(rank, CARD_VISIBILITY.HIDDEN);
+         if (askRank == rank)
+         {
+            if (count(myHand, getShiftIndex(6)) > 0)
+            {
+               gameState = GAME_STATE.MY_TURN;
+            }
+            else
+            {
+               gameState = GAME_STATE.MY_HAND_TO_STAGE_SHIFT;
+            }
+         }
+         else
+         {
+            gameState = GAME_STATE.OTHER_TURN;
+         }
+         if ((deckDeal == 52) || (myHand == 0L) || (otherHand == 0L))
+         {
+            endGame();
+         }
+         break;
+
+      case EXCHANGE_TO_MY_STAGE:
+         if (exchange != 0L)
+         {
+            myStage    |= exchange;
+            myStageRank = exchangeRank;
+            exchange    = 0L;
+         }
+         myStageVisibility  = exchangeVisibility;
+         exchangeVisibility = CARD_VISIBILITY.HIDDEN;
+         if (myStageVisibility == CARD_VISIBILITY.FACE_DOWN)
+         {
+            if ((Long.bitCount(myStage) + count(myHand, myStageRank)) == 4)
+            {
+               myStageVisibility = CARD_VISIBILITY.FACE_UP;
+               gameState         = GAME_STATE.MY_HAND_TO_STAGE_SHIFT;
+            }
+            else
+            {
+               for (int i = 0; i < 13; i++)
+               {
+                  if (getRankKnowledge(i) == RANK_KNOWLEDGE.DOES_NOT_HAVE)
+                  {
+                     setRankKnowledge(i, RANK_KNOWLEDGE.MIGHT_HAVE);
+                  }
+               }
+               gameState = GAME_STATE.MY_STAGE_TO_HAND;
+            }
+         }
+         else
+         {
+            if ((Long.bitCount(myStage) + count(myHand, myStageRank)) == 4)
+            {
+               gameState = GAME_STATE.MY_HAND_TO_STAGE_ONLY;
+            }
+            else
+            {
+               gameState = GAME_STATE.MY_STAGE_TO_HAND;
+            }
+         }
+         break;
+
+      case OTHER_TURN:
+         rank    = otherAskRank;
+         askRank = rank;
+         setRankKnowledge(rank, RANK_KNOWLEDGE.DOES_NOT_HAVE);
+         setOtherRankKnowledge(rank, RANK_KNOWLEDGE.DOES_HAVE);
+         otherStageRank       = rank;
+         otherStageVisibility = CARD_VISIBILITY.RANK;
+         if (count(myHand, rank) > 0)
+         {
+            if (getShiftIndex(6) == rank)
+            {
+               gameState = GAME_STATE.MY_HAND_TO_STAGE_ONLY;
+            }
+            else
+            {
+               gameState = GAME_STATE.MY_HAND_TO_STAGE_SHIFT;
+            }
+         }
+         else
+         {
+            gameState = GAME_STATE.OTHER_DRAW_TO_EXCHANGE;
+         }
+         break;
+
+      case OTHER_HAND_TO_STAGE:
+         if (otherStage != 0L)
+         {
+            rank      = otherStageRank;
+            gameState = GAME_STATE.OTHER_STAGE_TO_SCORE;
+         }
+         else
+         {
+            rank      = myStageRank;
+            gameState = GAME_STATE.OTHER_STAGE_TO_EXCHANGE;
+         }
+         cards = otherHand & rankMask(rank);
+         if (cards != 0L)
+         {
+            otherHand     &= ~cards;
+            otherStage    |= cards;
+            otherStageRank = rank;
+         }
+         otherStageVisibility = CARD_VISIBILITY.FACE_UP;
+         setOtherHandVisibility(rank, CARD_VISIBILITY.RANK);
+         break;
+
+      case OTHER_STAGE_TO_HAND:
+         rank       = otherStageRank;
+         otherHand |= otherStage;
+         otherStage = 0L;
+         setOtherHandVisibility(rank, CARD_VISIBILITY.FACE_DOWN);
+         if (otherStageVisibility == CARD_VISIBILITY.FACE_UP)
+         {
+            gameState = GAME_STATE.OTHER_TURN;
+         }
+         else
+         {
+            if (count(myHand, getShiftIndex(6)) > 0)
+            {
+               gameState = GAME_STATE.MY_TURN;
+            }
+            else
+            {
+               gameState = GAME_STATE.MY_HAND_TO_STAGE_SHIFT;
+            }
+         }
+         otherStageVisibility = CARD_VISIBILITY.HIDDEN;
+         if ((deckDeal == 52) || (myHand == 0L))
+         {
+            endGame();
+         }
+         break;
+
+      case OTHER_STAGE_TO_EXCHANGE:
+         if (otherStage != 0L)
+         {
+            exchange    |= otherStage;
+            exchangeRank = otherStageRank;
+            otherStage   = 0L;
+         }
+         exchangeVisibility   = otherStageVisibility;
+         otherStageVisibility = CARD_VISIBILITY.HIDDEN;
+         gameState            = GAME_STATE.EXCHANGE_TO_MY_STAGE;
+         break;
+
+      case OTHER_STAGE_TO_SCORE:
+         rank             = otherStageRank;
+         otherScoreRanks |= 1 << rank;
+         setRankKnowledge(rank, RANK_KNOWLEDGE.CANNOT_HAVE);
+         setOtherRankKnowledge(rank, RANK_KNOWLEDGE.CANNOT_HAVE);
+         otherStage           = 0L;
+         otherStageVisibility = CARD_VISIBILITY.HIDDEN;
+         setOtherHandVisibility(rank, CARD_VISIBILITY.HIDDEN);
+         setMyHandVisibility(rank, CARD_VISIBILITY.HIDDEN);
+         if (askRank == rank)
+         {
+            gameState = GAME_STATE.OTHER_TURN;
+         }
+         else
+         {
+            if (count(myHand, getShiftIndex(6)) > 0)
+            {
+               gameState = GAME_STATE.MY_TURN;
+            }
+            else
+            {
+               gameState = GAME_STATE.MY_HAND_TO_STAGE_SHIFT;
+            }
+         }
+         if ((deckDeal == 52) || (myHand == 0L) || (otherHand == 0L))
+         {
+            endGame();
+         }
+         break;
+
+      case EXCHANGE_TO_OTHER_STAGE:
+         if (exchange != 0L)
+         {
+            otherStage    |= exchange;
+            otherStageRank = exchangeRank;
+            exchange       = 0L;
+         }
+         otherStageVisibility = exchangeVisibility;
+         exchangeVisibility   = CARD_VISIBILITY.HIDDEN;
+         if ((Long.bitCount(otherStage) + count(otherHand, otherStageRank)) == 4)
+         {
+            if (otherStageVisibility == CARD_VISIBILITY.FACE_DOWN)
+            {
+               otherStageVisibility = CARD_VISIBILITY.FACE_UP;
+            }
+            gameState = GAME_STATE.OTHER_HAND_TO_STAGE;
+         }
+         else
+         {
+            if (otherStageVisibility == CARD_VISIBILITY.FACE_DOWN)
+            {
+               for (int i = 0; i < 13; i++)
+               {
+                  if (getOtherRankKnowledge(i) == RANK_KNOWLEDGE.DOES_NOT_HAVE)
+                  {
+                     setOtherRankKnowledge(i, RANK_KNOWLEDGE.MIGHT_HAVE);
+                  }
+               }
+            }
+            gameState = GAME_STATE.OTHER_STAGE_TO_HAND;
+         }
+         break;
+
+      case MY_DRAW_TO_EXCHANGE:
+         rank      = cardRank(deck[deckDeal]);
+         exchange |= 1L << deck[deckDeal];
+         deckDeal++;
+         exchangeRank = rank;
+         if (myStageRank == rank)
+         {
+            exchangeVisibility = CARD_VISIBILITY.FACE_UP;
+         }
+         else
+         {
+            exchangeVisibility = CARD_VISIBILITY.FACE_DOWN;
+         }
+         gameState = GAME_STATE.EXCHANGE_TO_MY_STAGE;
+         break;
+
+      case OTHER_DRAW_TO_EXCHANGE:
+         rank      = cardRank(deck[deckDeal]);
+         exchange |= 1L << deck[deckDeal];
+         deckDeal++;
+         exchangeRank = rank;
+         if (otherStageRank == rank)
+         {
+            exchangeVisibility = CARD_VISIBILITY.FACE_UP;
+         }
+         else
+         {
+            exchangeVisibility = CARD_VISIBILITY.FACE_DOWN;
+         }
+         gameState = GAME_STATE.EXCHANGE_TO_OTHER_STAGE;
+         break;
+
+      case MY_WIN:
+         break;
+
+      case OTHER_WIN:
+         break;
+
+      case TIE:
+         break;
+      }
+   }
+
+
+   // End game.
+   private void endGame()
+   {
+      int myScore    = getMyScore();
+      int otherScore = getOtherScore();
+
+      if (myScore > otherScore)
+      {
+         gameState = GAME_STATE.MY_WIN;
+      }
+      else if (myScore == otherScore)
+      {
+         gameState = GAME_STATE.TIE;
+      }
+      else
+      {
+         gameState = GAME_STATE.OTHER_WIN;
+      }
+   }
+
+
+   // Game over?
+   public boolean isOver()
+   {
+      return((gameState == GAME_STATE.MY_WIN) ||
+             (gameState == GAME_STATE.OTHER_WIN) ||
+             (gameState == GAME_STATE.TIE));
+   }
+
+
+   // Get shifted card index.
+   public int getShiftIndex(int i)
+   {
+      int j = i - myHandShift;
+
+      while (j < 0) { j += 13; }
+      j %= 13;
+      return(j);
+   }
+}
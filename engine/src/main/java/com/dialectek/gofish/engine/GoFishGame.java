@@ -0,0 +1,407 @@
+// Go Fish game engine.
+// Card rules and state machine, free of Android dependencies.
+
+package com.dialectek.gofish.engine;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Random;
+
+public class GoFishGame
+{
+   // Card suits.
+   public static final int CLUBS    = 0;
+   public static final int DIAMONDS = 1;
+   public static final int HEARTS   = 2;
+   public static final int SPADES   = 3;
+
+   // Game state.
+   public final GameState state;
+
+   // Card views.
+   public final RankSet[] myHand;
+   public final RankSet[] otherHand;
+   public final RankSet   myStage;
+   public final RankSet   otherStage;
+   public final RankSet   exchange;
+
+   // Game state.
+   public enum GAME_STATE
+   {
+      START,
+      MY_TURN,
+      MY_HAND_TO_STAGE_SHIFT,
+      MY_HAND_TO_STAGE_ONLY,
+      MY_STAGE_TO_HAND,
+      MY_STAGE_TO_EXCHANGE,
+      MY_STAGE_TO_SCORE,
+      EXCHANGE_TO_MY_STAGE,
+      OTHER_TURN,
+      OTHER_HAND_TO_STAGE,
+      OTHER_STAGE_TO_HAND,
+      OTHER_STAGE_TO_EXCHANGE,
+      OTHER_STAGE_TO_SCORE,
+      EXCHANGE_TO_OTHER_STAGE,
+      MY_DRAW_TO_EXCHANGE,
+      OTHER_DRAW_TO_EXCHANGE,
+      MY_WIN,
+      OTHER_WIN,
+      TIE
+   };
+
+   // Player card rank knowledge.
+   public enum RANK_KNOWLEDGE
+   {
+      DOES_HAVE,
+      DOES_NOT_HAVE,
+      MIGHT_HAVE,
+      CANNOT_HAVE
+   };
+
+   // Card visibility.
+   public enum CARD_VISIBILITY
+   {
+      FACE_UP,
+      FACE_DOWN,
+      RANK,
+      HIDDEN
+   };
+
+   // Random numbers: game seeds and the other player's strategy.
+   Random random;
+
+   // Game seed: the deck is shuffled by a generator seeded with it,
+   // so a seed and the moves made reproduce a game.
+   public long    seed;
+   final Shuffle shuffle = new Shuffle();
+
+   // Fair play: new games are dealt straight from a secure generator,
+   // so deals can be neither predicted nor reproduced from a seed.
+   public final boolean fairPlay;
+   SecureRng            secureRng;
+
+   // Other player strategy.
+   public Strategy strategy;
+
+   // Constructors.
+   public GoFishGame()
+   {
+      this(new Random());
+   }
+
+
+   public GoFishGame(Random random)
+   {
+      this(random, false);
+   }
+
+
+   public GoFishGame(Random random, boolean fairPlay)
+   {
+      this.random   = random;
+      this.fairPlay = fairPlay;
+      if (fairPlay)
+      {
+         secureRng = new SecureRng();
+      }
+      strategy    = new HeuristicStrategy();
+      state       = new GameState();
+      myHand      = new RankSet[13];
+      otherHand   = new RankSet[13];
+      for (int i = 0; i < 13; i++)
+      {
+         myHand[i]    = new RankSet(state, RankSet.MY_HAND, i);
+         otherHand[i] = new RankSet(state, RankSet.OTHER_HAND, i);
+      }
+      myStage    = new RankSet(state, RankSet.MY_STAGE);
+      otherStage = new RankSet(state, RankSet.OTHER_STAGE);
+      exchange   = new RankSet(state, RankSet.EXCHANGE);
+      init();
+   }
+
+
+   // Initialize game with a new seed, or in fair play a secure deal
+   // with no seed.
+   public void init()
+   {
+      if (fairPlay)
+      {
+         seed = 0L;
+         state.init(secureRng);
+      }
+      else
+      {
+         init(random.nextLong());
+      }
+   }
+
+
+   // Initialize game with a seed.
+   public void init(long seed)
+   {
+      this.seed = seed;
+      shuffle.init(state, seed, Shuffle.FISHER_YATES);
+   }
+
+
+   // Shift hand.
+   public void shiftHand(int direction)
+   {
+      state.shiftHand(direction);
+   }
+
+
+   // Do game move.
+   public void doMove()
+   {
+      if (state.gameState == GAME_STATE.OTHER_TURN)
+      {
+         state.doMove(getAskRank(state));
+      }
+      else
+      {
+         state.doMove(-1);
+      }
+   }
+
+
+   // Get other player's ask rank for a state.
+   // Safe to call off the game thread on a copy of the state.
+   public int getAskRank(GameState state)
+   {
+      return(strategy.getAskRank(state, GameState.OTHER_PLAYER, random));
+   }
+
+
+   // Do other player's turn with a chosen ask rank.
+   public void doMove(int askRank)
+   {
+      state.doMove(askRank);
+   }
+
+
+   // Get shifted card index.
+   public int getShiftIndex(int i)
+   {
+      return(state.getShiftIndex(i));
+   }
+
+
+   // Load game. The state is unchanged if loading fails.
+   public void load(BufferedReader in) throws IOException
+   {
+      GameState loaded = new GameState();
+
+      loaded.copyFrom(state);
+      try
+      {
+         load(in, loaded);
+      }
+      catch (NumberFormatException e)
+      {
+         throw new IOException("Invalid save file");
+      }
+      state.copyFrom(loaded);
+   }
+
+
+   private void load(BufferedReader in, GameState state) throws IOException
+   {
+      int i, n, rank;
+
+      state.myHand = 0L;
+      for (i = 0; i < 13; i++)
+      {
+         rank          = readInt(in);
+         state.myHand |= loadCards(in);
+         state.setMyHandVisibility(rank, loadVisibility(in));
+      }
+      state.otherHand = 0L;
+      for (i = 0; i < 13; i++)
+      {
+         rank             = readInt(in);
+         state.otherHand |= loadCards(in);
+         state.setOtherHandVisibility(rank, loadVisibility(in));
+      }
+      n = readInt(in);
+      state.myScoreRanks = 0;
+      for (i = 0; i < n; i++)
+      {
+         rank = readInt(in);
+         loadCards(in);
+         loadVisibility(in);
+         state.myScoreRanks |= 1 << rank;
+      }
+      n = readInt(in);
+      state.otherScoreRanks = 0;
+      for (i = 0; i < n; i++)
+      {
+         rank = readInt(in);
+         loadCards(in);
+         loadVisibility(in);
+         state.otherScoreRanks |= 1 << rank;
+      }
+      state.myStageRank          = readInt(in);
+      state.myStage              = loadCards(in);
+      state.myStageVisibility    = loadVisibility(in);
+      state.otherStageRank       = readInt(in);
+      state.otherStage           = loadCards(in);
+      state.otherStageVisibility = loadVisibility(in);
+      state.exchangeRank         = readInt(in);
+      state.exchange             = loadCards(in);
+      state.exchangeVisibility   = loadVisibility(in);
+      Card card = new Card();
+      for (i = 0; i < 52; i++)
+      {
+         card.load(in);
+         state.deck[i] = (byte)card.getIndex();
+      }
+      state.deckDeal    = readInt(in);
+      state.askRank     = readInt(in);
+      state.myHandShift = readInt(in);
+      i = readInt(in);
+      if ((i >= 0) && (i < GAME_STATE.values().length))
+      {
+         state.gameState = GAME_STATE.values()[i];
+      }
+
+      // Scores are the number of scored ranks.
+      readLine(in);
+      readLine(in);
+
+      // Knowledge of the other hand is not saved.
+      state.initKnowledge();
+      for (i = 0; i < 13; i++)
+      {
+         n = readInt(in);
+         if ((n >= 0) && (n < RANK_KNOWLEDGE.values().length))
+         {
+            state.setRankKnowledge(i, RANK_KNOWLEDGE.values()[n]);
+         }
+      }
+   }
+
+
+   // Load rank set cards.
+   private long loadCards(BufferedReader in) throws IOException
+   {
+      long cards = 0L;
+      Card card  = new Card();
+
+      for (int i = 0; i < 4; i++)
+      {
+         if (readLine(in).equals("1"))
+         {
+            card.load(in);
+            cards |= 1L << card.getIndex();
+         }
+      }
+      return(cards);
+   }
+
+
+   // Read a save file line, failing at the end of the file.
+   static String readLine(BufferedReader in) throws IOException
+   {
+      String line = in.readLine();
+
+      if (line == null)
+      {
+         throw new EOFException("Truncated save file");
+      }
+      return(line);
+   }
+
+
+   static int readInt(BufferedReader in) throws IOException
+   {
+      return(Integer.parseInt(readLine(in)));
+   }
+
+
+   // Load rank set visibility.
+   private CARD_VISIBILITY loadVisibility(BufferedReader in) throws IOException
+   {
+      int i = readInt(in);
+
+      if ((i >= 0) && (i < CARD_VISIBILITY.values().length))
+      {
+         return(CARD_VISIBILITY.values()[i]);
+      }
+      return(CARD_VISIBILITY.RANK);
+   }
+
+
+   // Save game.
+   public void save(PrintWriter out)
+   {
+      int i;
+
+      for (i = 0; i < 13; i++)
+      {
+         saveRankSet(out, i, state.myHand & GameState.rankMask(i),
+                     state.getMyHandVisibility(i));
+      }
+      for (i = 0; i < 13; i++)
+      {
+         saveRankSet(out, i, state.otherHand & GameState.rankMask(i),
+                     state.getOtherHandVisibility(i));
+      }
+      out.println(state.getMyScore() + "");
+      for (i = 0; i < 13; i++)
+      {
+         if ((state.myScoreRanks & (1 << i)) != 0)
+         {
+            saveRankSet(out, i, GameState.rankMask(i), CARD_VISIBILITY.RANK);
+         }
+      }
+      out.println(state.getOtherScore() + "");
+      for (i = 0; i < 13; i++)
+      {
+         if ((state.otherScoreRanks & (1 << i)) != 0)
+         {
+            saveRankSet(out, i, GameState.rankMask(i), CARD_VISIBILITY.RANK);
+         }
+      }
+      saveRankSet(out, state.myStageRank, state.myStage, state.myStageVisibility);
+      saveRankSet(out, state.otherStageRank, state.otherStage, state.otherStageVisibility);
+      saveRankSet(out, state.exchangeRank, state.exchange, state.exchangeVisibility);
+      for (i = 0; i < 52; i++)
+      {
+         new Card(state.deck[i]).save(out);
+      }
+      out.println(state.deckDeal + "");
+      out.println(state.askRank + "");
+      out.println(state.myHandShift + "");
+      out.println(state.gameState.ordinal() + "");
+      out.println(state.getMyScore() + "");
+      out.println(state.getOtherScore() + "");
+      for (i = 0; i < 13; i++)
+      {
+         out.println(state.getRankKnowledge(i).ordinal() + "");
+      }
+   }
+
+
+   // Save rank set.
+   private void saveRankSet(PrintWriter out, int rank, long cards, CARD_VISIBILITY visibility)
+   {
+      out.println(rank + "");
+      for (int i = 0; i < 4; i++)
+      {
+         int card = GameState.card(i, rank);
+         if ((cards & (1L << card)) != 0L)
+         {
+            out.println("1");
+            new Card(card).save(out);
+         }
+         else
+         {
+            out.println("0");
+         }
+      }
+      out.println(visibility.ordinal() + "");
+   }
+}
@@ -0,0 +1,45 @@
+// Go Fish greedy strategy.
+// Ask for the held rank the opponent is known to have, else the
+// held rank with the most cards the opponent might have.
+
+package com.dialectek.gofish.engine;
+
+import java.util.Random;
+
+public class GreedyStrategy implements Strategy
+{
+   public int getAskRank(GameState state, int player, Random random)
+   {
+      long hand = state.getHand(player);
+      int  best = -1, bestScore = -1;
+
+      for (int i = 0, rank = random.nextInt(13); i < 13; i++, rank = (rank + 1) % 13)
+      {
+         int n = GameState.count(hand, rank);
+         if (n == 0)
+         {
+            continue;
+         }
+         int score = n;
+         switch (state.getKnowledge(player, rank))
+         {
+         case DOES_HAVE:
+            score += 8;
+            break;
+
+         case MIGHT_HAVE:
+            score += 4;
+            break;
+
+         default:
+            break;
+         }
+         if (score > bestScore)
+         {
+            best      = rank;
+            bestScore = score;
+         }
+      }
+      return(best < 0 ? 0 : best);
+   }
+}
@@ -0,0 +1,43 @@
+// Go Fish heuristic strategy.
+// Ask for a held rank the opponent is known to have, else one
+// the opponent might have, else any held rank.
+
+package com.dialectek.gofish.engine;
+
+import java.util.Random;
+
+import com.dialectek.gofish.engine.GoFishGame.RANK_KNOWLEDGE;
+
+public class HeuristicStrategy implements Strategy
+{
+   public int getAskRank(GameState state, int player, Random random)
+   {
+      int  i, rank;
+      long hand = state.getHand(player);
+
+      for (i = 0, rank = random.nextInt(13); i < 13; i++, rank = (rank + 1) % 13)
+      {
+         if ((GameState.count(hand, rank) > 0) &&
+             (state.getKnowledge(player, rank) == RANK_KNOWLEDGE.DOES_HAVE))
+         {
+            return(rank);
+         }
+      }
+      for (i = 0, rank = random.nextInt(13); i < 13; i++, rank = (rank + 1) % 13)
+      {
+         if ((GameState.count(hand, rank) > 0) &&
+             (state.getKnowledge(player, rank) == RANK_KNOWLEDGE.MIGHT_HAVE))
+         {
+            return(rank);
+         }
+      }
+      for (i = 0, rank = random.nextInt(13); i < 13; i++, rank = (rank + 1) % 13)
+      {
+         if (GameState.count(hand, rank) > 0)
+         {
+            return(rank);
+         }
+      }
+      return(0);
+   }
+}
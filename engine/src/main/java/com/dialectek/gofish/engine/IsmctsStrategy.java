@@ -0,0 +1,556 @@
+// Go Fish information set Monte Carlo tree search strategy.
+// Each iteration determinizes the hidden cards: the opponent's
+// hand is dealt from the unseen cards consistent with what the
+// player knows of it, and the rest are shuffled into the deck.
+// The determinized game is then played down a tree of ask moves
+// shared by all determinizations and finished with heuristic
+// playouts. Known catches are asked at once; otherwise every held
+// rank is searched, with the knowledge the heuristic ranks asks by
+// as a prior that fades as a move is visited.
+//
+// Nodes live in preallocated arrays, so a search allocates nothing.
+// Searches run on one thread or are root-parallel across workers
+// whose visit counts are summed.
+
+package com.dialectek.gofish.engine;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import com.dialectek.gofish.engine.GoFishGame.CARD_VISIBILITY;
+import com.dialectek.gofish.engine.GoFishGame.GAME_STATE;
+import com.dialectek.gofish.engine.GoFishGame.RANK_KNOWLEDGE;
+
+public class IsmctsStrategy implements Strategy
+{
+   // Default search budget.
+   public static final int DEFAULT_ITERATIONS = 2000;
+   public static final int DEFAULT_MAX_NODES  = 16384;
+
+   // Exploration constant, and weight of the knowledge prior.
+   public static final float EXPLORATION  = 0.7f;
+   public static final float PRIOR_WEIGHT = 1.0f;
+
+   // Child slots per node: one per player and rank.
+   static final int SLOTS = 26;
+
+   // Maximum tree depth in ask moves.
+   static final int MAX_DEPTH = 256;
+
+   // Iterations between clock checks.
+   static final int CLOCK_CHECK = 64;
+
+   // Budget: iterations per worker, and optional time limit.
+   public final int  iterations;
+   public final long timeLimitNanos;
+
+   // Workers and their pool.
+   final Searcher[]   searchers;
+   final ForkJoinPool pool;
+   final SearchAction action;
+   final int[]        visits = new int[13];
+
+   // Single threaded search with an iteration budget.
+   public IsmctsStrategy(int iterations)
+   {
+      this(iterations, 0L, 1, DEFAULT_MAX_NODES);
+   }
+
+
+   // Search with an iteration budget and, if positive, a time limit,
+   // root-parallel over the given number of threads.
+   public IsmctsStrategy(int iterations, long timeLimitNanos, int threads, int maxNodes)
+   {
+      this.iterations     = iterations;
+      this.timeLimitNanos = timeLimitNanos;
+      searchers           = new Searcher[Math.max(1, threads)];
+      for (int i = 0; i < searchers.length; i++)
+      {
+         searchers[i] = new Searcher(maxNodes);
+      }
+      if (searchers.length > 1)
+      {
+         pool   = new ForkJoinPool(searchers.length);
+         action = new SearchAction();
+      }
+      else
+      {
+         pool   = null;
+         action = null;
+      }
+   }
+
+
+   // Choose ask rank. Not thread safe: use one instance per thread.
+   public int getAskRank(GameState state, int player, Random random)
+   {
+      int i, rank, best;
+
+      // A single candidate needs no search.
+      int ranks = getCandidates(state, player);
+      if (Integer.bitCount(ranks) <= 1)
+      {
+         return(ranks == 0 ? 0 : Integer.numberOfTrailingZeros(ranks));
+      }
+
+      long deadline = timeLimitNanos > 0L ? System.nanoTime() + timeLimitNanos : 0L;
+      for (i = 0; i < searchers.length; i++)
+      {
+         searchers[i].prepare(state, player, random.nextLong(), deadline);
+      }
+      if (pool != null)
+      {
+         action.reinitialize();
+         pool.invoke(action);
+      }
+      else
+      {
+         searchers[0].search();
+      }
+
+      // Most visited rank.
+      for (rank = 0; rank < 13; rank++)
+      {
+         visits[rank] = 0;
+      }
+      for (i = 0; i < searchers.length; i++)
+      {
+         searchers[i].addRootVisits(visits);
+      }
+      best = -1;
+      for (i = 0, rank = random.nextInt(13); i < 13; i++, rank = (rank + 1) % 13)
+      {
+         if (((ranks & (1 << rank)) != 0) && ((best < 0) || (visits[rank] > visits[best])))
+         {
+            best = rank;
+         }
+      }
+      return(best);
+   }
+
+
+   // Candidate ask ranks: held ranks the opponent is known to have,
+   // which are sure catches, else all held ranks, searched with the
+   // knowledge prior favoring ranks it might have.
+   public static int getCandidates(GameState state, int player)
+   {
+      long hand = state.getHand(player);
+      int  does = 0, held = 0;
+
+      for (int rank = 0; rank < 13; rank++)
+      {
+         if (GameState.count(hand, rank) == 0)
+         {
+            continue;
+         }
+         held |= 1 << rank;
+         if (state.getKnowledge(player, rank) == RANK_KNOWLEDGE.DOES_HAVE)
+         {
+            does |= 1 << rank;
+         }
+      }
+      return(does != 0 ? does : held);
+   }
+
+
+   // Prior value of asking for a rank: the heuristic's preference for
+   // ranks the opponent is known to have, then ranks it might have.
+   public static float getPrior(GameState state, int player, int rank)
+   {
+      switch (state.getKnowledge(player, rank))
+      {
+      case DOES_HAVE:
+         return(1.0f);
+
+      case MIGHT_HAVE:
+         return(0.5f);
+
+      default:
+         return(0.0f);
+      }
+   }
+
+
+   // Shut down worker threads.
+   public void shutdown()
+   {
+      if (pool != null)
+      {
+         pool.shutdown();
+      }
+   }
+
+
+   // Run all searchers in parallel.
+   class SearchAction extends RecursiveAction
+   {
+      private static final long serialVersionUID = 1L;
+
+      protected void compute()
+      {
+         for (int i = 1; i < searchers.length; i++)
+         {
+            searchers[i].reinitialize();
+            searchers[i].fork();
+         }
+         searchers[0].search();
+         for (int i = 1; i < searchers.length; i++)
+         {
+            searchers[i].join();
+         }
+      }
+   }
+
+   // Tree searcher.
+   class Searcher extends RecursiveAction
+   {
+      private static final long serialVersionUID = 1L;
+
+      // Node arrays.
+      final int   maxNodes;
+      final int[] children;
+      final int[] nodeVisits;
+      final int[] nodeAvailable;
+      final float[] nodeReward;
+      int         nodeCount;
+
+      // Path of nodes and choosing players.
+      final int[] pathNodes   = new int[MAX_DEPTH];
+      final int[] pathPlayers = new int[MAX_DEPTH];
+
+      // Determinization scratch.
+      final byte[] unseen = new byte[52];
+
+      // Search state.
+      final GameState         root  = new GameState();
+      final GameState         work  = new GameState();
+      final Random            random = new Random();
+      final HeuristicStrategy playout = new HeuristicStrategy();
+      int                     player;
+      long                    deadline;
+
+      Searcher(int maxNodes)
+      {
+         this.maxNodes = maxNodes;
+         children      = new int[maxNodes * SLOTS];
+         nodeVisits    = new int[maxNodes];
+         nodeAvailable = new int[maxNodes];
+         nodeReward    = new float[maxNodes];
+      }
+
+
+      void prepare(GameState state, int player, long seed, long deadline)
+      {
+         root.copyFrom(state);
+         this.player   = player;
+         this.deadline = deadline;
+         random.setSeed(seed);
+      }
+
+
+      protected void compute()
+      {
+         search();
+      }
+
+
+      void search()
+      {
+         nodeCount = 0;
+         newNode();
+         for (int i = 0; i < iterations; i++)
+         {
+            if ((deadline != 0L) && ((i % CLOCK_CHECK) == 0) && (System.nanoTime() > deadline))
+            {
+               break;
+            }
+            work.copyFrom(root);
+            determinize(work);
+            iterate();
+         }
+      }
+
+
+      int newNode()
+      {
+         int node = nodeCount++;
+
+         for (int i = node * SLOTS, j = i + SLOTS; i < j; i++)
+         {
+            children[i] = 0;
+         }
+         nodeVisits[node]    = 0;
+         nodeAvailable[node] = 0;
+         nodeReward[node]    = 0.0f;
+         return(node);
+      }
+
+
+      // One iteration: select and expand down the tree, play out,
+      // and back up the result.
+      void iterate()
+      {
+         int  node = 0, depth = 0, moves = 0;
+         boolean expanded = false;
+
+         while (!SelfPlay.isOver(work.gameState) && (moves < SelfPlay.MAX_MOVES))
+         {
+            int mover = SelfPlay.getDecisionPlayer(work);
+            if (mover < 0)
+            {
+               SelfPlay.advance(work);
+               moves++;
+               continue;
+            }
+            int rank;
+            if (expanded || (depth >= MAX_DEPTH))
+            {
+               rank = SelfPlay.getAskRank(work, playout, mover, random);
+            }
+            else
+            {
+               rank = select(node, mover);
+               int slot = node * SLOTS + mover * 13 + rank;
+               if (children[slot] == 0)
+               {
+                  if (nodeCount >= maxNodes)
+                  {
+                     expanded = true;
+                     SelfPlay.ask(work, mover, rank);
+                     moves++;
+                     continue;
+                  }
+                  children[slot] = newNode();
+                  expanded       = true;
+               }
+               node               = children[slot];
+               pathNodes[depth]   = node;
+               pathPlayers[depth] = mover;
+               depth++;
+            }
+            SelfPlay.ask(work, mover, rank);
+            moves++;
+         }
+
+         // Back up result for the searching player.
+         float result;
+         if (work.gameState == GAME_STATE.TIE)
+         {
+            result = 0.5f;
+         }
+         else if (work.gameState == GAME_STATE.MY_WIN)
+         {
+            result = player == GameState.MY_PLAYER ? 1.0f : 0.0f;
+         }
+         else if (work.gameState == GAME_STATE.OTHER_WIN)
+         {
+            result = player == GameState.OTHER_PLAYER ? 1.0f : 0.0f;
+         }
+         else
+         {
+            result = 0.5f;
+         }
+         nodeVisits[0]++;
+         for (int i = 0; i < depth; i++)
+         {
+            node = pathNodes[i];
+            nodeVisits[node]++;
+            nodeReward[node] += pathPlayers[i] == player ? result : 1.0f - result;
+         }
+      }
+
+
+      // Select rank: an untried candidate if any, else by UCB1
+      // over candidates using availability counts.
+      int select(int node, int mover)
+      {
+         int   ranks = getCandidates(work, mover);
+         int   base  = node * SLOTS + mover * 13;
+         int   rank, child, untried = 0, best = -1;
+         float value, bestValue = -1.0f;
+
+         for (rank = 0; rank < 13; rank++)
+         {
+            if ((ranks & (1 << rank)) == 0)
+            {
+               continue;
+            }
+            child = children[base + rank];
+            if (child == 0)
+            {
+               untried++;
+            }
+            else
+            {
+               nodeAvailable[child]++;
+            }
+         }
+         if (untried > 0)
+         {
+            int n = random.nextInt(untried);
+            for (rank = 0; rank < 13; rank++)
+            {
+               if (((ranks & (1 << rank)) != 0) && (children[base + rank] == 0))
+               {
+                  if (n == 0)
+                  {
+                     return(rank);
+                  }
+                  n--;
+               }
+            }
+         }
+         for (rank = 0; rank < 13; rank++)
+         {
+            if ((ranks & (1 << rank)) == 0)
+            {
+               continue;
+            }
+            child = children[base + rank];
+            value = nodeReward[child] / nodeVisits[child] +
+                    EXPLORATION * (float)Math.sqrt(Math.log(nodeAvailable[child]) / nodeVisits[child]) +
+                    PRIOR_WEIGHT * getPrior(work, mover, rank) / (nodeVisits[child] + 1);
+            if (value > bestValue)
+            {
+               best      = rank;
+               bestValue = value;
+            }
+         }
+         return(best);
+      }
+
+
+      // Deal the cards the player cannot see: the opponent gets
+      // cards of ranks it does or might have, at least one of each
+      // rank it is known to have, and never four of a rank.
+      void determinize(GameState state)
+      {
+         int  opponent = player == GameState.MY_PLAYER ? GameState.OTHER_PLAYER : GameState.MY_PLAYER;
+         long scored   = 0L;
+         int  i, j, n, rank, card;
+
+         for (rank = 0; rank < 13; rank++)
+         {
+            if (((state.myScoreRanks | state.otherScoreRanks) & (1 << rank)) != 0)
+            {
+               scored |= GameState.rankMask(rank);
+            }
+         }
+         long hidden = GameState.ALL_CARDS & ~(state.getHand(player) | state.myStage |
+                                                state.otherStage | state.exchange | scored);
+         int  size   = Long.bitCount(state.getHand(opponent));
+
+         // Opponent cards of ranks it is known to have.
+         long deal = 0L;
+         for (rank = 0; rank < 13; rank++)
+         {
+            long cards = hidden & GameState.rankMask(rank);
+            if ((cards != 0L) && (Long.bitCount(deal) < size) &&
+                (state.getKnowledge(player, rank) == RANK_KNOWLEDGE.DOES_HAVE))
+            {
+               deal |= pick(cards);
+            }
+         }
+
+         // Fill from ranks it might have, then any hidden rank.
+         for (int pass = 0; pass < 2; pass++)
+         {
+            n = 0;
+            for (long cards = hidden & ~deal; cards != 0L; cards &= cards - 1L)
+            {
+               card = Long.numberOfTrailingZeros(cards);
+               rank = GameState.cardRank(card);
+               if ((pass == 1) || (state.getKnowledge(player, rank) == RANK_KNOWLEDGE.MIGHT_HAVE) ||
+                   (state.getKnowledge(player, rank) == RANK_KNOWLEDGE.DOES_HAVE))
+               {
+                  unseen[n++] = (byte)card;
+               }
+            }
+            for (i = 0; (i < n) && (Long.bitCount(deal) < size); i++)
+            {
+               j         = i + random.nextInt(n - i);
+               card      = unseen[j];
+               unseen[j] = unseen[i];
+               unseen[i] = (byte)card;
+               if (GameState.count(deal, GameState.cardRank(card)) < 3)
+               {
+                  deal |= 1L << card;
+               }
+            }
+            if (Long.bitCount(deal) == size)
+            {
+               break;
+            }
+         }
+         for (rank = 0; rank < 13; rank++)
+         {
+            if ((scored & GameState.rankMask(rank)) != 0L)
+            {
+               continue;
+            }
+            boolean held = GameState.count(deal, rank) > 0;
+            if (opponent == GameState.MY_PLAYER)
+            {
+               state.setMyHandVisibility(rank, held ? CARD_VISIBILITY.FACE_UP : CARD_VISIBILITY.RANK);
+            }
+            else
+            {
+               state.setOtherHandVisibility(rank, held ? CARD_VISIBILITY.FACE_DOWN : CARD_VISIBILITY.RANK);
+            }
+         }
+         if (opponent == GameState.MY_PLAYER)
+         {
+            state.myHand = deal;
+         }
+         else
+         {
+            state.otherHand = deal;
+         }
+
+         // Shuffle the rest into the undealt deck.
+         n = 0;
+         for (long cards = hidden & ~deal; cards != 0L; cards &= cards - 1L)
+         {
+            unseen[n++] = (byte)Long.numberOfTrailingZeros(cards);
+         }
+         for (i = n - 1; i > 0; i--)
+         {
+            j         = random.nextInt(i + 1);
+            byte b    = unseen[i];
+            unseen[i] = unseen[j];
+            unseen[j] = b;
+         }
+         for (i = state.deckDeal, j = 0; (i < 52) && (j < n); i++, j++)
+         {
+            state.deck[i] = unseen[j];
+         }
+      }
+
+
+      // Pick a random card from a mask.
+      long pick(long cards)
+      {
+         for (int n = random.nextInt(Long.bitCount(cards)); n > 0; n--)
+         {
+            cards &= cards - 1L;
+         }
+         return(Long.lowestOneBit(cards));
+      }
+
+
+      // Add root child visits by rank for the searching player.
+      void addRootVisits(int[] visits)
+      {
+         for (int rank = 0; rank < 13; rank++)
+         {
+            int child = children[player * 13 + rank];
+            if (child != 0)
+            {
+               visits[rank] += nodeVisits[child];
+            }
+         }
+      }
+   }
+}
@@ -0,0 +1,241 @@
+// Go Fish move journal.
+// An append-only file of the moves made since the last state
+// snapshot: a header holding the snapshot epoch, then one 4 byte
+// record per move of operation, argument, record index and check
+// byte. Recovery loads the snapshot and replays the records of a
+// journal with the same epoch; a torn or stale tail is ignored.
+// A journal started at a new game with the game seed as its epoch
+// holds the moves of a game record.
+
+package com.dialectek.gofish.engine;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.dialectek.gofish.engine.GoFishGame.GAME_STATE;
+
+public class MoveJournal
+{
+   // Record operations.
+   public static final int SHIFT = 1;     // Shift hand by argument.
+   public static final int MOVE  = 2;     // Do move.
+   public static final int ASK   = 3;     // Do other player's turn asking argument rank.
+
+   // Header and record sizes.
+   public static final int MAGIC       = 0x47464a4e;      // "GFJN"
+   public static final int HEADER_SIZE = 12;
+   public static final int RECORD_SIZE = 4;
+
+   // Journal file.
+   File             file;
+   FileOutputStream out;
+   FileChannel      channel;
+   long             epoch;
+   int              count;
+   final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+
+   public MoveJournal(File file)
+   {
+      this.file = file;
+   }
+
+
+   // Start a new journal following the snapshot with the given epoch.
+   public void reset(long epoch) throws IOException
+   {
+      close();
+      out     = new FileOutputStream(file);
+      channel = out.getChannel();
+      buffer.clear();
+      buffer.putInt(MAGIC);
+      buffer.putLong(epoch);
+      buffer.flip();
+      write();
+      channel.force(true);
+      this.epoch = epoch;
+      count      = 0;
+   }
+
+
+   // Continue a journal after its first count records, dropping
+   // anything past them.
+   public void resume(long epoch, int count) throws IOException
+   {
+      close();
+      RandomAccessFile raf = new RandomAccessFile(file, "rw");
+      try
+      {
+         raf.setLength(HEADER_SIZE + (long)count * RECORD_SIZE);
+      }
+      finally
+      {
+         raf.close();
+      }
+      out        = new FileOutputStream(file, true);
+      channel    = out.getChannel();
+      this.epoch = epoch;
+      this.count = count;
+   }
+
+
+   // Append a move record.
+   public void append(int op, int arg) throws IOException
+   {
+      if (channel == null)
+      {
+         throw new IOException("Journal not open");
+      }
+      buffer.clear();
+      buffer.put((byte)op);
+      buffer.put((byte)arg);
+      buffer.put((byte)count);
+      buffer.put(getCheck(epoch, count, op, arg));
+      buffer.flip();
+      write();
+      count++;
+   }
+
+
+   private void write() throws IOException
+   {
+      while (buffer.hasRemaining())
+      {
+         channel.write(buffer);
+      }
+   }
+
+
+   // Number of records since reset.
+   public int getCount()
+   {
+      return(count);
+   }
+
+
+   public void close() throws IOException
+   {
+      if (out != null)
+      {
+         out.close();
+         out     = null;
+         channel = null;
+      }
+   }
+
+
+   private static byte getCheck(long epoch, int index, int op, int arg)
+   {
+      int check = (int)epoch ^ (int)(epoch >>> 32);
+
+      check = check * 31 + index;
+      check = check * 31 + op;
+      check = check * 31 + arg;
+      return((byte)(check ^ (check >>> 8) ^ (check >>> 16) ^ (check >>> 24) ^ 0x5a));
+   }
+
+
+   // Replay the journal following the snapshot with the given epoch
+   // onto its state. Returns the number of moves replayed.
+   public static int replay(File file, long epoch, GameState state) throws IOException
+   {
+      GameRecord record = read(file);
+
+      if ((record == null) || (record.seed != epoch))
+      {
+         return(0);
+      }
+      int count = 0;
+      while ((count < record.moveCount) && apply(state, record.getOp(count), record.getArg(count)))
+      {
+         count++;
+      }
+      return(count);
+   }
+
+
+   // Read the valid records of a journal as a game record seeded
+   // with the journal epoch, or return null if there is no journal.
+   public static GameRecord read(File file) throws IOException
+   {
+      FileInputStream in;
+
+      try
+      {
+         in = new FileInputStream(file);
+      }
+      catch (FileNotFoundException e)
+      {
+         return(null);
+      }
+      try
+      {
+         FileChannel channel = in.getChannel();
+         ByteBuffer  buffer  = ByteBuffer.allocate((int)Math.min(channel.size(),
+                                                                 HEADER_SIZE + (long)GameRecord.MAX_MOVES * RECORD_SIZE));
+         while (buffer.hasRemaining() && (channel.read(buffer) >= 0))
+         {
+         }
+         buffer.flip();
+         if ((buffer.remaining() < HEADER_SIZE) || (buffer.getInt() != MAGIC))
+         {
+            return(null);
+         }
+         long       epoch  = buffer.getLong();
+         GameRecord record = new GameRecord(epoch);
+         while (buffer.remaining() >= RECORD_SIZE)
+         {
+            int op    = buffer.get();
+            int arg   = buffer.get();
+            int index = buffer.get();
+            int count = record.moveCount;
+            if ((index != (byte)count) || (buffer.get() != getCheck(epoch, count, op, arg)))
+            {
+               break;
+            }
+            record.add(op, arg);
+         }
+         return(record);
+      }
+      finally
+      {
+         in.close();
+      }
+   }
+
+
+   // Apply a move record, returning false if it is not valid here.
+   public static boolean apply(GameState state, int op, int arg)
+   {
+      switch (op)
+      {
+      case SHIFT:
+         state.shiftHand(arg);
+         return(true);
+
+      case MOVE:
+         if (state.gameState == GAME_STATE.OTHER_TURN)
+         {
+            return(false);
+         }
+         state.doMove(-1);
+         return(true);
+
+      case ASK:
+         if ((state.gameState != GAME_STATE.OTHER_TURN) || (arg < 0) || (arg >= 13))
+         {
+            return(false);
+         }
+         state.doMove(arg);
+         return(true);
+
+      default:
+         return(false);
+      }
+   }
+}
@@ -0,0 +1,34 @@
+// Go Fish random strategy.
+// Ask for a uniformly chosen held rank.
+
+package com.dialectek.gofish.engine;
+
+import java.util.Random;
+
+public class RandomStrategy implements Strategy
+{
+   public int getAskRank(GameState state, int player, Random random)
+   {
+      long hand  = state.getHand(player);
+      int  ranks = 0;
+
+      for (int i = 0; i < 13; i++)
+      {
+         if (GameState.count(hand, i) > 0)
+         {
+            ranks |= 1 << i;
+         }
+      }
+      if (ranks == 0)
+      {
+         return(0);
+      }
+
+      // Select the n-th held rank.
+      for (int n = random.nextInt(Integer.bitCount(ranks)); n > 0; n--)
+      {
+         ranks &= ranks - 1;
+      }
+      return(Integer.numberOfTrailingZeros(ranks));
+   }
+}
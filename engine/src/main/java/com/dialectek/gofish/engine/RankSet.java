@@ -0,0 +1,111 @@
+// Go Fish card rank set.
+// A view of one hand rank, stage or the exchange of a game state.
+
+package com.dialectek.gofish.engine;
+
+import com.dialectek.gofish.engine.GoFishGame.CARD_VISIBILITY;
+
+public class RankSet
+{
+   // Rank set locations.
+   public static final int MY_HAND     = 0;
+   public static final int OTHER_HAND  = 1;
+   public static final int MY_STAGE    = 2;
+   public static final int OTHER_STAGE = 3;
+   public static final int EXCHANGE    = 4;
+
+   GameState state;
+   int       location;
+   int       handRank;
+
+   // Hand rank set.
+   public RankSet(GameState state, int location, int rank)
+   {
+      this.state    = state;
+      this.location = location;
+      handRank      = rank;
+   }
+
+
+   // Stage or exchange rank set.
+   public RankSet(GameState state, int location)
+   {
+      this(state, location, 0);
+   }
+
+
+   public int getRank()
+   {
+      switch (location)
+      {
+      case MY_STAGE:
+         return(state.myStageRank);
+
+      case OTHER_STAGE:
+         return(state.otherStageRank);
+
+      case EXCHANGE:
+         return(state.exchangeRank);
+
+      default:
+         return(handRank);
+      }
+   }
+
+
+   public CARD_VISIBILITY getVisibility()
+   {
+      switch (location)
+      {
+      case MY_HAND:
+         return(state.getMyHandVisibility(handRank));
+
+      case OTHER_HAND:
+         return(state.getOtherHandVisibility(handRank));
+
+      case MY_STAGE:
+         return(state.myStageVisibility);
+
+      case OTHER_STAGE:
+         return(state.otherStageVisibility);
+
+      default:
+         return(state.exchangeVisibility);
+      }
+   }
+
+
+   // Card mask.
+   public long getCards()
+   {
+      switch (location)
+      {
+      case MY_HAND:
+         return(state.myHand & GameState.rankMask(handRank));
+
+      case OTHER_HAND:
+         return(state.otherHand & GameState.rankMask(handRank));
+
+      case MY_STAGE:
+         return(state.myStage);
+
+      case OTHER_STAGE:
+         return(state.otherStage);
+
+      default:
+         return(state.exchange);
+      }
+   }
+
+
+   public int getCount()
+   {
+      return(Long.bitCount(getCards()));
+   }
+
+
+   public boolean hasCard(int suit)
+   {
+      return((getCards() & (1L << GameState.card(suit, getRank()))) != 0L);
+   }
+}
@@ -0,0 +1,227 @@
+// Go Fish game record replayer.
+// Re-executes recorded games through the state machine without
+// rendering, checks each reaches its recorded outcome, and reports
+// the replay rate. Can also generate records by self-play.
+//
+// Usage: Replayer [-repeat <n>] [-print] <records file>
+//        Replayer -generate <games> [-a <strategy>] [-b <strategy>]
+//                 [-seed <seed>] <records file>
+
+package com.dialectek.gofish.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class Replayer
+{
+   // Read all records from a file.
+   public static List<GameRecord> load(String path) throws IOException
+   {
+      List<GameRecord> records = new ArrayList<GameRecord>();
+      DataInputStream  in      = new DataInputStream(new BufferedInputStream(new FileInputStream(path)));
+
+      try
+      {
+         GameRecord record;
+         while ((record = GameRecord.read(in)) != null)
+         {
+            records.add(record);
+         }
+      }
+      finally
+      {
+         in.close();
+      }
+      return(records);
+   }
+
+
+   // Keep the newest records of a file that fit in a size, dropping
+   // the oldest. The file is replaced through a temporary file.
+   public static void trim(File file, long size) throws IOException
+   {
+      List<GameRecord> records = load(file.getPath());
+      int              first   = records.size();
+      long             kept    = 0L;
+
+      while ((first > 0) && (kept + records.get(first - 1).getSize() <= size))
+      {
+         first--;
+         kept += records.get(first).getSize();
+      }
+      File             temp = new File(file.getPath() + ".tmp");
+      DataOutputStream out  = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+      try
+      {
+         for (int i = first; i < records.size(); i++)
+         {
+            records.get(i).write(out);
+         }
+      }
+      finally
+      {
+         out.close();
+      }
+      if (!temp.renameTo(file))
+      {
+         temp.delete();
+         throw new IOException("Cannot replace " + file);
+      }
+   }
+
+
+   // Replay records, returning the number that fail to verify.
+   public static int replay(List<GameRecord> records, boolean print)
+   {
+      GameState state    = new GameState();
+      Shuffle   shuffler = new Shuffle();
+      int       failures = 0;
+
+      for (int i = 0; i < records.size(); i++)
+      {
+         GameRecord record = records.get(i);
+         if (!record.verify(state, shuffler))
+         {
+            failures++;
+            if (print)
+            {
+               System.out.println("Record " + i + " replayed to " + state.gameState + " " +
+                                  state.getMyScore() + "-" + state.getOtherScore());
+            }
+         }
+      }
+      return(failures);
+   }
+
+
+   // Generate records by self-play.
+   public static void generate(String path, int games, String a, String b, long seed) throws IOException
+   {
+      SelfPlay selfPlay = new SelfPlay(Tournament.createStrategy(a), Tournament.createStrategy(b),
+                                       new Random(seed));
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)));
+
+      selfPlay.recording = true;
+      try
+      {
+         for (int i = 0; i < games; i++)
+         {
+            selfPlay.play();
+            selfPlay.record.write(out);
+         }
+      }
+      finally
+      {
+         out.close();
+      }
+   }
+
+
+   public static void main(String[] args)
+   {
+      int     repeat   = 1;
+      boolean print    = false;
+      int     generate = 0;
+      String  a        = "heuristic";
+      String  b        = "heuristic";
+      long    seed     = System.nanoTime();
+      String  path     = null;
+
+      for (int i = 0; i < args.length; i++)
+      {
+         if (args[i].equals("-repeat") && (i + 1 < args.length))
+         {
+            repeat = Integer.parseInt(args[++i]);
+         }
+         else if (args[i].equals("-print"))
+         {
+            print = true;
+         }
+         else if (args[i].equals("-generate") && (i + 1 < args.length))
+         {
+            generate = Integer.parseInt(args[++i]);
+         }
+         else if (args[i].equals("-a") && (i + 1 < args.length))
+         {
+            a = args[++i];
+         }
+         else if (args[i].equals("-b") && (i + 1 < args.length))
+         {
+            b = args[++i];
+         }
+         else if (args[i].equals("-seed") && (i + 1 < args.length))
+         {
+            seed = Long.parseLong(args[++i]);
+         }
+         else if (!args[i].startsWith("-") && (path == null))
+         {
+            path = args[i];
+         }
+         else
+         {
+            path = null;
+            break;
+         }
+      }
+      if (path == null)
+      {
+         System.err.println("Usage: Replayer [-repeat <n>] [-print] <records file>");
+         System.err.println("       Replayer -generate <games> [-a <strategy>] [-b <strategy>] " +
+                            "[-seed <seed>] <records file>");
+         System.exit(1);
+      }
+
+      try
+      {
+         if (generate > 0)
+         {
+            generate(path, generate, a, b, seed);
+            System.out.println("Generated " + generate + " records, seed " + seed);
+            return;
+         }
+         List<GameRecord> records = load(path);
+         if (print)
+         {
+            for (GameRecord record : records)
+            {
+               record.print(System.out);
+            }
+         }
+         long moves = 0;
+         for (GameRecord record : records)
+         {
+            moves += record.moveCount;
+         }
+         int  failures = 0;
+         long start    = System.nanoTime();
+         for (int i = 0; i < repeat; i++)
+         {
+            failures += replay(records, print && (i == 0));
+         }
+         double seconds = (System.nanoTime() - start) / 1.0e9;
+         long   games   = (long)records.size() * repeat;
+         System.out.println(records.size() + " records, " + moves + " moves, " + repeat + " passes");
+         System.out.println(String.format("%.3f seconds, %.0f games/second, %.0f moves/second",
+                                          seconds, games / seconds, moves * (double)repeat / seconds));
+         System.out.println(failures == 0 ? "All outcomes verified" : failures + " outcomes differ");
+         if (failures > 0)
+         {
+            System.exit(2);
+         }
+      }
+      catch (IOException e)
+      {
+         System.err.println("Error: " + e.getMessage());
+         System.exit(1);
+      }
+   }
+}
@@ -0,0 +1,11 @@
+// Go Fish random number generator.
+
+package com.dialectek.gofish.engine;
+
+public interface Rng
+{
+   // Uniform int in [0, bound), without modulo bias.
+   int nextInt(int bound);
+
+   long nextLong();
+}
@@ -0,0 +1,262 @@
+// Go Fish binary save file.
+// A magic number, format version and snapshot epoch, then the game
+// state as card masks, packed rank fields and the deck order as
+// bytes, then a CRC32 of everything before it. The epoch ties the
+// snapshot to the move journal recorded after it. Files are written to a temporary
+// file, forced to disk and renamed over the save, so a crash leaves
+// either the old save or the new one.
+
+package com.dialectek.gofish.engine;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+import com.dialectek.gofish.engine.GoFishGame.CARD_VISIBILITY;
+import com.dialectek.gofish.engine.GoFishGame.GAME_STATE;
+
+public class SaveFile
+{
+   // Header.
+   public static final int MAGIC   = 0x47465356;          // "GFSV"
+   public static final int VERSION = 3;
+
+   // Saved state size in bytes: version 1 has no checksum,
+   // version 2 no epoch.
+   public static final int SIZE_V1 = 133;
+   public static final int SIZE_V2 = SIZE_V1 + 4;
+   public static final int SIZE    = SIZE_V2 + 8;
+
+   // Enum lookups.
+   private static final CARD_VISIBILITY[] VISIBILITIES = CARD_VISIBILITY.values();
+   private static final GAME_STATE[]      GAME_STATES  = GAME_STATE.values();
+
+   private SaveFile()
+   {
+   }
+
+
+   // Write state snapshot to buffer.
+   public static void write(GameState state, long epoch, ByteBuffer buffer)
+   {
+      buffer.putInt(MAGIC);
+      buffer.putInt(VERSION);
+      buffer.putLong(epoch);
+      buffer.putLong(state.myHand);
+      buffer.putLong(state.otherHand);
+      buffer.putLong(state.myStage);
+      buffer.putLong(state.otherStage);
+      buffer.putLong(state.exchange);
+      buffer.put((byte)state.myStageRank);
+      buffer.put((byte)state.otherStageRank);
+      buffer.put((byte)state.exchangeRank);
+      buffer.putShort((short)state.myScoreRanks);
+      buffer.putShort((short)state.otherScoreRanks);
+      buffer.put(state.deck);
+      buffer.put((byte)state.deckDeal);
+      buffer.put((byte)state.askRank);
+      buffer.putInt(state.myHandShift);
+      buffer.putInt(state.myHandVisibility);
+      buffer.putInt(state.otherHandVisibility);
+      buffer.put((byte)state.myStageVisibility.ordinal());
+      buffer.put((byte)state.otherStageVisibility.ordinal());
+      buffer.put((byte)state.exchangeVisibility.ordinal());
+      buffer.put((byte)state.gameState.ordinal());
+      buffer.putInt(state.rankKnowledge);
+      buffer.putInt(state.otherRankKnowledge);
+      buffer.putInt(getChecksum(buffer, buffer.position() - (SIZE - 4), SIZE - 4));
+   }
+
+
+   // Checksum of heap buffer bytes.
+   private static int getChecksum(ByteBuffer buffer, int offset, int length)
+   {
+      CRC32 crc = new CRC32();
+
+      crc.update(buffer.array(), buffer.arrayOffset() + offset, length);
+      return((int)crc.getValue());
+   }
+
+
+   // Read state from buffer and return its snapshot epoch.
+   public static long read(ByteBuffer buffer, GameState state) throws IOException
+   {
+      try
+      {
+         int start = buffer.position();
+         if (buffer.getInt() != MAGIC)
+         {
+            throw new IOException("Not a save file");
+         }
+         int version = buffer.getInt();
+         if ((version < 1) || (version > VERSION))
+         {
+            throw new IOException("Unsupported save version " + version);
+         }
+         if (version >= 2)
+         {
+            int size = version == 2 ? SIZE_V2 : SIZE;
+            if (buffer.limit() - start < size)
+            {
+               throw new IOException("Truncated save file");
+            }
+            if (getChecksum(buffer, start, size - 4) != buffer.getInt(start + size - 4))
+            {
+               throw new IOException("Save file checksum mismatch");
+            }
+         }
+         long epoch = version >= 3 ? buffer.getLong() : 0L;
+         state.myHand          = getCards(buffer);
+         state.otherHand       = getCards(buffer);
+         state.myStage         = getCards(buffer);
+         state.otherStage      = getCards(buffer);
+         state.exchange        = getCards(buffer);
+         state.myStageRank     = getRank(buffer);
+         state.otherStageRank  = getRank(buffer);
+         state.exchangeRank    = getRank(buffer);
+         state.myScoreRanks    = buffer.getShort() & 0x1fff;
+         state.otherScoreRanks = buffer.getShort() & 0x1fff;
+         buffer.get(state.deck);
+         for (int i = 0; i < 52; i++)
+         {
+            if ((state.deck[i] < 0) || (state.deck[i] >= 52))
+            {
+               throw new IOException("Invalid deck card " + state.deck[i]);
+            }
+         }
+         state.deckDeal = buffer.get();
+         if ((state.deckDeal < 0) || (state.deckDeal > 52))
+         {
+            throw new IOException("Invalid deck position " + state.deckDeal);
+         }
+         state.askRank = buffer.get();
+         if ((state.askRank < -1) || (state.askRank >= 13))
+         {
+            throw new IOException("Invalid ask rank " + state.askRank);
+         }
+         state.myHandShift          = buffer.getInt();
+         state.myHandVisibility     = buffer.getInt() & 0x3ffffff;
+         state.otherHandVisibility  = buffer.getInt() & 0x3ffffff;
+         state.myStageVisibility    = VISIBILITIES[getOrdinal(buffer, VISIBILITIES.length)];
+         state.otherStageVisibility = VISIBILITIES[getOrdinal(buffer, VISIBILITIES.length)];
+         state.exchangeVisibility   = VISIBILITIES[getOrdinal(buffer, VISIBILITIES.length)];
+         state.gameState            = GAME_STATES[getOrdinal(buffer, GAME_STATES.length)];
+         state.rankKnowledge        = buffer.getInt() & 0x3ffffff;
+         state.otherRankKnowledge   = buffer.getInt() & 0x3ffffff;
+         return(epoch);
+      }
+      catch (BufferUnderflowException e)
+      {
+         throw new IOException("Truncated save file");
+      }
+   }
+
+
+   private static long getCards(ByteBuffer buffer) throws IOException
+   {
+      long cards = buffer.getLong();
+
+      if ((cards & ~GameState.ALL_CARDS) != 0L)
+      {
+         throw new IOException("Invalid cards " + Long.toHexString(cards));
+      }
+      return(cards);
+   }
+
+
+   private static int getRank(ByteBuffer buffer) throws IOException
+   {
+      int rank = buffer.get();
+
+      if ((rank < 0) || (rank >= 13))
+      {
+         throw new IOException("Invalid rank " + rank);
+      }
+      return(rank);
+   }
+
+
+   private static int getOrdinal(ByteBuffer buffer, int count) throws IOException
+   {
+      int i = buffer.get();
+
+      if ((i < 0) || (i >= count))
+      {
+         throw new IOException("Invalid value " + i);
+      }
+      return(i);
+   }
+
+
+   // Save state snapshot to file atomically.
+   public static void save(GameState state, long epoch, File file, ByteBuffer buffer) throws IOException
+   {
+      buffer.clear();
+      write(state, epoch, buffer);
+      buffer.flip();
+      writeFile(file, buffer);
+   }
+
+
+   // Load state from file and return its snapshot epoch. On failure
+   // the state may be partly overwritten, so load into a scratch
+   // state and copy it.
+   public static long load(File file, GameState state, ByteBuffer buffer) throws IOException
+   {
+      readFile(file, buffer);
+      return(read(buffer, state));
+   }
+
+
+   // Write buffer contents to file atomically.
+   public static void writeFile(File file, ByteBuffer buffer) throws IOException
+   {
+      File             temp = new File(file.getPath() + ".tmp");
+      FileOutputStream out  = new FileOutputStream(temp);
+
+      try
+      {
+         FileChannel channel = out.getChannel();
+         while (buffer.hasRemaining())
+         {
+            channel.write(buffer);
+         }
+         channel.force(true);
+      }
+      finally
+      {
+         out.close();
+      }
+      if (!temp.renameTo(file))
+      {
+         temp.delete();
+         throw new IOException("Cannot rename " + temp + " to " + file);
+      }
+   }
+
+
+   // Read file into buffer, ready for reading.
+   public static void readFile(File file, ByteBuffer buffer) throws IOException
+   {
+      FileInputStream in = new FileInputStream(file);
+
+      try
+      {
+         FileChannel channel = in.getChannel();
+         buffer.clear();
+         while (buffer.hasRemaining() && (channel.read(buffer) >= 0))
+         {
+         }
+         buffer.flip();
+      }
+      finally
+      {
+         in.close();
+      }
+   }
+}
@@ -0,0 +1,28 @@
+// Go Fish generator backed by SecureRandom, for fair play:
+// shuffles cannot be predicted or reproduced.
+
+package com.dialectek.gofish.engine;
+
+import java.security.SecureRandom;
+
+public class SecureRng implements Rng
+{
+   final SecureRandom random;
+
+   public SecureRng()
+   {
+      random = new SecureRandom();
+   }
+
+
+   public int nextInt(int bound)
+   {
+      return(random.nextInt(bound));
+   }
+
+
+   public long nextLong()
+   {
+      return(random.nextLong());
+   }
+}
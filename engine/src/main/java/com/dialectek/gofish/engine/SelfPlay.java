@@ -0,0 +1,204 @@
+// Go Fish self-play.
+// Plays both sides of a game with strategies, driving my side
+// through the same hand shifts and moves as the touch interface.
+
+package com.dialectek.gofish.engine;
+
+import java.util.Random;
+
+import com.dialectek.gofish.engine.GoFishGame.CARD_VISIBILITY;
+import com.dialectek.gofish.engine.GoFishGame.GAME_STATE;
+
+public class SelfPlay
+{
+   // Move limit guarding against a stuck game.
+   public static final int MAX_MOVES = 10000;
+
+   public final GameState state;
+   public Strategy        myStrategy;
+   public Strategy        otherStrategy;
+   public Random          random;
+
+   // Game record, kept when recording.
+   public boolean    recording;
+   public GameRecord record;
+
+   // Deck shuffle, seeded per game.
+   final Shuffle shuffle = new Shuffle();
+
+   public SelfPlay(Strategy myStrategy, Strategy otherStrategy, Random random)
+   {
+      state              = new GameState();
+      this.myStrategy    = myStrategy;
+      this.otherStrategy = otherStrategy;
+      this.random        = random;
+   }
+
+
+   // Play a new game to completion and return the outcome.
+   public GAME_STATE play()
+   {
+      init(random.nextLong());
+      for (int i = 0; i < MAX_MOVES; i++)
+      {
+         if (isOver(state.gameState))
+         {
+            if (record != null)
+            {
+               record.finish(state);
+            }
+            return(state.gameState);
+         }
+         step();
+      }
+      throw new IllegalStateException("Game did not finish in " + MAX_MOVES + " moves");
+   }
+
+
+   // Initialize game from seed, starting a record when recording.
+   public void init(long seed)
+   {
+      shuffle.init(state, seed, Shuffle.FISHER_YATES);
+      record = recording ? new GameRecord(seed) : null;
+   }
+
+
+   // Make one move for whichever side is to act, as the journal
+   // operations the touch interface would make.
+   public void step()
+   {
+      switch (getDecisionPlayer(state))
+      {
+      case GameState.MY_PLAYER:
+         shiftTo(getAskRank(state, myStrategy, GameState.MY_PLAYER, random));
+         if (state.gameState == GAME_STATE.MY_TURN)
+         {
+            apply(MoveJournal.MOVE, 0);
+         }
+         break;
+
+      case GameState.OTHER_PLAYER:
+         apply(MoveJournal.ASK, getAskRank(state, otherStrategy, GameState.OTHER_PLAYER, random));
+         break;
+
+      default:
+         if (state.gameState == GAME_STATE.MY_HAND_TO_STAGE_SHIFT)
+         {
+            if (state.otherStageVisibility == CARD_VISIBILITY.RANK)
+            {
+               shiftTo(state.otherStageRank);
+            }
+            else
+            {
+               shiftTo(state.myStageRank);
+            }
+         }
+         else
+         {
+            apply(MoveJournal.MOVE, 0);
+         }
+         break;
+      }
+   }
+
+
+   private void shiftTo(int rank)
+   {
+      apply(MoveJournal.SHIFT, (6 - rank) - state.myHandShift);
+   }
+
+
+   private void apply(int op, int arg)
+   {
+      MoveJournal.apply(state, op, arg);
+      if (record != null)
+      {
+         record.add(op, arg);
+      }
+   }
+
+
+   // Player choosing a rank to ask for, or -1 if the move is forced.
+   public static int getDecisionPlayer(GameState state)
+   {
+      switch (state.gameState)
+      {
+      case MY_TURN:
+         return(GameState.MY_PLAYER);
+
+      case MY_HAND_TO_STAGE_SHIFT:
+         if ((state.otherStageVisibility != CARD_VISIBILITY.RANK) && (state.myStage == 0L))
+         {
+            return(GameState.MY_PLAYER);
+         }
+         return(-1);
+
+      case OTHER_TURN:
+         return(GameState.OTHER_PLAYER);
+
+      default:
+         return(-1);
+      }
+   }
+
+
+   // Ask for a held rank.
+   public static void ask(GameState state, int player, int rank)
+   {
+      if (player == GameState.MY_PLAYER)
+      {
+         state.shiftTo(rank);
+         if (state.gameState == GAME_STATE.MY_TURN)
+         {
+            state.doMove(-1);
+         }
+      }
+      else
+      {
+         state.doMove(rank);
+      }
+   }
+
+
+   // Make a forced move: shift to the rank being played, or step.
+   public static void advance(GameState state)
+   {
+      if (state.gameState == GAME_STATE.MY_HAND_TO_STAGE_SHIFT)
+      {
+         if (state.otherStageVisibility == CARD_VISIBILITY.RANK)
+         {
+            state.shiftTo(state.otherStageRank);
+         }
+         else
+         {
+            state.shiftTo(state.myStageRank);
+         }
+      }
+      else
+      {
+         state.doMove(-1);
+      }
+   }
+
+
+   // Strategy rank, falling back to the lowest held rank.
+   public static int getAskRank(GameState state, Strategy strategy, int player, Random random)
+   {
+      long hand = state.getHand(player);
+      int  rank = strategy.getAskRank(state, player, random);
+
+      if ((rank < 0) || (rank >= 13) || (GameState.count(hand, rank) == 0))
+      {
+         rank = Long.numberOfTrailingZeros(hand) >>> 2;
+      }
+      return(rank);
+   }
+
+
+   public static boolean isOver(GAME_STATE gameState)
+   {
+      return(gameState == GAME_STATE.MY_WIN ||
+             gameState == GAME_STATE.OTHER_WIN ||
+             gameState == GAME_STATE.TIE);
+   }
+}
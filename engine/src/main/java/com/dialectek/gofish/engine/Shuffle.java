@@ -0,0 +1,61 @@
+// Go Fish deck shuffle.
+// Fisher-Yates over the deck array: 51 bounded draws giving every
+// permutation with equal probability. The original 1000 random swap
+// shuffle is kept so that games recorded with it still replay.
+
+package com.dialectek.gofish.engine;
+
+import java.util.Random;
+
+public class Shuffle
+{
+   // Shuffle kinds.
+   public static final int LEGACY       = 0;      // 1000 swaps with java.util.Random.
+   public static final int FISHER_YATES = 1;      // Fisher-Yates with xoshiro256**.
+
+   // Generators, reseeded per deal.
+   final Random     legacyRandom = new Random();
+   final XoshiroRng rng          = new XoshiroRng(0L);
+
+   // Deal a game from a seed.
+   public void init(GameState state, long seed, int kind)
+   {
+      if (kind == LEGACY)
+      {
+         legacyRandom.setSeed(seed);
+         state.init(legacyRandom);
+      }
+      else
+      {
+         rng.setSeed(seed);
+         state.init(rng);
+      }
+   }
+
+
+   // Shuffle the first n cards of a deck.
+   public static void shuffle(byte[] deck, int n, Rng rng)
+   {
+      for (int i = n - 1; i > 0; i--)
+      {
+         int  j = rng.nextInt(i + 1);
+         byte b = deck[i];
+         deck[i] = deck[j];
+         deck[j] = b;
+      }
+   }
+
+
+   // Original shuffle: 1000 random swaps.
+   public static void shuffleLegacy(byte[] deck, Random random)
+   {
+      for (int i = 0; i < 1000; i++)
+      {
+         int  j = random.nextInt(52);
+         int  k = random.nextInt(52);
+         byte b = deck[j];
+         deck[j] = deck[k];
+         deck[k] = b;
+      }
+   }
+}
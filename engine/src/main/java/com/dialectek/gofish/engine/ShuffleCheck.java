@@ -0,0 +1,234 @@
+// Go Fish shuffle check.
+// Chi-square tests of shuffle uniformity for each generator: the
+// frequency of every card at every deck position, and of every
+// ordering of a short deck. Also times deals with each shuffle.
+//
+// Usage: ShuffleCheck [-shuffles <n>] [-seed <seed>]
+
+package com.dialectek.gofish.engine;
+
+import java.util.Random;
+
+public class ShuffleCheck
+{
+   // Generator names.
+   static final String[] GENERATORS = { "xoshiro", "splittable", "secure" };
+
+   static Rng createRng(String name, long seed)
+   {
+      if (name.equals("xoshiro"))
+      {
+         return(new XoshiroRng(seed));
+      }
+      if (name.equals("splittable"))
+      {
+         return(new SplittableRng(seed));
+      }
+      return(new SecureRng());
+   }
+
+
+   // Chi-square of card by position counts over shuffles of a full deck.
+   static double positionChiSquare(Rng rng, int shuffles)
+   {
+      byte[] deck   = new byte[52];
+      int[]  counts = new int[52 * 52];
+
+      for (int i = 0; i < shuffles; i++)
+      {
+         for (int j = 0; j < 52; j++)
+         {
+            deck[j] = (byte)j;
+         }
+         Shuffle.shuffle(deck, 52, rng);
+         for (int j = 0; j < 52; j++)
+         {
+            counts[deck[j] * 52 + j]++;
+         }
+      }
+      return(chiSquare(counts, shuffles / 52.0));
+   }
+
+
+   // Chi-square of the orderings of a 5 card deck.
+   static double orderChiSquare(Rng rng, int shuffles)
+   {
+      byte[] deck   = new byte[5];
+      int[]  counts = new int[120];
+
+      for (int i = 0; i < shuffles; i++)
+      {
+         for (int j = 0; j < 5; j++)
+         {
+            deck[j] = (byte)j;
+         }
+         Shuffle.shuffle(deck, 5, rng);
+         counts[getOrder(deck)]++;
+      }
+      return(chiSquare(counts, shuffles / 120.0));
+   }
+
+
+   // Lehmer code of a permutation.
+   static int getOrder(byte[] deck)
+   {
+      int order = 0;
+
+      for (int i = 0; i < deck.length; i++)
+      {
+         int smaller = 0;
+         for (int j = i + 1; j < deck.length; j++)
+         {
+            if (deck[j] < deck[i])
+            {
+               smaller++;
+            }
+         }
+         order = order * (deck.length - i) + smaller;
+      }
+      return(order);
+   }
+
+
+   static double chiSquare(int[] counts, double expected)
+   {
+      double sum = 0.0;
+
+      for (int count : counts)
+      {
+         double d = count - expected;
+         sum += d * d / expected;
+      }
+      return(sum);
+   }
+
+
+   // Upper tail probability of chi-square, by the Wilson-Hilferty
+   // normal approximation.
+   static double getPValue(double chiSquare, int degrees)
+   {
+      double k = 2.0 / (9.0 * degrees);
+      double z = (Math.cbrt(chiSquare / degrees) - (1.0 - k)) / Math.sqrt(k);
+
+      return(0.5 * erfc(z / Math.sqrt(2.0)));
+   }
+
+
+   // Complementary error function (Numerical Recipes erfcc).
+   static double erfc(double x)
+   {
+      double z = Math.abs(x);
+      double t = 1.0 / (1.0 + 0.5 * z);
+      double r = t * Math.exp(-z * z - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418 +
+                              t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587 +
+                              t * (-0.82215223 + t * 0.17087277)))))))));
+
+      return(x >= 0.0 ? r : 2.0 - r);
+   }
+
+
+   // Time deals in nanoseconds per deal.
+   static double timeDeals(Rng rng, Random random, int deals)
+   {
+      GameState state = new GameState();
+      long      start = System.nanoTime();
+
+      for (int i = 0; i < deals; i++)
+      {
+         if (rng != null)
+         {
+            state.init(rng);
+         }
+         else
+         {
+            state.init(random);
+         }
+      }
+      return((double)(System.nanoTime() - start) / deals);
+   }
+
+
+   // Time shuffles alone in nanoseconds per shuffle.
+   static double timeShuffles(Rng rng, Random random, int shuffles)
+   {
+      byte[] deck  = new byte[52];
+      long   start = System.nanoTime();
+
+      for (int i = 0; i < shuffles; i++)
+      {
+         if (rng != null)
+         {
+            Shuffle.shuffle(deck, 52, rng);
+         }
+         else
+         {
+            Shuffle.shuffleLegacy(deck, random);
+         }
+      }
+      return((double)(System.nanoTime() - start) / shuffles);
+   }
+
+
+   public static void main(String[] args)
+   {
+      int  shuffles = 1000000;
+      long seed     = System.nanoTime();
+
+      for (int i = 0; i < args.length; i++)
+      {
+         if (args[i].equals("-shuffles") && (i + 1 < args.length))
+         {
+            shuffles = Integer.parseInt(args[++i]);
+         }
+         else if (args[i].equals("-seed") && (i + 1 < args.length))
+         {
+            seed = Long.parseLong(args[++i]);
+         }
+         else
+         {
+            System.err.println("Usage: ShuffleCheck [-shuffles <n>] [-seed <seed>]");
+            System.exit(1);
+         }
+      }
+
+      // Uniformity: a p-value below 0.001 fails. Each shuffle adds a
+      // whole permutation to the card by position counts, so under a
+      // uniform shuffle their statistic averages 52 * 51, not the
+      // 51 * 51 of an independent table.
+      int     positionDegrees = 52 * 51;
+      boolean pass            = true;
+      System.out.println(shuffles + " shuffles, seed " + seed);
+      for (String name : GENERATORS)
+      {
+         double positions = positionChiSquare(createRng(name, seed), shuffles);
+         double orders    = orderChiSquare(createRng(name, seed + 1), shuffles);
+         double p1        = getPValue(positions, positionDegrees);
+         double p2        = getPValue(orders, 119);
+         System.out.println(String.format("%-10s positions chi2 %.1f (df %d) p %.4f, orders chi2 %.1f (df 119) p %.4f",
+                                          name, positions, positionDegrees, p1, orders, p2));
+         if ((p1 < 0.001) || (p2 < 0.001))
+         {
+            pass = false;
+         }
+      }
+
+      // Deal and shuffle cost.
+      int    deals  = Math.max(100000, shuffles / 10);
+      Random random = new Random(seed);
+      timeDeals(null, random, deals);
+      timeDeals(new XoshiroRng(seed), null, deals);
+      double legacyShuffle = timeShuffles(null, random, deals);
+      double shuffle       = timeShuffles(new XoshiroRng(seed), null, deals);
+      double legacyDeal    = timeDeals(null, random, deals);
+      double deal          = timeDeals(new XoshiroRng(seed), null, deals);
+      System.out.println(String.format("shuffle: legacy %.0f ns, fisher-yates %.0f ns (%.1fx)",
+                                       legacyShuffle, shuffle, legacyShuffle / shuffle));
+      System.out.println(String.format("deal:    legacy %.0f ns, fisher-yates %.0f ns (%.1fx)",
+                                       legacyDeal, deal, legacyDeal / deal));
+      System.out.println(pass ? "Shuffles uniform" : "Shuffle not uniform");
+      if (!pass)
+      {
+         System.exit(2);
+      }
+   }
+}
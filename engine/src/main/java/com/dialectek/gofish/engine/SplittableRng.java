@@ -0,0 +1,33 @@
+// Go Fish generator backed by SplittableRandom.
+
+package com.dialectek.gofish.engine;
+
+import java.util.SplittableRandom;
+
+public class SplittableRng implements Rng
+{
+   SplittableRandom random;
+
+   public SplittableRng(long seed)
+   {
+      random = new SplittableRandom(seed);
+   }
+
+
+   public SplittableRng(SplittableRandom random)
+   {
+      this.random = random;
+   }
+
+
+   public int nextInt(int bound)
+   {
+      return(random.nextInt(bound));
+   }
+
+
+   public long nextLong()
+   {
+      return(random.nextLong());
+   }
+}
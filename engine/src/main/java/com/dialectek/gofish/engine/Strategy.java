@@ -0,0 +1,12 @@
+// Go Fish player strategy.
+
+package com.dialectek.gofish.engine;
+
+import java.util.Random;
+
+public interface Strategy
+{
+   // Choose a rank held by the player to ask the opponent for.
+   // Player is GameState.MY_PLAYER or GameState.OTHER_PLAYER.
+   int getAskRank(GameState state, int player, Random random);
+}
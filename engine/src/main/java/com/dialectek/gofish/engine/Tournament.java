@@ -0,0 +1,247 @@
+// Go Fish self-play tournament.
+// Plays games between two strategies across all cores on a
+// fork-join pool and reports win and tie rates.
+//
+// Usage: Tournament [-games <n>] [-a <strategy>] [-b <strategy>]
+//                   [-seed <seed>] [-threads <n>] [-noswap]
+// Strategies: heuristic, greedy, random, ismcts[:<iterations>].
+
+package com.dialectek.gofish.engine;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.dialectek.gofish.engine.GoFishGame.GAME_STATE;
+
+public class Tournament
+{
+   // Games per leaf task.
+   public static final int LEAF_GAMES = 1024;
+
+   // 95% confidence z value.
+   public static final double Z95 = 1.96;
+
+   // Strategy names.
+   public static final String[] STRATEGIES = { "heuristic", "greedy", "random", "ismcts[:<iterations>]" };
+
+   // Create a strategy by name.
+   public static Strategy createStrategy(String name)
+   {
+      if (name.equals("heuristic"))
+      {
+         return(new HeuristicStrategy());
+      }
+      if (name.equals("greedy"))
+      {
+         return(new GreedyStrategy());
+      }
+      if (name.equals("random"))
+      {
+         return(new RandomStrategy());
+      }
+      if (name.equals("ismcts"))
+      {
+         return(new IsmctsStrategy(IsmctsStrategy.DEFAULT_ITERATIONS));
+      }
+      if (name.startsWith("ismcts:"))
+      {
+         return(new IsmctsStrategy(Integer.parseInt(name.substring(7))));
+      }
+      throw new IllegalArgumentException("Unknown strategy: " + name);
+   }
+
+
+   // Tournament results, counted for strategy A.
+   public static class Result
+   {
+      public long wins, losses, ties;
+
+      public void add(Result result)
+      {
+         wins   += result.wins;
+         losses += result.losses;
+         ties   += result.ties;
+      }
+
+
+      public long getGames()
+      {
+         return(wins + losses + ties);
+      }
+   }
+
+   // Game range task.
+   // Each task splits its random stream with its subtasks, so the
+   // streams and results depend only on the seed, not on scheduling.
+   static class GamesTask extends RecursiveTask<Result>
+   {
+      private static final long serialVersionUID = 1L;
+
+      final String           a, b;
+      final long             first, count;
+      final boolean          swap;
+      final SplittableRandom stream;
+
+      GamesTask(String a, String b, long first, long count, boolean swap,
+                SplittableRandom stream)
+      {
+         this.a      = a;
+         this.b      = b;
+         this.first  = first;
+         this.count  = count;
+         this.swap   = swap;
+         this.stream = stream;
+      }
+
+
+      protected Result compute()
+      {
+         if (count <= LEAF_GAMES)
+         {
+            return(playGames());
+         }
+         long      half  = count / 2;
+         GamesTask left  = new GamesTask(a, b, first, half, swap, stream.split());
+         GamesTask right = new GamesTask(a, b, first + half, count - half, swap, stream.split());
+         left.fork();
+         Result result = right.compute();
+         result.add(left.join());
+         return(result);
+      }
+
+
+      // Play games, alternating seats when swapping.
+      Result playGames()
+      {
+         Result   result    = new Result();
+         Strategy strategyA = createStrategy(a);
+         Strategy strategyB = createStrategy(b);
+         Random   random    = new Random(stream.nextLong());
+         SelfPlay forward   = new SelfPlay(strategyA, strategyB, random);
+         SelfPlay reverse   = new SelfPlay(strategyB, strategyA, random);
+
+         for (long i = first; i < first + count; i++)
+         {
+            boolean aIsMe = !swap || ((i & 1) == 0);
+            GAME_STATE outcome = (aIsMe ? forward : reverse).play();
+            if (outcome == GAME_STATE.TIE)
+            {
+               result.ties++;
+            }
+            else if ((outcome == GAME_STATE.MY_WIN) == aIsMe)
+            {
+               result.wins++;
+            }
+            else
+            {
+               result.losses++;
+            }
+         }
+         return(result);
+      }
+   }
+
+   // Run a tournament.
+   public static Result run(String a, String b, long games, long seed, int threads, boolean swap)
+   {
+      ForkJoinPool pool = new ForkJoinPool(threads);
+
+      try
+      {
+         return(pool.invoke(new GamesTask(a, b, 0, games, swap, new SplittableRandom(seed))));
+      }
+      finally
+      {
+         pool.shutdown();
+      }
+   }
+
+
+   // Wilson score interval for a proportion.
+   public static double[] getInterval(long successes, long trials)
+   {
+      if (trials == 0)
+      {
+         return(new double[] { 0.0, 1.0 });
+      }
+      double n      = trials;
+      double p      = successes / n;
+      double z2     = Z95 * Z95;
+      double center = (p + z2 / (2.0 * n)) / (1.0 + z2 / n);
+      double margin = Z95 * Math.sqrt(p * (1.0 - p) / n + z2 / (4.0 * n * n)) / (1.0 + z2 / n);
+      return(new double[] { Math.max(0.0, center - margin), Math.min(1.0, center + margin) });
+   }
+
+
+   private static String formatRate(String label, long count, long games)
+   {
+      double[] interval = getInterval(count, games);
+      return(String.format("%-7s %10d  %6.2f%%  [%6.2f%%, %6.2f%%]", label, count,
+                           100.0 * count / games, 100.0 * interval[0], 100.0 * interval[1]));
+   }
+
+
+   public static void main(String[] args)
+   {
+      long    games   = 1000000;
+      String  a       = "heuristic";
+      String  b       = "random";
+      long    seed    = System.nanoTime();
+      int     threads = Runtime.getRuntime().availableProcessors();
+      boolean swap    = true;
+
+      for (int i = 0; i < args.length; i++)
+      {
+         if (args[i].equals("-games") && (i + 1 < args.length))
+         {
+            games = Long.parseLong(args[++i]);
+         }
+         else if (args[i].equals("-a") && (i + 1 < args.length))
+         {
+            a = args[++i];
+         }
+         else if (args[i].equals("-b") && (i + 1 < args.length))
+         {
+            b = args[++i];
+         }
+         else if (args[i].equals("-seed") && (i + 1 < args.length))
+         {
+            seed = Long.parseLong(args[++i]);
+         }
+         else if (args[i].equals("-threads") && (i + 1 < args.length))
+         {
+            threads = Integer.parseInt(args[++i]);
+         }
+         else if (args[i].equals("-noswap"))
+         {
+            swap = false;
+         }
+         else
+         {
+            System.err.println("Usage: Tournament [-games <n>] [-a <strategy>] [-b <strategy>] " +
+                               "[-seed <seed>] [-threads <n>] [-noswap]");
+            System.err.println("Strategies: " + String.join(", ", STRATEGIES));
+            System.exit(1);
+         }
+      }
+      createStrategy(a);
+      createStrategy(b);
+      if (games <= 0)
+      {
+         System.err.println("Games must be positive");
+         System.exit(1);
+      }
+
+      long   start   = System.nanoTime();
+      Result result  = run(a, b, games, seed, threads, swap);
+      double seconds = (System.nanoTime() - start) / 1.0e9;
+      System.out.println(a + " vs " + b + ": " + games + " games, seed " + seed +
+                         ", " + threads + " threads" + (swap ? ", alternating seats" : ""));
+      System.out.println(formatRate("wins", result.wins, games));
+      System.out.println(formatRate("losses", result.losses, games));
+      System.out.println(formatRate("ties", result.ties, games));
+      System.out.println(String.format("%.2f seconds, %.0f games/second", seconds, games / seconds));
+   }
+}
@@ -0,0 +1,65 @@
+// Go Fish xoshiro256** generator.
+// Fast, small state, seeded through splitmix64 so nearby seeds give
+// unrelated streams. Bounded ints use multiply-shift with rejection.
+
+package com.dialectek.gofish.engine;
+
+public class XoshiroRng implements Rng
+{
+   long s0, s1, s2, s3;
+
+   public XoshiroRng(long seed)
+   {
+      setSeed(seed);
+   }
+
+
+   public void setSeed(long seed)
+   {
+      s0 = splitMix(seed += 0x9e3779b97f4a7c15L);
+      s1 = splitMix(seed += 0x9e3779b97f4a7c15L);
+      s2 = splitMix(seed += 0x9e3779b97f4a7c15L);
+      s3 = splitMix(seed + 0x9e3779b97f4a7c15L);
+   }
+
+
+   private static long splitMix(long z)
+   {
+      z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+      z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+      return(z ^ (z >>> 31));
+   }
+
+
+   public long nextLong()
+   {
+      long result = Long.rotateLeft(s1 * 5, 7) * 9;
+      long t      = s1 << 17;
+
+      s2 ^= s0;
+      s3 ^= s1;
+      s1 ^= s2;
+      s0 ^= s3;
+      s2 ^= t;
+      s3  = Long.rotateLeft(s3, 45);
+      return(result);
+   }
+
+
+   public int nextInt(int bound)
+   {
+      long m = ((nextLong() >>> 32) * bound);
+      long l = m & 0xffffffffL;
+
+      if (l < bound)
+      {
+         long threshold = (0x100000000L - bound) % bound;
+         while (l < threshold)
+         {
+            m = ((nextLong() >>> 32) * bound);
+            l = m & 0xffffffffL;
+         }
+      }
+      return((int)(m >>> 32));
+   }
+}
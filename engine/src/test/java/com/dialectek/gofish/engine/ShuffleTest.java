@@ -0,0 +1,157 @@
+// Go Fish shuffle tests.
+// The chi-square checks of ShuffleCheck over fixed seeds, so a biased
+// shuffle or generator fails the build: card by position counts of a
+// full deck, with 52 * 51 degrees of freedom, and the orderings of a
+// short deck. A p-value below 0.001 fails.
+
+package com.dialectek.gofish.engine;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ShuffleTest
+{
+   // Shuffles per check, seed, degrees of freedom and passing p-value.
+   static final int    SHUFFLES    = 200000;
+   static final long   SEED        = 0x5eedL;
+   static final int    POSITION_DF = 52 * 51;
+   static final int    ORDER_DF    = 119;
+   static final double MIN_P_VALUE = 0.001;
+
+   @Test
+   public void xoshiroPositionsUniform()
+   {
+      assertPositionsUniform(new XoshiroRng(SEED));
+   }
+
+
+   @Test
+   public void xoshiroOrdersUniform()
+   {
+      assertOrdersUniform(new XoshiroRng(SEED + 1));
+   }
+
+
+   @Test
+   public void splittablePositionsUniform()
+   {
+      assertPositionsUniform(new SplittableRng(SEED));
+   }
+
+
+   @Test
+   public void splittableOrdersUniform()
+   {
+      assertOrdersUniform(new SplittableRng(SEED + 1));
+   }
+
+
+   // The position check must catch the classic biased shuffle that
+   // swaps each card with any position.
+   @Test
+   public void biasedShuffleDetected()
+   {
+      XoshiroRng rng    = new XoshiroRng(SEED);
+      byte[]     deck   = new byte[52];
+      int[]      counts = new int[52 * 52];
+
+      for (int i = 0; i < SHUFFLES; i++)
+      {
+         for (int j = 0; j < 52; j++)
+         {
+            deck[j] = (byte)j;
+         }
+         for (int j = 0; j < 52; j++)
+         {
+            int  k = rng.nextInt(52);
+            byte b = deck[j];
+            deck[j] = deck[k];
+            deck[k] = b;
+         }
+         for (int j = 0; j < 52; j++)
+         {
+            counts[deck[j] * 52 + j]++;
+         }
+      }
+      double chiSquare = ShuffleCheck.chiSquare(counts, SHUFFLES / 52.0);
+      assertTrue(ShuffleCheck.getPValue(chiSquare, POSITION_DF) < MIN_P_VALUE);
+   }
+
+
+   // Deals are permutations of the deck, and a seed reproduces its deal.
+   @Test
+   public void dealsReproducible()
+   {
+      Shuffle   shuffle = new Shuffle();
+      GameState a       = new GameState();
+      GameState b       = new GameState();
+
+      for (long seed = 0L; seed < 100L; seed++)
+      {
+         shuffle.init(a, seed, Shuffle.FISHER_YATES);
+         shuffle.init(b, seed, Shuffle.FISHER_YATES);
+         assertArrayEquals(a.deck, b.deck);
+         assertPermutation(a.deck);
+         shuffle.init(b, seed + 100L, Shuffle.FISHER_YATES);
+         assertFalse(a.equals(b));
+      }
+   }
+
+
+   // Fair play deals are permutations too.
+   @Test
+   public void secureDealsPermutations()
+   {
+      GameState state = new GameState();
+      SecureRng rng   = new SecureRng();
+
+      for (int i = 0; i < 100; i++)
+      {
+         state.init(rng);
+         assertPermutation(state.deck);
+      }
+   }
+
+
+   // Lehmer codes number the orderings of a short deck.
+   @Test
+   public void orderCodes()
+   {
+      assertEquals(0, ShuffleCheck.getOrder(new byte[] { 0, 1, 2, 3, 4 }));
+      assertEquals(119, ShuffleCheck.getOrder(new byte[] { 4, 3, 2, 1, 0 }));
+   }
+
+
+   static void assertPositionsUniform(Rng rng)
+   {
+      double chiSquare = ShuffleCheck.positionChiSquare(rng, SHUFFLES);
+      double p         = ShuffleCheck.getPValue(chiSquare, POSITION_DF);
+
+      assertTrue("positions chi2 " + chiSquare + " p " + p, p >= MIN_P_VALUE);
+   }
+
+
+   static void assertOrdersUniform(Rng rng)
+   {
+      double chiSquare = ShuffleCheck.orderChiSquare(rng, SHUFFLES);
+      double p         = ShuffleCheck.getPValue(chiSquare, ORDER_DF);
+
+      assertTrue("orders chi2 " + chiSquare + " p " + p, p >= MIN_P_VALUE);
+   }
+
+
+   static void assertPermutation(byte[] deck)
+   {
+      boolean[] seen = new boolean[52];
+
+      for (int i = 0; i < 52; i++)
+      {
+         assertFalse(seen[deck[i]]);
+         seen[deck[i]] = true;
+      }
+   }
+}
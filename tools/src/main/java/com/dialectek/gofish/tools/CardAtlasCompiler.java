@@ -0,0 +1,204 @@
+// Go Fish card atlas compiler.
+// Build step packing the card images into one power-of-two page and
+// compressing it to ETC1, so the app uploads the page as is instead of
+// decoding and composing PNGs. Images sit on 4 pixel cells so no ETC1
+// block mixes two images. Writes textures/cards.pkm and the image
+// placements to textures/cards.atlas, one "name x y width height" line
+// per image after the "width height" page line. A white image named
+// "white" is added for untextured shapes.
+//
+// Usage: CardAtlasCompiler <assets dir> <output dir> <image>...
+
+package com.dialectek.gofish.tools;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import javax.imageio.ImageIO;
+
+public class CardAtlasCompiler
+{
+   // Largest page dimension, as in the app.
+   public static final int MAX_PAGE_SIZE = 1024;
+
+   // Gutter between images, block alignment and white image size.
+   public static final int GUTTER     = 1;
+   public static final int ALIGNMENT  = 4;
+   public static final int WHITE_SIZE = 4;
+   public static final String WHITE   = "white";
+
+   // Page size and image positions.
+   int   pageWidth, pageHeight;
+   int[] xs, ys;
+
+   // Pack cells onto the smallest page that holds them all.
+   boolean layout(int[] widths, int[] heights)
+   {
+      for (int area = 1; area <= MAX_PAGE_SIZE * MAX_PAGE_SIZE; area *= 2)
+      {
+         int w = 1;
+         while (w * w < area)
+         {
+            w *= 2;
+         }
+         int h = area / w;
+         if ((w <= MAX_PAGE_SIZE) && (h <= MAX_PAGE_SIZE) && pack(widths, heights, w, h))
+         {
+            pageWidth  = w;
+            pageHeight = h;
+            return(true);
+         }
+      }
+      return(false);
+   }
+
+
+   // Pack cells in shelves.
+   boolean pack(int[] widths, int[] heights, int w, int h)
+   {
+      int x = 0, y = 0, shelf = 0;
+
+      xs = new int[widths.length];
+      ys = new int[widths.length];
+      for (int i = 0; i < widths.length; i++)
+      {
+         if (x + widths[i] > w)
+         {
+            x      = 0;
+            y     += shelf;
+            shelf  = 0;
+         }
+         if ((widths[i] > w) || (y + heights[i] > h))
+         {
+            return(false);
+         }
+         xs[i] = x;
+         ys[i] = y;
+         x    += widths[i];
+         shelf = Math.max(shelf, heights[i]);
+      }
+      return(true);
+   }
+
+
+   // Compile images into the compressed page and placements.
+   public void compile(File assets, File output, String[] names) throws IOException
+   {
+      int             n       = names.length + 1;
+      BufferedImage[] images  = new BufferedImage[n];
+      int[]           widths  = new int[n];
+      int[]           heights = new int[n];
+
+      for (int i = 0; i < n; i++)
+      {
+         if (i < names.length)
+         {
+            images[i] = ImageIO.read(new File(assets, names[i]));
+            if (images[i] == null)
+            {
+               throw new IOException("Cannot read image " + names[i]);
+            }
+         }
+         else
+         {
+            images[i] = new BufferedImage(WHITE_SIZE, WHITE_SIZE, BufferedImage.TYPE_INT_RGB);
+            for (int y = 0; y < WHITE_SIZE; y++)
+            {
+               for (int x = 0; x < WHITE_SIZE; x++)
+               {
+                  images[i].setRGB(x, y, 0xffffff);
+               }
+            }
+         }
+         widths[i]  = align(images[i].getWidth() + GUTTER);
+         heights[i] = align(images[i].getHeight() + GUTTER);
+      }
+      if (!layout(widths, heights))
+      {
+         throw new IOException("Images do not fit a " + MAX_PAGE_SIZE + " page");
+      }
+
+      // Compose the page, transparent pixels black as in a premultiplied bitmap.
+      int[] pixels = new int[pageWidth * pageHeight];
+      for (int i = 0; i < n; i++)
+      {
+         BufferedImage image = images[i];
+         for (int y = 0; y < image.getHeight(); y++)
+         {
+            for (int x = 0; x < image.getWidth(); x++)
+            {
+               int argb  = image.getRGB(x, y);
+               int alpha = argb >>> 24;
+               int r     = ((argb >> 16) & 0xff) * alpha / 255;
+               int g     = ((argb >> 8) & 0xff) * alpha / 255;
+               int b     = (argb & 0xff) * alpha / 255;
+               pixels[((ys[i] + y) * pageWidth) + xs[i] + x] = (r << 16) | (g << 8) | b;
+            }
+         }
+      }
+
+      // Write page and placements.
+      File textures = new File(output, "textures");
+      if (!textures.isDirectory() && !textures.mkdirs())
+      {
+         throw new IOException("Cannot create " + textures);
+      }
+      OutputStream out = new BufferedOutputStream(new FileOutputStream(new File(textures, "cards.pkm")));
+      try
+      {
+         Etc1Encoder.writePkm(out, pixels, pageWidth, pageHeight);
+      }
+      finally
+      {
+         out.close();
+      }
+      PrintWriter atlas = new PrintWriter(new File(textures, "cards.atlas"), "UTF-8");
+      try
+      {
+         atlas.println(pageWidth + " " + pageHeight);
+         for (int i = 0; i < n; i++)
+         {
+            atlas.println((i < names.length ? names[i] : WHITE) + " " + xs[i] + " " + ys[i] + " " +
+                          images[i].getWidth() + " " + images[i].getHeight());
+         }
+      }
+      finally
+      {
+         atlas.close();
+      }
+   }
+
+
+   private static int align(int size)
+   {
+      return((size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT);
+   }
+
+
+   public static void main(String[] args)
+   {
+      if (args.length < 3)
+      {
+         System.err.println("Usage: CardAtlasCompiler <assets dir> <output dir> <image>...");
+         System.exit(1);
+      }
+      String[] names = new String[args.length - 2];
+      System.arraycopy(args, 2, names, 0, names.length);
+      CardAtlasCompiler compiler = new CardAtlasCompiler();
+      try
+      {
+         compiler.compile(new File(args[0]), new File(args[1]), names);
+         System.out.println("Compiled " + names.length + " images into a " +
+                            compiler.pageWidth + "x" + compiler.pageHeight + " ETC1 page");
+      }
+      catch (IOException e)
+      {
+         System.err.println("Error: " + e.getMessage());
+         System.exit(1);
+      }
+   }
+}
@@ -0,0 +1,246 @@
+// Go Fish ETC1 texture encoder.
+// Compresses RGB images into ETC1 4x4 blocks and writes them as PKM
+// files, the container android.opengl.ETC1Util reads. Each block tries
+// both sub-block orientations in individual and differential color
+// modes, with every modifier table, and keeps the least squared error.
+
+package com.dialectek.gofish.tools;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class Etc1Encoder
+{
+   // Modifier tables: small and large intensity steps.
+   static final int[][] MODIFIERS =
+   {
+      { 2,   8 }, { 5,  17 }, { 9,  29 }, { 13,  42 },
+      { 18, 60 }, { 24, 80 }, { 33, 106 }, { 47, 183 }
+   };
+
+   // PKM format code.
+   public static final int ETC1_RGB_NO_MIPMAPS = 0;
+
+   // Encode an image of 0xRRGGBB pixels, row major from the top.
+   // Dimensions are padded to multiples of four by edge replication.
+   public static byte[] encode(int[] pixels, int width, int height)
+   {
+      int    blocksWide = (width + 3) / 4;
+      int    blocksHigh = (height + 3) / 4;
+      byte[] data       = new byte[blocksWide * blocksHigh * 8];
+      int[]  block      = new int[16];
+
+      for (int by = 0; by < blocksHigh; by++)
+      {
+         for (int bx = 0; bx < blocksWide; bx++)
+         {
+            for (int y = 0; y < 4; y++)
+            {
+               for (int x = 0; x < 4; x++)
+               {
+                  int px = Math.min((bx * 4) + x, width - 1);
+                  int py = Math.min((by * 4) + y, height - 1);
+                  block[(y * 4) + x] = pixels[(py * width) + px];
+               }
+            }
+            long bits = encodeBlock(block);
+            int  o    = ((by * blocksWide) + bx) * 8;
+            for (int i = 0; i < 8; i++)
+            {
+               data[o + i] = (byte)(bits >>> (56 - (i * 8)));
+            }
+         }
+      }
+      return(data);
+   }
+
+
+   // Write a PKM file: header then blocks.
+   public static void writePkm(OutputStream out, int[] pixels, int width, int height) throws IOException
+   {
+      DataOutputStream data = new DataOutputStream(out);
+
+      data.writeBytes("PKM 10");
+      data.writeShort(ETC1_RGB_NO_MIPMAPS);
+      data.writeShort((width + 3) & ~3);
+      data.writeShort((height + 3) & ~3);
+      data.writeShort(width);
+      data.writeShort(height);
+      data.write(encode(pixels, width, height));
+      data.flush();
+   }
+
+
+   // Encode a block of 16 pixels, row major.
+   static long encodeBlock(int[] block)
+   {
+      long best      = 0;
+      long bestError = Long.MAX_VALUE;
+
+      for (int flip = 0; flip < 2; flip++)
+      {
+         // Sub-block average colors.
+         int[][] averages = new int[2][3];
+         for (int i = 0; i < 16; i++)
+         {
+            int[] average = averages[subBlock(i, flip)];
+            average[0] += (block[i] >> 16) & 0xff;
+            average[1] += (block[i] >> 8) & 0xff;
+            average[2] += block[i] & 0xff;
+         }
+         for (int s = 0; s < 2; s++)
+         {
+            for (int c = 0; c < 3; c++)
+            {
+               averages[s][c] = (averages[s][c] + 4) / 8;
+            }
+         }
+
+         // Individual mode: two 4-bit colors.
+         int[] q0 = new int[3], q1 = new int[3];
+         for (int c = 0; c < 3; c++)
+         {
+            q0[c] = quantize(averages[0][c], 4);
+            q1[c] = quantize(averages[1][c], 4);
+         }
+         long bits = (long)flip << 32;
+         bits |= ((long)q0[0] << 60) | ((long)q1[0] << 56) | ((long)q0[1] << 52) |
+                 ((long)q1[1] << 48) | ((long)q0[2] << 44) | ((long)q1[2] << 40);
+         long[] result = fitTables(block, flip, bits, expand(q0, 4), expand(q1, 4));
+         if (result[1] < bestError)
+         {
+            best      = result[0];
+            bestError = result[1];
+         }
+
+         // Differential mode: a 5-bit color and a 3-bit signed delta.
+         boolean fits = true;
+         int[]   d    = new int[3];
+         for (int c = 0; c < 3; c++)
+         {
+            q0[c] = quantize(averages[0][c], 5);
+            q1[c] = quantize(averages[1][c], 5);
+            d[c]  = q1[c] - q0[c];
+            if ((d[c] < -4) || (d[c] > 3))
+            {
+               fits = false;
+            }
+         }
+         if (fits)
+         {
+            bits  = ((long)flip << 32) | (1L << 33);
+            bits |= ((long)q0[0] << 59) | ((long)(d[0] & 7) << 56) | ((long)q0[1] << 51) |
+                    ((long)(d[1] & 7) << 48) | ((long)q0[2] << 43) | ((long)(d[2] & 7) << 40);
+            result = fitTables(block, flip, bits, expand(q0, 5), expand(q1, 5));
+            if (result[1] < bestError)
+            {
+               best      = result[0];
+               bestError = result[1];
+            }
+         }
+      }
+      return(best);
+   }
+
+
+   // Choose each sub-block's table and each pixel's modifier,
+   // returning the block bits and squared error.
+   private static long[] fitTables(int[] block, int flip, long bits, int[] base0, int[] base1)
+   {
+      long error = 0;
+
+      for (int s = 0; s < 2; s++)
+      {
+         int[] base         = (s == 0) ? base0 : base1;
+         long  tableError   = Long.MAX_VALUE;
+         int   bestTable    = 0;
+         int[] indices      = new int[16];
+         int[] tableIndices = new int[16];
+         for (int t = 0; t < MODIFIERS.length; t++)
+         {
+            long e = 0;
+            for (int i = 0; i < 16; i++)
+            {
+               if (subBlock(i, flip) != s)
+               {
+                  continue;
+               }
+               long pixelError = Long.MAX_VALUE;
+               for (int m = 0; m < 4; m++)
+               {
+                  int  modifier = (m < 2) ? MODIFIERS[t][m] : -MODIFIERS[t][m - 2];
+                  long pe       = distance(block[i], base, modifier);
+                  if (pe < pixelError)
+                  {
+                     pixelError      = pe;
+                     tableIndices[i] = m;
+                  }
+               }
+               e += pixelError;
+            }
+            if (e < tableError)
+            {
+               tableError = e;
+               bestTable  = t;
+               System.arraycopy(tableIndices, 0, indices, 0, 16);
+            }
+         }
+         error += tableError;
+         bits  |= (long)bestTable << ((s == 0) ? 37 : 34);
+
+         // Pixel indices are column major, most significant bits high.
+         for (int i = 0; i < 16; i++)
+         {
+            if (subBlock(i, flip) == s)
+            {
+               int j = ((i % 4) * 4) + (i / 4);
+               bits |= (long)(indices[i] >> 1) << (j + 16);
+               bits |= (long)(indices[i] & 1) << j;
+            }
+         }
+      }
+      return(new long[] { bits, error });
+   }
+
+
+   // Sub-block of a pixel: left/right halves, or top/bottom when flipped.
+   private static int subBlock(int i, int flip)
+   {
+      return((flip == 0) ? ((i % 4) / 2) : ((i / 4) / 2));
+   }
+
+
+   private static long distance(int pixel, int[] base, int modifier)
+   {
+      long e = 0;
+
+      for (int c = 0; c < 3; c++)
+      {
+         int v = Math.max(0, Math.min(255, base[c] + modifier));
+         int d = ((pixel >> (16 - (c * 8))) & 0xff) - v;
+         e += d * d;
+      }
+      return(e);
+   }
+
+
+   private static int quantize(int value, int bits)
+   {
+      int max = (1 << bits) - 1;
+
+      return(Math.min(max, (value * max + 127) / 255));
+   }
+
+
+   private static int[] expand(int[] q, int bits)
+   {
+      int[] c = new int[3];
+
+      for (int i = 0; i < 3; i++)
+      {
+         c[i] = (bits == 4) ? ((q[i] << 4) | q[i]) : ((q[i] << 3) | (q[i] >> 2));
+      }
+      return(c);
+   }
+}